@@ -32,10 +32,17 @@ dependencies {
   implementation(libs.quarkus.config.yaml)
   implementation(libs.quarkus.mongodb.client)
   implementation(libs.quarkus.redis)
+  implementation(libs.quarkus.scheduler)
+  implementation(libs.quarkus.smallrye.fault.tolerance)
+  implementation(libs.quarkus.smallrye.health)
   implementation(libs.quarkus.virtual.threads)
+  implementation(libs.quarkus.caffeine)
+  implementation(libs.quarkus.micrometer.prometheus)
   implementation(libs.quarkus.opensearch.java.client)
   implementation(libs.quarkus.opensearch.transport.apache)
 
+  implementation(libs.lucene.core)
+
   implementation(platform(libs.mongo.bom))
   implementation(libs.mongo.driver)
 
@@ -56,3 +63,38 @@ java {
 tasks.withType<Test> {
   systemProperty("java.util.logging.manager", "org.jboss.logmanager.LogManager")
 }
+
+tasks.test {
+  useJUnitPlatform {
+    excludeTags("benchmark")
+  }
+}
+
+val boundedHeapBenchmark = tasks.register<Test>("boundedHeapBenchmark") {
+  description = "Runs the benchmarks that must stay within a fixed heap."
+  group = "verification"
+  testClassesDirs = sourceSets.test.get().output.classesDirs
+  classpath = sourceSets.test.get().runtimeClasspath
+  useJUnitPlatform {
+    includeTags("bounded-heap")
+  }
+  // Fixed heap ceiling so the export test fails loudly if it materializes a collection
+  maxHeapSize = "512m"
+  testLogging.showStandardStreams = true
+  outputs.upToDateWhen { false }
+}
+
+tasks.register<Test>("benchmark") {
+  description = "Runs the benchmarks and load tests against Dev Services."
+  group = "verification"
+  testClassesDirs = sourceSets.test.get().output.classesDirs
+  classpath = sourceSets.test.get().runtimeClasspath
+  useJUnitPlatform {
+    includeTags("benchmark")
+    excludeTags("bounded-heap")
+  }
+  systemProperty("benchmark.notes", System.getProperty("benchmark.notes", "200000"))
+  testLogging.showStandardStreams = true
+  outputs.upToDateWhen { false }
+  dependsOn(boundedHeapBenchmark)
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+/**
+ * Layout of a Count-Min sketch of {@code depth} rows of {@code width} 32-bit counters, stored in
+ * one Redis string and updated with {@code BITFIELD}.
+ */
+final class CountMinSketch {
+
+  private final int width;
+  private final int depth;
+
+  CountMinSketch(int width, int depth) {
+    if (width < 1 || depth < 1) {
+      throw new IllegalArgumentException("A sketch needs at least one row and one column");
+    }
+    this.width = width;
+    this.depth = depth;
+  }
+
+  int depth() {
+    return depth;
+  }
+
+  /** Bytes of Redis string a sketch takes once every counter was touched. */
+  long bytes() {
+    return 4L * width * depth;
+  }
+
+  /**
+   * Returns the index of the item's counter in each row, counted in counters from the start of the
+   * sketch, as used by the {@code #} offsets of {@code BITFIELD}.
+   */
+  long[] counters(String item) {
+    var hash = hash(item);
+    // Double hashing: row i uses h1 + i * h2, which is as good as independent hash functions.
+    var h1 = (int) hash;
+    var h2 = (int) (hash >>> 32) | 1;
+    var counters = new long[depth];
+    for (var row = 0; row < depth; row++) {
+      var column = Integer.remainderUnsigned(h1 + row * h2, width);
+      counters[row] = (long) row * width + column;
+    }
+    return counters;
+  }
+
+  /** 64-bit FNV-1a followed by the MurmurHash3 finalizer; the same on every replica. */
+  private static long hash(String item) {
+    var hash = 0xcbf29ce484222325L;
+    for (var i = 0; i < item.length(); i++) {
+      hash ^= item.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.RedisConnection;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import io.vertx.redis.client.ProtocolVersion;
+import io.vertx.redis.client.ResponseType;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Near cache for counter reads, kept coherent by Redis client-side caching ({@code CLIENT TRACKING}
+ * in broadcast mode on one connection per master).
+ */
+@ApplicationScoped
+public class IncrementNearCache {
+
+  private static final String ALL_KEYS = "*";
+
+  private final RedisNodes redisNodes;
+  private final IncrementShards shards;
+  private final Vertx vertx;
+  private final boolean enabled;
+  private final List<String> prefixes;
+  private final Duration checkInterval;
+  private final Duration timeout;
+  private final Logger logger;
+  private final Cache<String, Object> entries;
+  private final Map<String, Counter> hits = new HashMap<>();
+  private final Map<String, Counter> misses = new HashMap<>();
+  // Bumped whenever tracking stops, so loads that started before are not cached.
+  private final AtomicLong generation = new AtomicLong();
+  private final List<Tracker> trackers = new ArrayList<>();
+
+  private volatile boolean tracking;
+  private volatile boolean running;
+  private Map<String, String> trackedMasters = Map.of();
+  private Thread worker;
+
+  public IncrementNearCache(
+      RedisNodes redisNodes,
+      IncrementShards shards,
+      Vertx vertx,
+      MeterRegistry registry,
+      @ConfigProperty(name = "increment.near-cache.enabled") boolean enabled,
+      @ConfigProperty(name = "increment.near-cache.prefixes") Optional<List<String>> prefixes,
+      @ConfigProperty(name = "increment.near-cache.max-size") long maxSize,
+      @ConfigProperty(name = "increment.near-cache.check-interval") Duration checkInterval,
+      @ConfigProperty(name = "increment.near-cache.timeout") Duration timeout,
+      Logger logger) {
+    this.redisNodes = redisNodes;
+    this.shards = shards;
+    this.vertx = vertx;
+    this.enabled = enabled;
+    this.prefixes = List.copyOf(prefixes.orElse(List.of()));
+    this.checkInterval = checkInterval;
+    this.timeout = timeout;
+    this.logger = logger;
+    this.entries = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
+    CaffeineCacheMetrics.monitor(registry, entries, "increment.near-cache");
+    for (var prefix : this.prefixes.isEmpty() ? List.of(ALL_KEYS) : this.prefixes) {
+      hits.put(prefix, requests(registry, prefix, "hit"));
+      misses.put(prefix, requests(registry, prefix, "miss"));
+    }
+  }
+
+  private static Counter requests(MeterRegistry registry, String prefix, String result) {
+    return Counter.builder("increment.near-cache.requests")
+        .description("Counter reads looked up in the near cache by key prefix and result")
+        .tag("prefix", prefix)
+        .tag("result", result)
+        .register(registry);
+  }
+
+  /**
+   * A load in progress; replaced by the value once it is read, unless invalidated meanwhile.
+   * Compared by identity, so concurrent loads of a key do not complete each other.
+   */
+  private static final class Loading {
+    final long generation;
+
+    Loading(long generation) {
+      this.generation = generation;
+    }
+  }
+
+  /** A connection that receives the invalidations of one master. */
+  private record Tracker(Redis client, RedisConnection connection) {}
+
+  void onStart(@Observes StartupEvent event) {
+    if (!enabled) {
+      return;
+    }
+    running = true;
+    try {
+      check();
+    } catch (RuntimeException e) {
+      logger.warn("Near cache tracking could not start, reads bypass it until it does", e);
+    }
+    worker = Thread.ofVirtual().name("increment-near-cache").start(this::run);
+  }
+
+  void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+    running = false;
+    if (worker != null) {
+      worker.interrupt();
+      worker.join(timeout);
+    }
+    synchronized (trackers) {
+      stopTracking();
+    }
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        Thread.sleep(checkInterval);
+      } catch (InterruptedException e) {
+        return;
+      }
+      try {
+        check();
+      } catch (RuntimeException e) {
+        logger.warn("Near cache tracking failed, retrying in " + checkInterval, e);
+      }
+    }
+  }
+
+  /** Starts tracking again when a connection was lost or the cluster's masters changed. */
+  private void check() {
+    var masters = redisNodes.masters();
+    synchronized (trackers) {
+      if (tracking && masters.equals(trackedMasters)) {
+        return;
+      }
+      stopTracking();
+      for (var master : masters.entrySet()) {
+        trackers.add(track(master.getKey(), master.getValue()));
+      }
+      trackedMasters = masters;
+      tracking = true;
+      logger.infof("Near cache tracking %s on %d Redis nodes",
+          prefixes.isEmpty() ? "all keys" : prefixes, masters.size());
+    }
+  }
+
+  private Tracker track(String node, String address) {
+    var client = Redis.createClient(vertx,
+        redisNodes.options(address).setPreferredProtocolVersion(ProtocolVersion.RESP3));
+    try {
+      var connection = client.connect().await().atMost(timeout);
+      connection.handler(this::onPush);
+      var trackedGeneration = generation.get();
+      connection.exceptionHandler(e -> lost(node, trackedGeneration, e));
+      connection.endHandler(() -> lost(node, trackedGeneration, null));
+      var request = Request.cmd(Command.CLIENT).arg("TRACKING").arg("ON").arg("BCAST");
+      for (var prefix : prefixes) {
+        request.arg("PREFIX").arg(prefix);
+      }
+      // Writes to the hot key registry tell IncrementShards to reload it. Redis rejects
+      // overlapping prefixes, and a prefix that covers the registry tracks it already.
+      if (!prefixes.isEmpty() && prefixes.stream().noneMatch(prefix ->
+          IncrementShards.REGISTRY_KEY.startsWith(prefix)
+              || prefix.startsWith(IncrementShards.REGISTRY_KEY))) {
+        request.arg("PREFIX").arg(IncrementShards.REGISTRY_KEY);
+      }
+      connection.send(request).await().atMost(timeout);
+      return new Tracker(client, connection);
+    } catch (RuntimeException e) {
+      client.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Stops caching and clears the cache; the caller holds the {@code trackers} lock. Invalidations
+   * may have been missed while a tracking connection was down, so nothing cached before can be
+   * trusted, and the cache is bypassed until every master tracks again.
+   */
+  private void stopTracking() {
+    tracking = false;
+    generation.incrementAndGet();
+    entries.invalidateAll();
+    for (var tracker : trackers) {
+      tracker.client().close();
+    }
+    trackers.clear();
+    trackedMasters = Map.of();
+  }
+
+  private void lost(String node, long trackedGeneration, Throwable cause) {
+    // Connections closed by stopTracking belong to an older generation.
+    if (!tracking || trackedGeneration != generation.get()) {
+      return;
+    }
+    // Stop caching at once; the worker reconnects and clears the rest.
+    tracking = false;
+    generation.incrementAndGet();
+    entries.invalidateAll();
+    if (running) {
+      logger.warn("Near cache lost its tracking connection to Redis node " + node, cause);
+    }
+  }
+
+  private void onPush(Response push) {
+    if (push.type() != ResponseType.PUSH || !"invalidate".equals(push.get(0).toString())) {
+      return;
+    }
+    var keys = push.get(1);
+    if (keys == null) {
+      // FLUSHDB or FLUSHALL.
+      entries.invalidateAll();
+      shards.registryChanged();
+      return;
+    }
+    for (var key : keys) {
+      if (IncrementShards.REGISTRY_KEY.equals(key.toString())) {
+        shards.registryChanged();
+      }
+      entries.invalidate(key.toString());
+    }
+  }
+
+  /** Returns the configured prefix {@code key} starts with, or null if it is not cached. */
+  private String prefix(String key) {
+    if (!enabled) {
+      return null;
+    }
+    if (prefixes.isEmpty()) {
+      return ALL_KEYS;
+    }
+    for (var prefix : prefixes) {
+      if (key.startsWith(prefix)) {
+        return prefix;
+      }
+    }
+    return null;
+  }
+
+  /** Returns whether reads of {@code key} go through this cache. */
+  public boolean caches(String key) {
+    return prefix(key) != null;
+  }
+
+  /** Returns the cached Redis value of {@code key}, or null on a miss. */
+  public Long get(String key) {
+    var prefix = prefix(key);
+    if (prefix == null) {
+      return null;
+    }
+    if (entries.getIfPresent(key) instanceof Long value) {
+      hits.get(prefix).increment();
+      return value;
+    }
+    misses.get(prefix).increment();
+    return null;
+  }
+
+  /**
+   * Marks {@code key} as being read from Redis. Pass the returned token to {@link #put} with the
+   * value; returns null when the value must not be cached.
+   */
+  public Object startLoad(String key) {
+    if (prefix(key) == null) {
+      return null;
+    }
+    var loading = new Loading(generation.get());
+    if (!tracking) {
+      return null;
+    }
+    entries.put(key, loading);
+    return loading;
+  }
+
+  /** Caches {@code value} unless {@code key} was invalidated since {@link #startLoad}. */
+  public void put(String key, Object token, long value) {
+    if (token instanceof Loading loading && loading.generation == generation.get()) {
+      entries.asMap().replace(key, loading, value);
+    }
+  }
+
+  /** Drops the cached value of {@code key}, for writes made by this replica. */
+  public void invalidate(String key) {
+    if (enabled) {
+      entries.invalidate(key);
+    }
+  }
+}
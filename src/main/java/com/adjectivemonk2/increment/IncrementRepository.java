@@ -16,41 +16,419 @@
 
 package com.adjectivemonk2.increment;
 
+import com.adjectivemonk2.increment.model.Increment;
+import com.adjectivemonk2.increment.model.IncrementKeyPage;
+import com.adjectivemonk2.increment.model.IncrementResult;
+import com.adjectivemonk2.increment.model.WindowedIncrement;
 import io.quarkus.redis.datasource.RedisDataSource;
 import io.quarkus.redis.datasource.keys.KeyCommands;
 import io.quarkus.redis.datasource.value.ValueCommands;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.Request;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @ApplicationScoped
 public class IncrementRepository {
 
   private final ValueCommands<String, Long> commands;
   private final KeyCommands<String> keyCommands;
+  private final RedisKeyScanner keyScanner;
+  private final IncrementWriteBehind writeBehind;
+  private final IncrementShards shards;
+  private final IncrementNearCache nearCache;
+  private final IncrementWindows windows;
+  private final RedisScripts scripts;
+  private final RedisNodes redisNodes;
+  private final RedisNodeBatches nodeBatches;
+  private final Redis redis;
+  private final Duration batchTimeout;
 
-  public IncrementRepository(RedisDataSource dataSource) {
+  public IncrementRepository(
+      RedisDataSource dataSource,
+      RedisKeyScanner keyScanner,
+      IncrementWriteBehind writeBehind,
+      IncrementShards shards,
+      IncrementNearCache nearCache,
+      IncrementWindows windows,
+      RedisScripts scripts,
+      RedisNodes redisNodes,
+      RedisNodeBatches nodeBatches,
+      Redis redis,
+      @ConfigProperty(name = "increment.batch.timeout") Duration batchTimeout) {
     this.commands = dataSource.value(String.class, Long.class);
     this.keyCommands = dataSource.key(String.class);
+    this.keyScanner = keyScanner;
+    this.writeBehind = writeBehind;
+    this.shards = shards;
+    this.nearCache = nearCache;
+    this.windows = windows;
+    this.scripts = scripts;
+    this.redisNodes = redisNodes;
+    this.nodeBatches = nodeBatches;
+    this.redis = redis;
+    this.batchTimeout = batchTimeout;
   }
 
+  void onStart(@Observes StartupEvent event) {
+    scripts.load(IncrementScripts.ALL);
+  }
+
+  /**
+   * Returns the value in Redis plus, in write-behind mode, this replica's unflushed delta. The
+   * Redis value comes from the near cache when it holds the key. A hot key's value also includes
+   * its sub-keys, read in parallel.
+   */
   public long get(String id) {
-    var value = commands.get(id);
-    return value != null ? value : 0L;
+    return getAll(List.of(id)).getFirst();
+  }
+
+  /**
+   * Returns the values of {@code ids} in order, like {@link #get}. Keys missing from the near cache
+   * are fetched in one {@link #read}, with the sub-keys of those that are hot.
+   */
+  public List<Long> getAll(List<String> ids) {
+    var cached = new HashMap<String, Long>();
+    var tokens = new HashMap<String, Object>();
+    var uncached = new LinkedHashSet<String>();
+    for (var id : ids) {
+      var value = shards.isHot(id) ? null : nearCache.get(id);
+      if (value != null) {
+        cached.put(id, value);
+      } else if (uncached.add(id) && !shards.isHot(id)) {
+        // Making a key hot writes to it, which cancels this load if that happens meanwhile.
+        tokens.put(id, nearCache.startLoad(id));
+      }
+    }
+    var keys = new LinkedHashSet<String>();
+    for (var id : uncached) {
+      keys.add(id);
+      if (shards.isHot(id)) {
+        keys.addAll(shards.shardKeys(id));
+        tokens.remove(id);
+      }
+    }
+    var values = read(keys);
+    tokens.forEach((id, token) -> nearCache.put(id, token, values.getOrDefault(id, 0L)));
+    values.putAll(cached);
+    return ids.stream().map(id -> total(id, values) + writeBehind.pending(id)).toList();
+  }
+
+  private long total(String id, Map<String, Long> values) {
+    long total = values.getOrDefault(id, 0L);
+    if (shards.isHot(id)) {
+      for (var key : shards.shardKeys(id)) {
+        total += values.getOrDefault(key, 0L);
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Reads {@code keys} as they are in Redis. A standalone Redis reads them with one {@code MGET}.
+   * On a cluster, where an {@code MGET} cannot span slots, there is one per slot, and those of each
+   * master are pipelined in one batch by {@link RedisNodeBatches}.
+   */
+  private Map<String, Long> read(Collection<String> keys) {
+    var values = new HashMap<String, Long>();
+    if (keys.isEmpty()) {
+      return values;
+    }
+    var groups = redisNodes.cluster()
+        ? List.copyOf(RedisSlots.groupBySlot(keys, key -> key).values())
+        : List.of(List.copyOf(keys));
+    var requests = new ArrayList<Request>(groups.size());
+    for (var group : groups) {
+      var request = Request.cmd(Command.MGET);
+      group.forEach(request::arg);
+      requests.add(request);
+    }
+    var responses = nodeBatches.send(requests, groups.stream().map(List::getFirst).toList())
+        .await().atMost(batchTimeout);
+    for (var g = 0; g < groups.size(); g++) {
+      var group = groups.get(g);
+      var response = responses.get(g);
+      for (var i = 0; i < group.size(); i++) {
+        var value = response.get(i);
+        values.put(group.get(i), value != null ? value.toLong() : 0L);
+      }
+    }
+    return values;
   }
 
+  /** Sets the key and, for a hot key, clears its sub-keys. */
   public void set(String id, long value) {
+    writeBehind.discard(id);
     commands.set(id, value);
+    nearCache.invalidate(id);
+    if (shards.isHot(id)) {
+      deleteAll(shards.shardKeys(id));
+    }
   }
 
+  /**
+   * Increments the key, or for a hot key a random sub-key of it. With write-behind the delta is
+   * buffered, and the flush picks the sub-key.
+   */
   public void increment(String id, long incrementBy) {
-    commands.incrby(id, incrementBy);
+    if (writeBehind.enabled()) {
+      writeBehind.add(id, incrementBy);
+      if (!shards.isHot(id)) {
+        shards.observe(id);
+      }
+    } else if (shards.isHot(id)) {
+      incrementKey(shards.pickShard(id), incrementBy);
+    } else {
+      incrementKey(id, incrementBy);
+      nearCache.invalidate(id);
+      shards.observe(id);
+    }
   }
 
+  /**
+   * Sends one {@code INCRBY}, with its time bucket writes when windows are enabled. Those share one
+   * batch with it when they are in its slot or Redis is not a cluster, since a cluster client only
+   * batches commands for a single slot; otherwise the two are sent concurrently.
+   */
+  private void incrementKey(String key, long incrementBy) {
+    if (!windows.enabled()) {
+      commands.incrby(key, incrementBy);
+      return;
+    }
+    var increment = Request.cmd(Command.INCRBY).arg(key).arg(incrementBy);
+    if (!redisNodes.cluster() || IncrementWindows.inSlotOf(key)) {
+      var requests = new ArrayList<Request>();
+      requests.add(increment);
+      requests.addAll(windows.requests(key, incrementBy));
+      redis.batch(requests).await().atMost(batchTimeout);
+      return;
+    }
+    Uni.join()
+        .all(
+            redis.send(increment).replaceWithVoid(),
+            windows.record(key, incrementBy))
+        .andFailFast()
+        .await()
+        .atMost(batchTimeout);
+  }
+
+  /**
+   * Applies {@code increments} and returns each key's value after its increment, in order. Without
+   * write-behind the {@code INCRBY} commands are grouped by cluster slot into pipelined batches
+   * that are sent concurrently. A hot key's increment goes to a random sub-key, and its value is
+   * read once the whole batch is applied. With write-behind they are buffered like single
+   * increments, and the values returned include them.
+   */
+  public List<Long> incrementAll(List<Increment> increments) {
+    if (writeBehind.enabled()) {
+      for (var increment : increments) {
+        writeBehind.add(increment.key(), increment.value());
+        if (!shards.isHot(increment.key())) {
+          shards.observe(increment.key());
+        }
+      }
+      return getAll(increments.stream().map(Increment::key).toList());
+    }
+    var targets = new ArrayList<String>(increments.size());
+    var hot = new LinkedHashSet<String>();
+    for (var increment : increments) {
+      if (shards.isHot(increment.key())) {
+        targets.add(shards.pickShard(increment.key()));
+        hot.add(increment.key());
+      } else {
+        targets.add(increment.key());
+      }
+    }
+    var values = new Long[increments.size()];
+    var indexed = new ArrayList<Integer>(increments.size());
+    for (var i = 0; i < increments.size(); i++) {
+      indexed.add(i);
+    }
+    var writes = new ArrayList<Uni<Void>>();
+    for (var group : RedisSlots.groupBySlot(indexed, targets::get).values()) {
+      var requests = new ArrayList<Request>(group.size());
+      for (var i : group) {
+        requests.add(
+            Request.cmd(Command.INCRBY).arg(targets.get(i)).arg(increments.get(i).value()));
+      }
+      writes.add(redis.batch(requests)
+          .invoke(responses -> {
+            for (var j = 0; j < group.size(); j++) {
+              values[group.get(j)] = responses.get(j).toLong();
+            }
+          })
+          .replaceWithVoid());
+    }
+    if (windows.enabled()) {
+      var deltas = new LinkedHashMap<String, Long>();
+      for (var i = 0; i < increments.size(); i++) {
+        deltas.merge(targets.get(i), increments.get(i).value(), Long::sum);
+      }
+      deltas.forEach((key, delta) -> writes.add(windows.record(key, delta)));
+    }
+    Uni.join().all(writes).andFailFast().await().atMost(batchTimeout);
+    increments.forEach(increment -> nearCache.invalidate(increment.key()));
+
+    if (!hot.isEmpty()) {
+      var hotIds = List.copyOf(hot);
+      var totals = getAll(hotIds);
+      for (var i = 0; i < increments.size(); i++) {
+        var index = hotIds.indexOf(increments.get(i).key());
+        if (index >= 0) {
+          values[i] = totals.get(index);
+        }
+      }
+    }
+    increments.stream()
+        .map(Increment::key)
+        .filter(key -> !hot.contains(key))
+        .forEach(shards::observe);
+    return List.of(values);
+  }
+
+  /**
+   * Deletes the key and, for a hot key, its sub-keys, with their time buckets. A key detected as
+   * hot is no longer hot afterwards.
+   */
   public void delete(String id) {
-    keyCommands.del(id);
+    writeBehind.discard(id);
+    if (shards.isHot(id) || windows.enabled()) {
+      var keys = new ArrayList<String>();
+      var now = IncrementWindows.now();
+      for (var key : keysOf(id)) {
+        keys.add(key);
+        if (windows.enabled()) {
+          keys.addAll(IncrementWindows.allBucketKeys(key, now));
+        }
+      }
+      deleteAll(keys);
+    } else {
+      keyCommands.del(id);
+    }
+    shards.unregister(id);
+    nearCache.invalidate(id);
+  }
+
+  /**
+   * Returns the sums of the key's increments over the last minute, hour and day, read with one
+   * {@code MGET} of their buckets, or one per sub-key for a hot key.
+   *
+   * @throws IllegalStateException if windows are disabled
+   */
+  public WindowedIncrement windows(String id) {
+    if (!windows.enabled()) {
+      throw new IllegalStateException("Windowed counts need increment.windows.enabled");
+    }
+    var keys = keysOf(id);
+    var now = IncrementWindows.now();
+    var bucketKeys = new ArrayList<String>();
+    for (var key : keys) {
+      for (var resolution : IncrementWindows.Resolution.values()) {
+        bucketKeys.addAll(IncrementWindows.bucketKeys(key, resolution, now));
+      }
+    }
+    var values = read(bucketKeys);
+    return new WindowedIncrement(
+        id,
+        IncrementWindows.sum(keys, IncrementWindows.Resolution.SECOND, now, values),
+        IncrementWindows.sum(keys, IncrementWindows.Resolution.MINUTE, now, values),
+        IncrementWindows.sum(keys, IncrementWindows.Resolution.HOUR, now, values));
+  }
+
+  /** Returns the key and, for a hot key, its sub-keys. */
+  private List<String> keysOf(String id) {
+    var keys = new ArrayList<String>();
+    keys.add(id);
+    if (shards.isHot(id)) {
+      keys.addAll(shards.shardKeys(id));
+    }
+    return keys;
+  }
+
+  /** Deletes {@code keys} with one {@code DEL} per cluster slot, sent concurrently. */
+  private void deleteAll(Collection<String> keys) {
+    var deletes = new ArrayList<Uni<Void>>();
+    for (var group : RedisSlots.groupBySlot(keys, key -> key).values()) {
+      var request = Request.cmd(Command.DEL);
+      group.forEach(request::arg);
+      deletes.add(redis.send(request).replaceWithVoid());
+    }
+    Uni.join().all(deletes).andFailFast().await().atMost(batchTimeout);
+  }
+
+  /** Adds {@code delta} unless that would take the value above {@code limit}. */
+  public IncrementResult incrementBelowLimit(String id, long delta, long limit) {
+    var result = runAtomic(IncrementScripts.INCREMENT_BELOW_LIMIT, id, delta, limit);
+    if (result.applied()) {
+      recordWindows(id, delta);
+    }
+    return result;
+  }
+
+  /** Subtracts {@code delta} unless that would take the value below zero. */
+  public IncrementResult decrementNotBelowZero(String id, long delta) {
+    var result = runAtomic(IncrementScripts.DECREMENT_NOT_BELOW_ZERO, id, delta);
+    if (result.applied()) {
+      recordWindows(id, -delta);
+    }
+    return result;
+  }
+
+  /** Sets the value to {@code value} if it is {@code expected}. */
+  public IncrementResult compareAndSet(String id, long expected, long value) {
+    return runAtomic(IncrementScripts.COMPARE_AND_SET, id, expected, value);
+  }
+
+  /** Deletes the key and returns the value it had. */
+  public IncrementResult getAndReset(String id) {
+    return runAtomic(IncrementScripts.GET_AND_RESET, id);
+  }
+
+  /**
+   * Runs one of the {@link IncrementScripts} on the key: one {@code EVALSHA} round trip. This
+   * replica's write-behind delta for the key is flushed first, so the script sees it and a reset
+   * cannot be undone by it. Other replicas' unflushed deltas are not seen.
+   *
+   * @throws IllegalArgumentException if the key is hot, since its value is spread over sub-keys
+   */
+  private IncrementResult runAtomic(RedisScript script, String id, long... args) {
+    if (shards.isHot(id)) {
+      throw new IllegalArgumentException(
+          "Conditional operations are not supported on hot key " + id);
+    }
+    writeBehind.flush(id);
+    var argList = new ArrayList<String>(args.length);
+    for (var arg : args) {
+      argList.add(String.valueOf(arg));
+    }
+    var response = scripts.run(script, List.of(id), argList).await().atMost(batchTimeout);
+    var applied = response.get(0).toLong() == 1;
+    if (applied) {
+      nearCache.invalidate(id);
+    }
+    return new IncrementResult(id, applied, response.get(1).toLong());
+  }
+
+  private void recordWindows(String id, long delta) {
+    if (windows.enabled()) {
+      windows.record(id, delta).await().atMost(batchTimeout);
+    }
   }
 
-  public List<String> keys() {
-    return keyCommands.keys("*");
+  /** Returns a page of keys matching {@code pattern}; see {@link RedisKeyScanner#scan}. */
+  public IncrementKeyPage keys(String cursor, String pattern, int count) {
+    return keyScanner.scan(cursor, pattern, count);
   }
 }
@@ -17,28 +17,59 @@
 package com.adjectivemonk2.increment;
 
 import com.adjectivemonk2.increment.model.Increment;
+import com.adjectivemonk2.increment.model.IncrementKeyPage;
+import com.adjectivemonk2.increment.model.IncrementResult;
+import com.adjectivemonk2.increment.model.WindowedIncrement;
 import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @Path("/increment")
 @RunOnVirtualThread
 public class IncrementResource {
 
   private final IncrementRepository repository;
+  private final int defaultScanCount;
+  private final int maxScanCount;
+  private final int maxBatchKeys;
 
-  public IncrementResource(IncrementRepository repository) {
+  public IncrementResource(
+      IncrementRepository repository,
+      @ConfigProperty(name = "increment.scan.count") int defaultScanCount,
+      @ConfigProperty(name = "increment.scan.max-count") int maxScanCount,
+      @ConfigProperty(name = "increment.batch.max-keys") int maxBatchKeys) {
     this.repository = repository;
+    this.defaultScanCount = defaultScanCount;
+    this.maxScanCount = maxScanCount;
+    this.maxBatchKeys = maxBatchKeys;
   }
 
   @GET
-  public List<String> keys() {
-    return repository.keys();
+  public IncrementKeyPage keys(
+      @QueryParam("cursor") String cursor,
+      @QueryParam("match") @DefaultValue("*") String match,
+      @QueryParam("count") Integer count) {
+    var scanCount = count != null ? count : defaultScanCount;
+    if (scanCount < 1 || scanCount > maxScanCount) {
+      throw new BadRequestException("count must be between 1 and " + maxScanCount);
+    }
+    try {
+      return repository.keys(cursor, match, scanCount);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
   }
 
   @POST
@@ -47,12 +78,106 @@ public class IncrementResource {
     return increment;
   }
 
+  @POST
+  @Path("/_mget")
+  public List<Increment> mget(List<String> keys) {
+    requireBatch(keys);
+    if (keys.stream().anyMatch(Objects::isNull)) {
+      throw new BadRequestException("keys must not be null");
+    }
+    var values = repository.getAll(keys);
+    var increments = new ArrayList<Increment>(keys.size());
+    for (var i = 0; i < keys.size(); i++) {
+      increments.add(new Increment(keys.get(i), values.get(i)));
+    }
+    return increments;
+  }
+
+  @POST
+  @Path("/_mincr")
+  public List<Increment> mincr(List<Increment> increments) {
+    requireBatch(increments);
+    if (increments.stream().anyMatch(increment -> increment == null || increment.key() == null)) {
+      throw new BadRequestException("keys must not be null");
+    }
+    var values = repository.incrementAll(increments);
+    var result = new ArrayList<Increment>(increments.size());
+    for (var i = 0; i < increments.size(); i++) {
+      result.add(new Increment(increments.get(i).key(), values.get(i)));
+    }
+    return result;
+  }
+
+  private void requireBatch(List<?> batch) {
+    if (batch == null || batch.isEmpty() || batch.size() > maxBatchKeys) {
+      throw new BadRequestException("a batch must hold between 1 and " + maxBatchKeys + " keys");
+    }
+  }
+
   @GET
   @Path("/{key}")
   public Increment get(@PathParam("key") String key) {
     return new Increment(key, repository.get(key));
   }
 
+  @GET
+  @Path("/{key}/_windows")
+  public WindowedIncrement windows(@PathParam("key") String key) {
+    try {
+      return repository.windows(key);
+    } catch (IllegalStateException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+  }
+
+  @POST
+  @Path("/{key}/_increment-below-limit")
+  public IncrementResult incrementBelowLimit(
+      @PathParam("key") String key,
+      @QueryParam("by") @DefaultValue("1") long by,
+      @QueryParam("limit") Long limit) {
+    if (limit == null) {
+      throw new BadRequestException("limit is required");
+    }
+    return atomic(() -> repository.incrementBelowLimit(key, by, limit));
+  }
+
+  @POST
+  @Path("/{key}/_decrement-not-below-zero")
+  public IncrementResult decrementNotBelowZero(
+      @PathParam("key") String key, @QueryParam("by") @DefaultValue("1") long by) {
+    if (by < 0) {
+      throw new BadRequestException("by must not be negative");
+    }
+    return atomic(() -> repository.decrementNotBelowZero(key, by));
+  }
+
+  @POST
+  @Path("/{key}/_compare-and-set")
+  public IncrementResult compareAndSet(
+      @PathParam("key") String key,
+      @QueryParam("expected") Long expected,
+      @QueryParam("value") Long value) {
+    if (expected == null || value == null) {
+      throw new BadRequestException("expected and value are required");
+    }
+    return atomic(() -> repository.compareAndSet(key, expected, value));
+  }
+
+  @POST
+  @Path("/{key}/_get-and-reset")
+  public IncrementResult getAndReset(@PathParam("key") String key) {
+    return atomic(() -> repository.getAndReset(key));
+  }
+
+  private static IncrementResult atomic(Supplier<IncrementResult> operation) {
+    try {
+      return operation.get();
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+  }
+
   @PUT
   @Path("/{key}")
   public void update(@PathParam("key") String key, long value) {
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import java.util.List;
+
+/**
+ * Lua scripts for the conditional operations of {@link IncrementRepository}. Each returns whether
+ * it applied, then the key's value.
+ */
+final class IncrementScripts {
+
+  // Arithmetic is done with INCRBY and DECRBY, so values stay exact; only the limit checks go
+  // through Lua's doubles. A missing key counts as 0.
+
+  // ARGV: delta, limit
+  static final RedisScript INCREMENT_BELOW_LIMIT = RedisScript.of("increment-below-limit", """
+      local value = redis.call('GET', KEYS[1]) or '0'
+      if tonumber(value) + tonumber(ARGV[1]) > tonumber(ARGV[2]) then
+        return {0, value}
+      end
+      return {1, redis.call('INCRBY', KEYS[1], ARGV[1])}
+      """);
+
+  // ARGV: delta
+  static final RedisScript DECREMENT_NOT_BELOW_ZERO = RedisScript.of("decrement-not-below-zero", """
+      local value = redis.call('GET', KEYS[1]) or '0'
+      if tonumber(value) - tonumber(ARGV[1]) < 0 then
+        return {0, value}
+      end
+      return {1, redis.call('DECRBY', KEYS[1], ARGV[1])}
+      """);
+
+  // ARGV: expected, value
+  static final RedisScript COMPARE_AND_SET = RedisScript.of("compare-and-set", """
+      local value = redis.call('GET', KEYS[1]) or '0'
+      if value ~= ARGV[1] then
+        return {0, value}
+      end
+      redis.call('SET', KEYS[1], ARGV[2])
+      return {1, ARGV[2]}
+      """);
+
+  // Returns the value before the reset.
+  static final RedisScript GET_AND_RESET = RedisScript.of("get-and-reset", """
+      local value = redis.call('GET', KEYS[1]) or '0'
+      redis.call('DEL', KEYS[1])
+      return {1, value}
+      """);
+
+  static final List<RedisScript> ALL =
+      List.of(INCREMENT_BELOW_LIMIT, DECREMENT_NOT_BELOW_ZERO, COMPARE_AND_SET, GET_AND_RESET);
+
+  private IncrementScripts() {}
+}
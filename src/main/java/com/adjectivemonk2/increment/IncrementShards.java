@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.set.SetCommands;
+import io.quarkus.redis.datasource.value.ValueCommands;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Hot keys, whose increments are spread over {@code increment.shards.count} sub-keys on different
+ * cluster slots. A hot key's value is the key plus all of its sub-keys.
+ */
+@ApplicationScoped
+public class IncrementShards {
+
+  static final String REGISTRY_KEY = "increment:hot-keys";
+
+  private final SetCommands<String, String> sets;
+  private final ValueCommands<String, Long> values;
+  private final int count;
+  private final Set<String> configured;
+  private final Set<String> cold;
+  private final boolean autoDetect;
+  private final long hotThreshold;
+  private final long detectWindowNanos;
+  private final Duration refreshInterval;
+  private final Logger logger;
+  // The registry as of the last refresh, plus the keys this replica detected or deleted since.
+  private final Set<String> detected = ConcurrentHashMap.newKeySet();
+  private final Cache<String, Rate> rates;
+  // Released when the registry was written, to refresh before the interval is up.
+  private final Semaphore registryChanged = new Semaphore(0);
+
+  private volatile boolean running;
+  private Thread worker;
+
+  public IncrementShards(
+      RedisDataSource dataSource,
+      @ConfigProperty(name = "increment.shards.count") int count,
+      @ConfigProperty(name = "increment.shards.hot-keys") Optional<List<String>> hotKeys,
+      @ConfigProperty(name = "increment.shards.cold-keys") Optional<List<String>> coldKeys,
+      @ConfigProperty(name = "increment.shards.auto-detect") boolean autoDetect,
+      @ConfigProperty(name = "increment.shards.hot-threshold") long hotThreshold,
+      @ConfigProperty(name = "increment.shards.detect-window") Duration detectWindow,
+      @ConfigProperty(name = "increment.shards.tracked-keys") long trackedKeys,
+      @ConfigProperty(name = "increment.shards.refresh-interval") Duration refreshInterval,
+      Logger logger) {
+    if (count < 1) {
+      throw new IllegalArgumentException("increment.shards.count must be at least 1");
+    }
+    this.sets = dataSource.set(String.class);
+    this.values = dataSource.value(String.class, Long.class);
+    this.count = count;
+    this.configured = Set.copyOf(hotKeys.orElse(List.of()));
+    this.cold = Set.copyOf(coldKeys.orElse(List.of()));
+    this.autoDetect = autoDetect;
+    this.hotThreshold = hotThreshold;
+    this.detectWindowNanos = detectWindow.toNanos();
+    this.refreshInterval = refreshInterval;
+    this.logger = logger;
+    this.rates = Caffeine.newBuilder().maximumSize(trackedKeys).build();
+  }
+
+  /** Increments of one key in the current detection window. */
+  private static final class Rate {
+    final LongAdder increments = new LongAdder();
+    final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    if (!autoDetect) {
+      return;
+    }
+    refresh();
+    running = true;
+    worker = Thread.ofVirtual().name("increment-shards-refresh").start(this::run);
+  }
+
+  void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+    running = false;
+    if (worker != null) {
+      worker.interrupt();
+      worker.join(refreshInterval);
+    }
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        registryChanged.tryAcquire(refreshInterval.toNanos(), TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        return;
+      }
+      registryChanged.drainPermits();
+      refresh();
+    }
+  }
+
+  /**
+   * Refreshes the registry soon, for when Redis reported a write to it. The near cache's tracking
+   * connections receive those; without them, changes other replicas make are only seen every
+   * {@code increment.shards.refresh-interval}. Does not block, so it can run on an event loop.
+   */
+  void registryChanged() {
+    if (autoDetect && registryChanged.availablePermits() == 0) {
+      registryChanged.release();
+    }
+  }
+
+  /** Loads the keys detected as hot by any replica, and drops those deleted since. */
+  void refresh() {
+    try {
+      var registered = sets.smembers(REGISTRY_KEY);
+      detected.retainAll(registered);
+      detected.addAll(registered);
+    } catch (RuntimeException e) {
+      logger.warn("Loading hot increment keys failed", e);
+    }
+  }
+
+  /**
+   * Whether {@code key} is hot, from this replica's copy of the registry. A key another replica
+   * made hot or deleted since counts as it was until the copy is refreshed.
+   */
+  public boolean isHot(String key) {
+    return configured.contains(key) || detected.contains(key);
+  }
+
+  /**
+   * Removes a detected key from the registry, for when it is deleted. Replicas that have not
+   * refreshed yet can still send increments to its sub-keys, so after two refresh intervals those
+   * are moved into the key itself, unless it has become hot again by then.
+   */
+  public void unregister(String key) {
+    if (!autoDetect || configured.contains(key) || !detected.remove(key)) {
+      return;
+    }
+    sets.srem(REGISTRY_KEY, key);
+    rates.invalidate(key);
+    Thread.ofVirtual().name("increment-shards-fold").start(() -> fold(key));
+  }
+
+  private void fold(String key) {
+    try {
+      Thread.sleep(refreshInterval.multipliedBy(2));
+    } catch (InterruptedException e) {
+      return;
+    }
+    try {
+      if (sets.sismember(REGISTRY_KEY, key)) {
+        return;
+      }
+      for (var shardKey : shardKeys(key)) {
+        var leftover = values.getdel(shardKey);
+        if (leftover != null && leftover != 0) {
+          values.incrby(key, leftover);
+        }
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Moving late sub-key increments of " + key + " into the key failed", e);
+    }
+  }
+
+  /** Returns the sub-key for {@code shard}; its hash tag puts each shard on its own slot. */
+  static String shardKey(String key, int shard) {
+    return "{" + Integer.toHexString(key.hashCode()) + ":" + shard + "}" + key;
+  }
+
+  /** Returns every sub-key of {@code key}. */
+  public List<String> shardKeys(String key) {
+    var keys = new ArrayList<String>(count);
+    for (var shard = 0; shard < count; shard++) {
+      keys.add(shardKey(key, shard));
+    }
+    return keys;
+  }
+
+  /** Returns a random sub-key of {@code key} to send an increment to. */
+  public String pickShard(String key) {
+    return shardKey(key, ThreadLocalRandom.current().nextInt(count));
+  }
+
+  /** Counts an increment of a key that is not hot yet, and makes it hot when it gets too many. */
+  public void observe(String key) {
+    if (!autoDetect || cold.contains(key)) {
+      return;
+    }
+    var rate = rates.get(key, k -> new Rate());
+    var now = System.nanoTime();
+    var start = rate.windowStart.get();
+    if (now - start > detectWindowNanos && rate.windowStart.compareAndSet(start, now)) {
+      rate.increments.reset();
+    }
+    rate.increments.increment();
+    if (rate.increments.sum() >= hotThreshold && !detected.contains(key)) {
+      // Registered before sharding here, so a failed SADD leaves the key unsharded everywhere.
+      sets.sadd(REGISTRY_KEY, key);
+      // A write to the key drops it from other replicas' near caches, which lack the sub-keys.
+      values.incrby(key, 0);
+      if (detected.add(key)) {
+        logger.infof("Increment key %s is hot, spreading it over %d sub-keys", key, count);
+      }
+      rates.invalidate(key);
+    }
+  }
+}
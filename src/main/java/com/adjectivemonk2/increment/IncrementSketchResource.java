@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
+import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+@Path("/increment/_sketches")
+@RunOnVirtualThread
+public class IncrementSketchResource {
+
+  private final IncrementSketches sketches;
+  private final int maxItems;
+
+  public IncrementSketchResource(
+      IncrementSketches sketches,
+      @ConfigProperty(name = "increment.batch.max-keys") int maxItems) {
+    this.sketches = sketches;
+    this.maxItems = maxItems;
+  }
+
+  /** Adds the counts of a batch of items and returns their new estimates. */
+  @POST
+  @Path("/{name}")
+  public List<Increment> add(@PathParam("name") String name, List<Increment> items) {
+    if (items == null || items.isEmpty() || items.size() > maxItems) {
+      throw new BadRequestException("between 1 and " + maxItems + " items are required");
+    }
+    if (items.stream().anyMatch(item -> item == null || item.key() == null)) {
+      throw new BadRequestException("items must not be null");
+    }
+    try {
+      return sketches.add(name, items);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+  }
+
+  @GET
+  @Path("/{name}/_top")
+  public List<Increment> top(
+      @PathParam("name") String name, @QueryParam("k") @DefaultValue("10") int k) {
+    if (k < 1 || k > sketches.topK()) {
+      throw new BadRequestException("k must be between 1 and " + sketches.topK());
+    }
+    return sketches.top(name, k);
+  }
+
+  @GET
+  @Path("/{name}/{item}")
+  public Increment estimate(@PathParam("name") String name, @PathParam("item") String item) {
+    return new Increment(item, sketches.estimate(name, item));
+  }
+
+  @DELETE
+  @Path("/{name}")
+  public void delete(@PathParam("name") String name) {
+    sketches.delete(name);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.sortedset.SortedSetCommands;
+import io.quarkus.redis.datasource.sortedset.ZRangeArgs;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Count-Min sketches per name, each with a sorted set of its {@code increment.sketch.top-k}
+ * heaviest items.
+ */
+@ApplicationScoped
+public class IncrementSketches {
+
+  static final String KEY_PREFIX = "sketch:";
+
+  private final Redis redis;
+  private final SortedSetCommands<String, String> sortedSets;
+  private final CountMinSketch sketch;
+  private final int topK;
+  private final Duration timeout;
+
+  public IncrementSketches(
+      Redis redis,
+      RedisDataSource dataSource,
+      @ConfigProperty(name = "increment.sketch.width") int width,
+      @ConfigProperty(name = "increment.sketch.depth") int depth,
+      @ConfigProperty(name = "increment.sketch.top-k") int topK,
+      @ConfigProperty(name = "increment.sketch.timeout") Duration timeout) {
+    this.redis = redis;
+    this.sortedSets = dataSource.sortedSet(String.class);
+    this.sketch = new CountMinSketch(width, depth);
+    this.topK = topK;
+    this.timeout = timeout;
+  }
+
+  static String key(String name) {
+    return KEY_PREFIX + "{" + name + "}";
+  }
+
+  static String topKey(String name) {
+    return key(name) + ":top";
+  }
+
+  public int topK() {
+    return topK;
+  }
+
+  /**
+   * Adds each item's count to the sketch and returns the items' new estimates, one per distinct
+   * item in order of first appearance.
+   *
+   * @throws IllegalArgumentException if a count is not positive
+   */
+  public List<Increment> add(String name, List<Increment> items) {
+    var counts = new LinkedHashMap<String, Long>();
+    for (var item : items) {
+      if (item.value() < 1) {
+        throw new IllegalArgumentException("Counts must be positive: " + item);
+      }
+      counts.merge(item.key(), item.value(), Long::sum);
+    }
+
+    var updates = new ArrayList<Request>(counts.size());
+    for (var entry : counts.entrySet()) {
+      // Saturates at 2^32 - 1 rather than wrapping around to small counts.
+      var request = Request.cmd(Command.BITFIELD).arg(key(name)).arg("OVERFLOW").arg("SAT");
+      for (var counter : sketch.counters(entry.getKey())) {
+        request.arg("INCRBY").arg("u32").arg("#" + counter).arg(entry.getValue());
+      }
+      updates.add(request);
+    }
+    var responses = redis.batch(updates).await().atMost(timeout);
+
+    var estimates = new ArrayList<Increment>(counts.size());
+    var raise = Request.cmd(Command.ZADD).arg(topKey(name)).arg("GT");
+    var i = 0;
+    for (var item : counts.keySet()) {
+      var estimate = min(responses.get(i++));
+      estimates.add(new Increment(item, estimate));
+      raise.arg(estimate).arg(item);
+    }
+    redis.batch(List.of(
+            raise,
+            Request.cmd(Command.ZREMRANGEBYRANK).arg(topKey(name)).arg(0).arg(-topK - 1)))
+        .await().atMost(timeout);
+    return estimates;
+  }
+
+  /** Returns the estimated count of {@code item}: never less than the true count. */
+  public long estimate(String name, String item) {
+    var request = Request.cmd(Command.BITFIELD).arg(key(name));
+    for (var counter : sketch.counters(item)) {
+      request.arg("GET").arg("u32").arg("#" + counter);
+    }
+    return min(redis.send(request).await().atMost(timeout));
+  }
+
+  /** Returns up to {@code k} items with the highest estimates, highest first. */
+  public List<Increment> top(String name, int k) {
+    return sortedSets.zrangeWithScores(topKey(name), 0, k - 1, new ZRangeArgs().rev()).stream()
+        .map(scored -> new Increment(scored.value(), (long) scored.score()))
+        .toList();
+  }
+
+  public void delete(String name) {
+    redis.send(Request.cmd(Command.DEL).arg(key(name)).arg(topKey(name)))
+        .await().atMost(timeout);
+  }
+
+  private static long min(Response counters) {
+    var min = Long.MAX_VALUE;
+    for (var counter : counters) {
+      min = Math.min(min, counter.toLong());
+    }
+    return min;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.hyperloglog.HyperLogLogCommands;
+import io.quarkus.redis.datasource.keys.KeyCommands;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.List;
+
+/**
+ * Approximate unique counts in Redis HyperLogLogs. Each takes at most 12 KB, however many items it
+ * has seen, and counts with a standard error of 0.81%. Small ones use a sparse encoding of a few
+ * hundred bytes.
+ */
+@ApplicationScoped
+public class IncrementUniques {
+
+  static final String KEY_PREFIX = "uniques:";
+
+  private final HyperLogLogCommands<String, String> commands;
+  private final KeyCommands<String> keyCommands;
+
+  public IncrementUniques(RedisDataSource dataSource) {
+    this.commands = dataSource.hyperloglog(String.class);
+    this.keyCommands = dataSource.key(String.class);
+  }
+
+  static String key(String name) {
+    return KEY_PREFIX + name;
+  }
+
+  /** Adds {@code items} and returns the estimated number of unique items seen. */
+  public long add(String name, List<String> items) {
+    commands.pfadd(key(name), items.toArray(String[]::new));
+    return commands.pfcount(key(name));
+  }
+
+  /**
+   * Returns the estimated number of unique items seen by any of {@code names}.
+   *
+   * @throws IllegalArgumentException if the names are on different cluster slots
+   */
+  public long count(List<String> names) {
+    return commands.pfcount(keys(names));
+  }
+
+  /**
+   * Merges {@code sources} into {@code name} and returns its new estimate.
+   *
+   * @throws IllegalArgumentException if the names are on different cluster slots
+   */
+  public long merge(String name, List<String> sources) {
+    var keys = keys(sources);
+    requireSameSlot(key(name), keys[0]);
+    commands.pfmerge(key(name), keys);
+    return commands.pfcount(key(name));
+  }
+
+  public void delete(String name) {
+    keyCommands.del(key(name));
+  }
+
+  private static String[] keys(List<String> names) {
+    var keys = names.stream().map(IncrementUniques::key).toArray(String[]::new);
+    for (var key : keys) {
+      requireSameSlot(keys[0], key);
+    }
+    return keys;
+  }
+
+  // Multi-key commands only work within one slot on a cluster; required everywhere for the same
+  // behaviour on a single node.
+  private static void requireSameSlot(String first, String other) {
+    if (RedisSlots.slot(first) != RedisSlots.slot(other)) {
+      throw new IllegalArgumentException(
+          "Names must share a hash tag, e.g. {site}today and {site}yesterday");
+    }
+  }
+}
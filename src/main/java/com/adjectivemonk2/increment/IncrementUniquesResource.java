@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
+import java.util.List;
+import java.util.Objects;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+@Path("/increment/_uniques")
+@RunOnVirtualThread
+public class IncrementUniquesResource {
+
+  private final IncrementUniques uniques;
+  private final int maxItems;
+
+  public IncrementUniquesResource(
+      IncrementUniques uniques,
+      @ConfigProperty(name = "increment.batch.max-keys") int maxItems) {
+    this.uniques = uniques;
+    this.maxItems = maxItems;
+  }
+
+  /** Returns the estimated number of unique items seen by all of {@code name}s together. */
+  @GET
+  public Increment countUnion(@QueryParam("name") List<String> names) {
+    requireItems(names);
+    try {
+      return new Increment(String.join(",", names), uniques.count(names));
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+  }
+
+  @GET
+  @Path("/{name}")
+  public Increment count(@PathParam("name") String name) {
+    return new Increment(name, uniques.count(List.of(name)));
+  }
+
+  @POST
+  @Path("/{name}")
+  public Increment add(@PathParam("name") String name, List<String> items) {
+    requireItems(items);
+    return new Increment(name, uniques.add(name, items));
+  }
+
+  @POST
+  @Path("/{name}/_merge")
+  public Increment merge(@PathParam("name") String name, List<String> sources) {
+    requireItems(sources);
+    try {
+      return new Increment(name, uniques.merge(name, sources));
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+  }
+
+  @DELETE
+  @Path("/{name}")
+  public void delete(@PathParam("name") String name) {
+    uniques.delete(name);
+  }
+
+  private void requireItems(List<String> items) {
+    if (items == null || items.isEmpty() || items.size() > maxItems) {
+      throw new BadRequestException("between 1 and " + maxItems + " items are required");
+    }
+    if (items.stream().anyMatch(Objects::isNull)) {
+      throw new BadRequestException("items must not be null");
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.Request;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/** Time-bucketed copies of increments, for sums over the last minute, hour and day. */
+@ApplicationScoped
+public class IncrementWindows {
+
+  static final String KEY_PREFIX = "window:";
+
+  /** A bucket size and the number of buckets summed for its window. */
+  enum Resolution {
+    SECOND("s", 1, 60),
+    MINUTE("m", 60, 60),
+    HOUR("h", 3_600, 24);
+
+    final String suffix;
+    final long seconds;
+    final int buckets;
+
+    Resolution(String suffix, long seconds, int buckets) {
+      this.suffix = suffix;
+      this.seconds = seconds;
+      this.buckets = buckets;
+    }
+
+    /** Keeps a bucket one bucket longer than its window, so reads never race its expiry. */
+    long ttlSeconds() {
+      return (buckets + 1) * seconds;
+    }
+  }
+
+  private final Redis redis;
+  private final boolean enabled;
+
+  public IncrementWindows(
+      Redis redis, @ConfigProperty(name = "increment.windows.enabled") boolean enabled) {
+    this.redis = redis;
+    this.enabled = enabled;
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  static long now() {
+    return System.currentTimeMillis() / 1_000;
+  }
+
+  static String bucketKey(String key, Resolution resolution, long bucket) {
+    return KEY_PREFIX + "{" + key + "}:" + resolution.suffix + ":" + bucket;
+  }
+
+  /**
+   * Adds {@code delta} to the current bucket of every resolution, in one pipelined batch. Completes
+   * right away when windows are disabled.
+   */
+  public Uni<Void> record(String key, long delta) {
+    if (!enabled) {
+      return Uni.createFrom().voidItem();
+    }
+    return redis.batch(requests(key, delta)).replaceWithVoid();
+  }
+
+  /** Returns the bucket writes {@link #record} sends, for pipelining them with other commands. */
+  List<Request> requests(String key, long delta) {
+    var now = now();
+    var requests = new ArrayList<Request>();
+    for (var resolution : Resolution.values()) {
+      var bucketKey = bucketKey(key, resolution, now / resolution.seconds);
+      requests.add(Request.cmd(Command.INCRBY).arg(bucketKey).arg(delta));
+      requests.add(Request.cmd(Command.EXPIRE).arg(bucketKey).arg(resolution.ttlSeconds()));
+    }
+    return requests;
+  }
+
+  /**
+   * Whether the buckets of {@code key} are in its slot. They are unless the key has its own hash
+   * tag, like a hot key's sub-keys, since the buckets' hash tag is the whole key.
+   */
+  static boolean inSlotOf(String key) {
+    return RedisSlots.slot(bucketKey(key, Resolution.SECOND, 0)) == RedisSlots.slot(key);
+  }
+
+  /** Returns the keys of the buckets in the window of {@code resolution} ending at {@code now}. */
+  static List<String> bucketKeys(String key, Resolution resolution, long now) {
+    var last = now / resolution.seconds;
+    var keys = new ArrayList<String>(resolution.buckets);
+    for (var bucket = last - resolution.buckets + 1; bucket <= last; bucket++) {
+      keys.add(bucketKey(key, resolution, bucket));
+    }
+    return keys;
+  }
+
+  /** Returns the keys of every bucket of {@code key} that can still exist at {@code now}. */
+  static List<String> allBucketKeys(String key, long now) {
+    var keys = new ArrayList<String>();
+    for (var resolution : Resolution.values()) {
+      var last = now / resolution.seconds;
+      // One older bucket has not expired yet, and another replica's clock may be ahead.
+      for (var bucket = last - resolution.buckets; bucket <= last + 1; bucket++) {
+        keys.add(bucketKey(key, resolution, bucket));
+      }
+    }
+    return keys;
+  }
+
+  /** Sums the window of {@code resolution} over {@code keys}, from values read at {@code now}. */
+  static long sum(List<String> keys, Resolution resolution, long now, Map<String, Long> values) {
+    long sum = 0;
+    for (var key : keys) {
+      for (var bucketKey : bucketKeys(key, resolution, now)) {
+        sum += values.getOrDefault(bucketKey, 0L);
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Write-behind buffer for increments: deltas are summed per key in a {@link LongAdder} and flushed
+ * every {@code increment.write-behind.interval} as one script call per cluster slot.
+ */
+@ApplicationScoped
+public class IncrementWriteBehind {
+
+  // Flushes a key stays idle before its accumulator is dropped from the map.
+  private static final int IDLE_FLUSHES_BEFORE_EVICTION = 1_000;
+  // Flushes a dropped accumulator is still drained, for writers that looked it up just before.
+  private static final int EVICTED_FLUSHES = 100;
+
+  // KEYS: keys of one slot, ARGV: their deltas. Returns 1 for each key incremented and 0 for each
+  // whose INCRBY failed, e.g. because the key holds something other than an integer. A script runs
+  // as a whole, so every key of a batch is known to be applied or not.
+  static final RedisScript FLUSH = RedisScript.of("write-behind-flush", """
+      local applied = {}
+      for i, key in ipairs(KEYS) do
+        local result = redis.pcall('INCRBY', key, ARGV[i])
+        if type(result) == 'table' and result.err then
+          applied[i] = 0
+        else
+          applied[i] = 1
+        end
+      end
+      return applied
+      """);
+
+  private final RedisScripts scripts;
+  private final IncrementShards shards;
+  private final IncrementWindows windows;
+  private final boolean enabled;
+  private final Duration interval;
+  private final int maxBatchSize;
+  private final Duration flushTimeout;
+  private final Logger logger;
+  private final ConcurrentHashMap<String, Accumulator> accumulators = new ConcurrentHashMap<>();
+  // Flushes run one at a time; evicted is only used while holding the lock.
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final List<Evicted> evicted = new ArrayList<>();
+
+  private volatile boolean running;
+  private Thread worker;
+
+  public IncrementWriteBehind(
+      RedisScripts scripts,
+      IncrementShards shards,
+      IncrementWindows windows,
+      @ConfigProperty(name = "increment.write-behind.enabled") boolean enabled,
+      @ConfigProperty(name = "increment.write-behind.interval") Duration interval,
+      @ConfigProperty(name = "increment.write-behind.max-batch-size") int maxBatchSize,
+      @ConfigProperty(name = "increment.write-behind.flush-timeout") Duration flushTimeout,
+      Logger logger) {
+    this.scripts = scripts;
+    this.shards = shards;
+    this.windows = windows;
+    this.enabled = enabled;
+    this.interval = interval;
+    this.maxBatchSize = maxBatchSize;
+    this.flushTimeout = flushTimeout;
+    this.logger = logger;
+  }
+
+  private static final class Accumulator {
+    final LongAdder delta = new LongAdder();
+    // Taken from delta by a flush that has not heard back from Redis yet.
+    final LongAdder inFlight = new LongAdder();
+    int idleFlushes;
+  }
+
+  private record Evicted(Accumulator accumulator, String key, int flushesLeft) {}
+
+  // target is the key itself, or the sub-key picked for it when the key is hot.
+  private record Delta(String key, String target, long amount, Accumulator accumulator) {}
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    if (!enabled) {
+      return;
+    }
+    scripts.load(List.of(FLUSH));
+    running = true;
+    worker = Thread.ofVirtual().name("increment-write-behind").start(this::run);
+  }
+
+  void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+    running = false;
+    if (worker != null) {
+      worker.interrupt();
+      worker.join(flushTimeout.multipliedBy(2));
+    }
+    if (!enabled) {
+      return;
+    }
+    flush();
+    // Deltas whose last flush failed were added back, and nothing flushes them any more.
+    var keys = 0;
+    var dropped = 0L;
+    for (var entry : accumulators.entrySet()) {
+      var amount = entry.getValue().delta.sum();
+      if (amount != 0) {
+        keys++;
+        dropped += amount;
+        logger.debugf("Dropping unflushed increment %d of %s", amount, entry.getKey());
+      }
+    }
+    if (keys > 0) {
+      logger.errorf("Dropping unflushed increments of %d keys, %d in total, on shutdown", keys,
+          dropped);
+    }
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        Thread.sleep(interval);
+      } catch (InterruptedException e) {
+        return;
+      }
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        logger.error("Flushing increments failed", e);
+      }
+    }
+  }
+
+  /** Adds {@code delta} to the key's pending delta, without touching Redis. */
+  public void add(String key, long delta) {
+    accumulators.computeIfAbsent(key, k -> new Accumulator()).delta.add(delta);
+  }
+
+  /**
+   * Returns the delta of the key that Redis has not acknowledged yet, including the part a running
+   * flush has sent.
+   */
+  public long pending(String key) {
+    var accumulator = accumulators.get(key);
+    return accumulator != null ? accumulator.delta.sum() + accumulator.inFlight.sum() : 0;
+  }
+
+  /**
+   * Drops the key's pending delta, for when its value is replaced or deleted. Waits for a running
+   * flush, which only returns once Redis answered every batch, so no delta taken before the call
+   * lands or is added back after it.
+   */
+  public void discard(String key) {
+    flushLock.lock();
+    try {
+      var accumulator = accumulators.get(key);
+      if (accumulator != null) {
+        accumulator.delta.reset();
+      }
+      for (var entry : evicted) {
+        if (entry.key().equals(key)) {
+          entry.accumulator().delta.reset();
+        }
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Sends the key's pending delta to Redis now, for operations that read and replace its value.
+   * Holds the flush lock, so no earlier delta of the key is in flight either. If the increment
+   * fails, the delta is added back and an exception is thrown.
+   */
+  public void flush(String key) {
+    if (!enabled) {
+      return;
+    }
+    flushLock.lock();
+    try {
+      var bySlot = new HashMap<Integer, List<Delta>>();
+      var accumulator = accumulators.get(key);
+      if (accumulator != null) {
+        addIfTaken(bySlot, take(key, accumulator));
+      }
+      for (var entry : evicted) {
+        if (entry.key().equals(key)) {
+          addIfTaken(bySlot, take(key, entry.accumulator()));
+        }
+      }
+      if (bySlot.isEmpty()) {
+        return;
+      }
+      if (!await(bySlot.values().stream().map(this::send).toList())) {
+        throw new IllegalStateException("Flushing the increments of " + key + " failed");
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Sends every pending delta to Redis, grouped by cluster slot, and waits for the replies. A hot
+   * key's delta goes to a random sub-key of it, like a single increment without write-behind.
+   */
+  void flush() {
+    flushLock.lock();
+    try {
+      flushLocked();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void flushLocked() {
+    var bySlot = new HashMap<Integer, List<Delta>>();
+    for (var entry : accumulators.entrySet()) {
+      var accumulator = entry.getValue();
+      var delta = take(entry.getKey(), accumulator);
+      if (delta != null) {
+        accumulator.idleFlushes = 0;
+        addToSlot(bySlot, delta);
+      } else if (++accumulator.idleFlushes >= IDLE_FLUSHES_BEFORE_EVICTION
+          && accumulators.remove(entry.getKey(), accumulator)) {
+        evicted.add(new Evicted(accumulator, entry.getKey(), EVICTED_FLUSHES));
+      }
+    }
+    drainEvicted(bySlot);
+    if (bySlot.isEmpty()) {
+      return;
+    }
+
+    var batches = new ArrayList<Uni<Boolean>>();
+    for (var deltas : bySlot.values()) {
+      for (var start = 0; start < deltas.size(); start += maxBatchSize) {
+        batches.add(send(deltas.subList(start, Math.min(start + maxBatchSize, deltas.size()))));
+      }
+    }
+    await(batches);
+  }
+
+  /**
+   * Waits for {@code batches} and returns whether all of them were applied. A batch is never
+   * cancelled, even when it is late: Redis may still apply it, and only its reply tells whether its
+   * deltas have to be added back.
+   */
+  private boolean await(List<Uni<Boolean>> batches) {
+    var done = Uni.join().all(batches).andCollectFailures().subscribeAsCompletionStage();
+    try {
+      done.get(flushTimeout.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      logger.warn("Flushing increments takes longer than " + flushTimeout + ", still waiting");
+    } catch (InterruptedException e) {
+      // Interrupted to stop sleeping between flushes; this flush still has to finish.
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // Each batch handles its own failure, so this does not happen.
+    }
+    return done.exceptionally(e -> List.of(false)).join().stream().allMatch(applied -> applied);
+  }
+
+  /**
+   * Moves the accumulator's delta in flight and returns it, or null if there is none. The delta is
+   * in flight before it leaves the accumulator, so {@link #pending} never misses it in between.
+   */
+  private Delta take(String key, Accumulator accumulator) {
+    var amount = accumulator.delta.sum();
+    if (amount == 0) {
+      return null;
+    }
+    accumulator.inFlight.add(amount);
+    accumulator.delta.add(-amount);
+    var target = shards.isHot(key) ? shards.pickShard(key) : key;
+    return new Delta(key, target, amount, accumulator);
+  }
+
+  private static void addIfTaken(Map<Integer, List<Delta>> bySlot, Delta delta) {
+    if (delta != null) {
+      addToSlot(bySlot, delta);
+    }
+  }
+
+  private static void addToSlot(Map<Integer, List<Delta>> bySlot, Delta delta) {
+    bySlot.computeIfAbsent(RedisSlots.slot(delta.target()), slot -> new ArrayList<>())
+        .add(delta);
+  }
+
+  private void drainEvicted(Map<Integer, List<Delta>> bySlot) {
+    for (var it = evicted.listIterator(); it.hasNext(); ) {
+      var entry = it.next();
+      // A writer looked it up just before it was dropped.
+      addIfTaken(bySlot, take(entry.key(), entry.accumulator()));
+      if (entry.flushesLeft() > 1) {
+        it.set(new Evicted(entry.accumulator(), entry.key(), entry.flushesLeft() - 1));
+      } else {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Sends one batch of deltas, all for keys in the same slot, with the {@link #FLUSH} script, and
+   * once Redis applied them adds them to their time buckets. Deltas that were not applied are added
+   * back for the next flush. When the reply is lost, e.g. to a dropped connection, Redis may still
+   * have applied the batch, so those deltas can be counted twice. Resolves to whether every delta
+   * was applied.
+   */
+  private Uni<Boolean> send(List<Delta> deltas) {
+    var keys = new ArrayList<String>(deltas.size());
+    var amounts = new ArrayList<String>(deltas.size());
+    for (var delta : deltas) {
+      keys.add(delta.target());
+      amounts.add(String.valueOf(delta.amount()));
+    }
+    return scripts.run(FLUSH, keys, amounts)
+        .map(response -> settle(deltas, response))
+        .onFailure().recoverWithItem(e -> {
+          logger.error("Failed to flush " + deltas.size() + " increments, retrying", e);
+          return settle(deltas, null);
+        })
+        .chain(applied -> {
+          if (applied.isEmpty() || !windows.enabled()) {
+            return Uni.createFrom().item(applied.size() == deltas.size());
+          }
+          var records = applied.stream()
+              .map(delta -> recordWindows(delta.target(), delta.amount()))
+              .toList();
+          return Uni.join().all(records)
+              .andCollectFailures()
+              .replaceWith(applied.size() == deltas.size());
+        });
+  }
+
+  /**
+   * Takes the deltas out of flight, adding back those that {@code response} does not report as
+   * applied, and returns the applied ones. A null response applied none.
+   */
+  private List<Delta> settle(List<Delta> deltas, Response response) {
+    var applied = new ArrayList<Delta>(deltas.size());
+    for (var i = 0; i < deltas.size(); i++) {
+      var delta = deltas.get(i);
+      if (response != null && response.get(i).toInteger() == 1) {
+        applied.add(delta);
+      } else {
+        if (response != null) {
+          logger.error("Failed to flush the increment of " + delta.target() + ", retrying");
+        }
+        // Added back before it leaves flight, so pending() never misses it in between.
+        delta.accumulator().delta.add(delta.amount());
+      }
+      delta.accumulator().inFlight.add(-delta.amount());
+    }
+    return applied;
+  }
+
+  private Uni<Void> recordWindows(String key, long amount) {
+    return windows.record(key, amount)
+        .onFailure().invoke(e -> logger.warn("Failed to add increments of " + key
+            + " to their time buckets", e))
+        .onFailure().recoverWithNull();
+  }
+}
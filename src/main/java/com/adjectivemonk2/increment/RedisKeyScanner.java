@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import com.adjectivemonk2.increment.model.IncrementKeyPage;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.runtime.ShutdownEvent;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/** Lists keys a page at a time with {@code SCAN}, walking every master of a cluster in turn. */
+@ApplicationScoped
+public class RedisKeyScanner {
+
+  private static final String START = "0";
+  // Bounds the work of one page when a pattern matches few keys.
+  private static final int MAX_SCANS_PER_PAGE = 16;
+
+  private final RedisDataSource dataSource;
+  private final RedisNodes redisNodes;
+  private final Vertx vertx;
+  private final Duration timeout;
+  private final Logger logger;
+  private final Map<String, String> nodeAddresses = new ConcurrentHashMap<>();
+  private final Map<String, Redis> nodeClients = new ConcurrentHashMap<>();
+
+  public RedisKeyScanner(
+      RedisDataSource dataSource,
+      RedisNodes redisNodes,
+      Vertx vertx,
+      @ConfigProperty(name = "increment.scan.timeout") Duration timeout,
+      Logger logger) {
+    this.dataSource = dataSource;
+    this.redisNodes = redisNodes;
+    this.vertx = vertx;
+    this.timeout = timeout;
+    this.logger = logger;
+  }
+
+  void onStop(@Observes ShutdownEvent event) {
+    nodeClients.values().forEach(Redis::close);
+  }
+
+  /**
+   * Returns keys matching {@code pattern} from where {@code cursor} left off, or from the start
+   * when it is null. {@code count} is passed to {@code SCAN} as a hint: a page holds at least
+   * {@code count} keys unless the listing ends or a few scans match nothing, and can hold more.
+   *
+   * @throws IllegalArgumentException if {@code cursor} was not returned by this method
+   */
+  public IncrementKeyPage scan(String cursor, String pattern, int count) {
+    var position = cursor == null ? new Position(null, START) : Position.decode(cursor);
+    var nodes = nodes();
+    var node = position.node() == null ? firstNode(nodes) : position.node();
+    var nodeCursor = position.nodeCursor();
+    if (node != null && !nodes.contains(node)) {
+      // The node left the cluster; its keys moved to nodes that are scanned anyway.
+      node = nextNode(nodes, node);
+      nodeCursor = START;
+    }
+
+    var keys = new ArrayList<String>();
+    for (var scans = 0; node != null && keys.size() < count && scans < MAX_SCANS_PER_PAGE;
+        scans++) {
+      var response = scan(node, nodeCursor, pattern, count);
+      nodeCursor = response.get(0).toString();
+      for (var key : response.get(1)) {
+        keys.add(key.toString());
+      }
+      if (START.equals(nodeCursor)) {
+        node = nextNode(nodes, node);
+      }
+    }
+    var next = node == null ? null : new Position(node, nodeCursor).encode();
+    return new IncrementKeyPage(keys, next);
+  }
+
+  private Response scan(String node, String nodeCursor, String pattern, int count) {
+    var args = new String[] {nodeCursor, "MATCH", pattern, "COUNT", String.valueOf(count)};
+    if (!redisNodes.cluster()) {
+      return dataSource.execute("SCAN", args);
+    }
+    var request = Request.cmd(Command.SCAN);
+    for (var arg : args) {
+      request.arg(arg);
+    }
+    return nodeClient(node).send(request).await().atMost(timeout);
+  }
+
+  /** Returns the IDs of the nodes to scan, sorted: the cluster masters, or the single node. */
+  private List<String> nodes() {
+    var masters = redisNodes.masters();
+    nodeAddresses.putAll(masters);
+    return new ArrayList<>(masters.keySet());
+  }
+
+  private Redis nodeClient(String node) {
+    var address = nodeAddresses.get(node);
+    return nodeClients.computeIfAbsent(address, key -> {
+      logger.info("Connecting to Redis node " + node + " at " + address + " to scan keys");
+      return Redis.createClient(vertx, redisNodes.options(address));
+    });
+  }
+
+  private static String firstNode(List<String> nodes) {
+    return nodes.isEmpty() ? null : nodes.getFirst();
+  }
+
+  /** Returns the first node after {@code node} in ID order, or null if there is none. */
+  private static String nextNode(List<String> nodes, String node) {
+    for (var candidate : nodes) {
+      if (candidate.compareTo(node) > 0) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  /** Where a listing stands: the node being scanned and its {@code SCAN} cursor. */
+  private record Position(String node, String nodeCursor) {
+
+    String encode() {
+      return Base64.getUrlEncoder().withoutPadding()
+          .encodeToString((node + ":" + nodeCursor).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Position decode(String cursor) {
+      String decoded;
+      try {
+        decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+      }
+      var separator = decoded.lastIndexOf(':');
+      if (separator <= 0 || !decoded.substring(separator + 1).matches("\\d+")) {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+      }
+      return new Position(decoded.substring(0, separator), decoded.substring(separator + 1));
+    }
+  }
+}
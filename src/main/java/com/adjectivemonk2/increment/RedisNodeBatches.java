@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.adjectivemonk2.increment;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jboss.logging.Logger;
+
+/**
+ * Sends commands for keys on many slots as one pipelined batch per cluster master, on a connection
+ * to that master, instead of one round trip per slot through the cluster client.
+ */
+@ApplicationScoped
+public class RedisNodeBatches {
+
+  private final Redis redis;
+  private final RedisNodes redisNodes;
+  private final Vertx vertx;
+  private final Logger logger;
+  // One client per master address, each pooling its connections to that master.
+  private final ConcurrentHashMap<String, Redis> clients = new ConcurrentHashMap<>();
+
+  // Null until loaded, and again after a batch failed, e.g. because a slot moved.
+  private volatile String[] slotMasters;
+
+  public RedisNodeBatches(Redis redis, RedisNodes redisNodes, Vertx vertx, Logger logger) {
+    this.redis = redis;
+    this.redisNodes = redisNodes;
+    this.vertx = vertx;
+    this.logger = logger;
+  }
+
+  void onStop(@Observes ShutdownEvent event) {
+    clients.values().forEach(Redis::close);
+    clients.clear();
+  }
+
+  /**
+   * Sends {@code requests}, each of which only touches keys in the slot of the key at the same
+   * position in {@code keys}, and returns their responses in order. The requests of each master
+   * go out as one batch, so they share a single round trip. If a batch fails, for example because
+   * its slots moved to another master, the slot map is reloaded and the requests of that batch are
+   * sent again one by one through the cluster client, which follows redirects.
+   */
+  public Uni<List<Response>> send(List<Request> requests, List<String> keys) {
+    if (!redisNodes.cluster()) {
+      return redis.batch(requests);
+    }
+    var masters = slotMasters();
+    var byMaster = new LinkedHashMap<String, List<Integer>>();
+    for (var i = 0; i < requests.size(); i++) {
+      var master = masters[RedisSlots.slot(keys.get(i))];
+      byMaster.computeIfAbsent(master, address -> new ArrayList<>()).add(i);
+    }
+    var responses = new Response[requests.size()];
+    var batches = new ArrayList<Uni<Void>>(byMaster.size());
+    for (var entry : byMaster.entrySet()) {
+      var indexes = entry.getValue();
+      var batch = indexes.stream().map(requests::get).toList();
+      var sent = entry.getKey() != null
+          ? client(entry.getKey()).batch(batch)
+          : Uni.createFrom().<List<Response>>failure(
+              new IllegalStateException("No master serves the slot"));
+      batches.add(sent
+          .onFailure().recoverWithUni(e -> {
+            logger.debug("Batch for Redis node " + entry.getKey()
+                + " failed, reloading the slot map and resending through the cluster client", e);
+            slotMasters = null;
+            return Uni.join().all(batch.stream().map(redis::send).toList()).andFailFast();
+          })
+          .invoke(batchResponses -> {
+            for (var j = 0; j < indexes.size(); j++) {
+              responses[indexes.get(j)] = batchResponses.get(j);
+            }
+          })
+          .replaceWithVoid());
+    }
+    return Uni.join().all(batches).andFailFast().map(done -> Arrays.asList(responses));
+  }
+
+  private String[] slotMasters() {
+    var masters = slotMasters;
+    if (masters == null) {
+      masters = redisNodes.slotMasters();
+      var current = new HashSet<>(Arrays.asList(masters));
+      // Batches still running on a node that left fail over to the cluster client.
+      clients.entrySet().removeIf(entry -> {
+        if (current.contains(entry.getKey())) {
+          return false;
+        }
+        entry.getValue().close();
+        return true;
+      });
+      slotMasters = masters;
+    }
+    return masters;
+  }
+
+  private Redis client(String address) {
+    return clients.computeIfAbsent(address,
+        node -> Redis.createClient(vertx, redisNodes.options(node)));
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.vertx.redis.client.RedisOptions;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * The nodes of the configured Redis, for commands that act on one node only: the masters of a
+ * cluster, or the single standalone node.
+ */
+@ApplicationScoped
+public class RedisNodes {
+
+  static final String STANDALONE = "standalone";
+
+  private final RedisDataSource dataSource;
+  private final boolean cluster;
+  private final URI seedUri;
+
+  public RedisNodes(
+      RedisDataSource dataSource,
+      @ConfigProperty(name = "quarkus.redis.client-type") Optional<String> clientType,
+      @ConfigProperty(name = "quarkus.redis.hosts") Optional<List<URI>> hosts) {
+    this.dataSource = dataSource;
+    this.cluster = clientType.map("cluster"::equalsIgnoreCase).orElse(false);
+    this.seedUri = hosts.filter(list -> !list.isEmpty())
+        .map(List::getFirst)
+        .orElse(URI.create("redis://localhost:6379"));
+  }
+
+  public boolean cluster() {
+    return cluster;
+  }
+
+  /**
+   * Returns the addresses of the masters that are up, by node ID; for a standalone Redis, the
+   * configured host as {@value #STANDALONE}.
+   */
+  public SortedMap<String, String> masters() {
+    var masters = new TreeMap<String, String>();
+    if (!cluster) {
+      masters.put(STANDALONE, seedUri.getHost() + ":" + seedUri.getPort());
+      return masters;
+    }
+    for (var line : dataSource.execute("CLUSTER", "NODES").toString().split("\n")) {
+      // <id> <ip:port@cport[,hostname]> <flags> ...
+      var fields = line.trim().split(" ");
+      if (fields.length < 3) {
+        continue;
+      }
+      var flags = List.of(fields[2].split(","));
+      if (flags.contains("master") && !flags.contains("fail") && !flags.contains("noaddr")) {
+        masters.put(fields[0], fields[1].split("[@,]")[0]);
+      }
+    }
+    return masters;
+  }
+
+  /**
+   * Returns the address of the master that serves each slot, indexed by slot, as the cluster
+   * reported it with {@code CLUSTER SLOTS}; null for slots that no master serves.
+   */
+  public String[] slotMasters() {
+    var masters = new String[RedisSlots.SLOTS];
+    // Each range is [start, end, [ip, port, id, ...], replicas...].
+    for (var range : dataSource.execute("CLUSTER", "SLOTS")) {
+      var master = range.get(2);
+      var address = master.get(0).toString() + ":" + master.get(1).toInteger();
+      for (var slot = range.get(0).toInteger(); slot <= range.get(1).toInteger(); slot++) {
+        masters[slot] = address;
+      }
+    }
+    return masters;
+  }
+
+  /** Returns client options for one node, with the scheme and credentials of the seed host. */
+  public RedisOptions options(String address) {
+    if (!cluster) {
+      return new RedisOptions().setConnectionString(seedUri.toString());
+    }
+    var separator = address.lastIndexOf(':');
+    try {
+      var uri = new URI(seedUri.getScheme(), seedUri.getUserInfo(),
+          address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)),
+          null, null, null);
+      return new RedisOptions().setConnectionString(uri.toString());
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException("Invalid Redis node address " + address, e);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Runs Lua scripts with {@code EVALSHA}, falling back to {@code EVAL} when a node does not have the
+ * script.
+ */
+@ApplicationScoped
+public class RedisScripts {
+
+  private final Redis redis;
+  private final RedisNodes redisNodes;
+  private final Vertx vertx;
+  private final Duration timeout;
+  private final Logger logger;
+
+  public RedisScripts(
+      Redis redis,
+      RedisNodes redisNodes,
+      Vertx vertx,
+      @ConfigProperty(name = "increment.scripts.timeout") Duration timeout,
+      Logger logger) {
+    this.redis = redis;
+    this.redisNodes = redisNodes;
+    this.vertx = vertx;
+    this.timeout = timeout;
+    this.logger = logger;
+  }
+
+  /**
+   * Loads {@code scripts} into the script cache of every master. Failures are logged; calls then
+   * load a script on first use.
+   */
+  public void load(List<RedisScript> scripts) {
+    if (!redisNodes.cluster()) {
+      scripts.forEach(script -> load(redis, script, "Redis"));
+      return;
+    }
+    for (var master : redisNodes.masters().entrySet()) {
+      var client = Redis.createClient(vertx, redisNodes.options(master.getValue()));
+      try {
+        scripts.forEach(script -> load(client, script, "Redis node " + master.getKey()));
+      } finally {
+        client.close();
+      }
+    }
+  }
+
+  private void load(Redis client, RedisScript script, String target) {
+    try {
+      var sha = client.send(Request.cmd(Command.SCRIPT).arg("LOAD").arg(script.source()))
+          .await().atMost(timeout).toString();
+      if (!sha.equals(script.sha())) {
+        throw new IllegalStateException("Redis returned SHA " + sha + " for " + script.name());
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Loading script " + script.name() + " into " + target + " failed", e);
+    }
+  }
+
+  /** Runs {@code script} on the node that owns {@code keys}, which must share a slot. */
+  public Uni<Response> run(RedisScript script, List<String> keys, List<String> args) {
+    return redis.send(request(Command.EVALSHA, script.sha(), keys, args))
+        .onFailure(RedisScripts::isNoScript)
+        .recoverWithUni(() -> redis.send(request(Command.EVAL, script.source(), keys, args)));
+  }
+
+  private static Request request(Command command, String script, List<String> keys,
+      List<String> args) {
+    var request = Request.cmd(command).arg(script).arg(keys.size());
+    keys.forEach(request::arg);
+    args.forEach(request::arg);
+    return request;
+  }
+
+  private static boolean isNoScript(Throwable e) {
+    return e.getMessage() != null && e.getMessage().startsWith("NOSCRIPT");
+  }
+}
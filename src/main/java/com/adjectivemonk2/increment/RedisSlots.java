@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/** Redis Cluster hash slots, computed the way the cluster does. */
+final class RedisSlots {
+
+  static final int SLOTS = 16384;
+
+  private RedisSlots() {}
+
+  /**
+   * Returns the hash slot of {@code key}: CRC16 (XMODEM) of the key modulo {@value #SLOTS}, or of
+   * its hash tag only, which is the part between the first <code>&#123;</code> and the next <code>
+   * &#125;</code> when that part is not empty.
+   */
+  static int slot(String key) {
+    var bytes = key.getBytes(StandardCharsets.UTF_8);
+    var start = 0;
+    var end = bytes.length;
+    for (var i = 0; i < bytes.length; i++) {
+      if (bytes[i] == '{') {
+        for (var j = i + 1; j < bytes.length; j++) {
+          if (bytes[j] == '}') {
+            if (j > i + 1) {
+              start = i + 1;
+              end = j;
+            }
+            break;
+          }
+        }
+        break;
+      }
+    }
+    return crc16(bytes, start, end) % SLOTS;
+  }
+
+  /** Groups {@code items} by the slot of their key, keeping their order within each slot. */
+  static <T> Map<Integer, List<T>> groupBySlot(Collection<T> items, Function<T, String> key) {
+    var bySlot = new LinkedHashMap<Integer, List<T>>();
+    for (var item : items) {
+      bySlot.computeIfAbsent(slot(key.apply(item)), slot -> new ArrayList<>()).add(item);
+    }
+    return bySlot;
+  }
+
+  private static int crc16(byte[] bytes, int start, int end) {
+    var crc = 0;
+    for (var i = start; i < end; i++) {
+      crc ^= (bytes[i] & 0xff) << 8;
+      for (var bit = 0; bit < 8; bit++) {
+        crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+      }
+      crc &= 0xffff;
+    }
+    return crc;
+  }
+}
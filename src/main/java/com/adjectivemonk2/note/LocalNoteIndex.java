@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.adjectivemonk2.note;
+
+import org.bson.BsonDocument;
+
+/**
+ * A search index that lives on this replica and keeps its own position in the change stream of
+ * the notes collection, next to the writes it applied.
+ */
+interface LocalNoteIndex {
+
+  /** Returns the change stream position of the index, or null to start from now. */
+  BsonDocument resumeToken();
+
+  /** Records the change stream position of the index after its changes were applied. */
+  void saveResumeToken(BsonDocument resumeToken);
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteDocument;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Typed;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherLifetimeManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.bson.BsonDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Embedded search backend that keeps a Lucene index in {@code notes.search.lucene.directory}, for
+ * deployments without an OpenSearch cluster. Each replica has its own index and follows the change
+ * stream for it.
+ */
+@ApplicationScoped
+@Typed(LuceneNoteSearchBackend.class)
+public class LuceneNoteSearchBackend implements NoteSearchBackend, LocalNoteIndex {
+
+  static final String CURSOR_PREFIX = "lucene:";
+
+  private static final String ID = "id";
+  private static final String TITLE = "title";
+  private static final String CONTENT = "content";
+  private static final String TITLE_PREFIX = "title_prefix";
+  private static final String REBUILT = "rebuilt";
+  private static final String RESUME_TOKEN = "resumeToken";
+  private static final Sort SORT =
+      new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.STRING));
+  private static final Sort SUGGEST_SORT = new Sort(new SortField(TITLE_PREFIX, SortField.Type.STRING));
+  // Same as the default max_input_length of an OpenSearch completion field
+  private static final int MAX_PREFIX_LENGTH = 50;
+  // Keeps long queries below IndexSearcher's default clause limit of 1024
+  private static final int MAX_QUERY_TERMS = 500;
+
+  private final NoteRepository noteRepository;
+  private final NoteSearchCache searchCache;
+  private final NoteSearchBackendType backendType;
+  private final NoteIndexingMode indexingMode;
+  private final Path path;
+  private final int rebuildBatchSize;
+  private final Duration rebuildRetryDelay;
+  private final Duration searcherKeepAlive;
+  private final Field.Store storeSource;
+  private final Logger logger;
+
+  private final Analyzer analyzer = new StandardAnalyzer();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private volatile boolean closing;
+  private volatile boolean rebuilt;
+  private volatile BsonDocument resumeToken;
+  private Directory directory;
+  private IndexWriter writer;
+  private SearcherManager searcherManager;
+  private SearcherLifetimeManager searchers;
+
+  public LuceneNoteSearchBackend(
+      NoteRepository noteRepository,
+      NoteSearchCache searchCache,
+      @ConfigProperty(name = "notes.search.backend") NoteSearchBackendType backendType,
+      @ConfigProperty(name = "notes.indexing.mode") NoteIndexingMode indexingMode,
+      @ConfigProperty(name = "notes.search.lucene.directory") Path path,
+      @ConfigProperty(name = "notes.search.lucene.rebuild-batch-size") int rebuildBatchSize,
+      @ConfigProperty(name = "notes.search.lucene.rebuild-retry-delay") Duration rebuildRetryDelay,
+      @ConfigProperty(name = "notes.search.pit-keep-alive") Duration searcherKeepAlive,
+      @ConfigProperty(name = "notes.search.store-source") boolean storeSource,
+      Logger logger) {
+    this.noteRepository = noteRepository;
+    this.searchCache = searchCache;
+    this.backendType = backendType;
+    this.indexingMode = indexingMode;
+    this.path = path;
+    this.rebuildBatchSize = rebuildBatchSize;
+    this.rebuildRetryDelay = rebuildRetryDelay;
+    this.searcherKeepAlive = searcherKeepAlive;
+    this.storeSource = storeSource ? Field.Store.YES : Field.Store.NO;
+    this.logger = logger;
+  }
+
+  void onStart(@Observes StartupEvent event) throws IOException {
+    if (backendType != NoteSearchBackendType.LUCENE) {
+      return;
+    }
+    if (indexingMode != NoteIndexingMode.CHANGE_STREAM) {
+      throw new IllegalStateException("notes.search.backend=lucene requires"
+          + " notes.indexing.mode=change-stream, since every replica keeps its own index");
+    }
+    if (open()) {
+      Thread.ofVirtual().name("note-lucene-rebuild").start(this::rebuild);
+    }
+  }
+
+  void onStop(@Observes ShutdownEvent event) throws IOException {
+    close();
+  }
+
+  /** Opens the index and returns whether it has to be rebuilt from Mongo. */
+  boolean open() throws IOException {
+    Files.createDirectories(path);
+    directory = new MMapDirectory(path);
+    if (DirectoryReader.indexExists(directory)) {
+      var userData = SegmentInfos.readLatestCommit(directory).getUserData();
+      rebuilt = "true".equals(userData.get(REBUILT));
+      var token = userData.get(RESUME_TOKEN);
+      resumeToken = token != null ? BsonDocument.parse(token) : null;
+    }
+    writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+    searcherManager = new SearcherManager(writer, null);
+    searchers = new SearcherLifetimeManager();
+    logger.info("Opened Lucene notes index in " + path);
+    return !rebuilt;
+  }
+
+  void close() throws IOException {
+    if (writer == null) {
+      return;
+    }
+    closing = true;
+    writeLock.lock();
+    try {
+      searchers.close();
+      searcherManager.close();
+      // Commits pending changes with the resume token; an unfinished rebuild stays unmarked.
+      writer.close();
+      directory.close();
+      writer = null;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Replaces the whole index with the notes in Mongo, retrying until it succeeds. The commit that
+   * completes it is marked, so an interrupted rebuild is started over on the next start. Index
+   * writes wait for the write lock it holds, so none are lost to the rebuild.
+   */
+  void rebuild() {
+    while (!closing) {
+      writeLock.lock();
+      try {
+        logger.info("Rebuilding the Lucene notes index from Mongo");
+        var indexed = new AtomicLong();
+        writer.deleteAll();
+        noteRepository.forEach(rebuildBatchSize, note -> {
+          if (closing) {
+            throw new CancellationException("Shutting down");
+          }
+          try {
+            writer.addDocument(document(note));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          indexed.incrementAndGet();
+        });
+        rebuilt = true;
+        writer.setLiveCommitData(commitData());
+        writer.commit();
+        logger.info("Rebuilt the Lucene notes index with " + indexed.get() + " notes");
+        break;
+      } catch (IOException | RuntimeException e) {
+        if (closing) {
+          return;
+        }
+        logger.error("Rebuilding the Lucene notes index failed, retrying in " + rebuildRetryDelay,
+            e);
+      } finally {
+        writeLock.unlock();
+      }
+      try {
+        Thread.sleep(rebuildRetryDelay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    try {
+      refresh();
+    } catch (IOException e) {
+      logger.error("Failed to reopen the Lucene notes index after the rebuild", e);
+    }
+  }
+
+  private Iterable<Map.Entry<String, String>> commitData() {
+    var token = resumeToken;
+    return token == null
+        ? Map.of(REBUILT, String.valueOf(rebuilt)).entrySet()
+        : Map.of(REBUILT, String.valueOf(rebuilt), RESUME_TOKEN, token.toJson()).entrySet();
+  }
+
+  /** Commits the writes since the last commit, along with the change stream position. */
+  @Scheduled(
+      every = "${notes.search.lucene.commit-interval}",
+      concurrentExecution = ConcurrentExecution.SKIP)
+  void commit() throws IOException {
+    // A rebuild holds the lock for a long time and commits itself; skip this round instead.
+    if (!writeLock.tryLock()) {
+      return;
+    }
+    try {
+      if (writer != null && writer.hasUncommittedChanges()) {
+        writer.commit();
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public LocalNoteIndex localIndex() {
+    return this;
+  }
+
+  @Override
+  public BsonDocument resumeToken() {
+    return resumeToken;
+  }
+
+  /** Records the stream position of the writes so far; the next commit persists it. */
+  @Override
+  public void saveResumeToken(BsonDocument resumeToken) {
+    writeLock.lock();
+    try {
+      this.resumeToken = resumeToken;
+      if (writer != null) {
+        writer.setLiveCommitData(commitData());
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private Document document(Note note) {
+    var id = note.id().toHexString();
+    var title = Objects.requireNonNullElse(note.title(), "");
+    var prefix = title.toLowerCase(Locale.ROOT);
+    if (prefix.length() > MAX_PREFIX_LENGTH) {
+      prefix = prefix.substring(0, MAX_PREFIX_LENGTH);
+    }
+    var document = new Document();
+    document.add(new StringField(ID, id, Field.Store.YES));
+    document.add(new SortedDocValuesField(ID, new BytesRef(id)));
+    // Titles are always stored, since suggestions return them.
+    document.add(new TextField(TITLE, title, Field.Store.YES));
+    document.add(new TextField(CONTENT, Objects.requireNonNullElse(note.content(), ""),
+        storeSource));
+    document.add(new StringField(TITLE_PREFIX, prefix, Field.Store.NO));
+    document.add(new SortedDocValuesField(TITLE_PREFIX, new BytesRef(prefix)));
+    return document;
+  }
+
+  /** Runs {@code writes} and reopens the searcher so they are visible at once. */
+  private void write(IndexWrites writes) throws IOException {
+    writeLock.lock();
+    try {
+      writes.apply(writer);
+    } finally {
+      writeLock.unlock();
+    }
+    refresh();
+  }
+
+  @FunctionalInterface
+  private interface IndexWrites {
+    void apply(IndexWriter writer) throws IOException;
+  }
+
+  private void refresh() throws IOException {
+    searcherManager.maybeRefreshBlocking();
+    searchCache.invalidate();
+  }
+
+  /**
+   * Applies {@code changes} in order. Unlike OpenSearch the versions are not compared: the index
+   * has a single writer that receives changes in change stream order, so none can be stale.
+   */
+  @Override
+  public Set<String> apply(List<NoteChange> changes) throws Exception {
+    write(writer -> {
+      for (var change : changes) {
+        if (change.note() != null) {
+          writer.updateDocument(new Term(ID, change.id()), document(change.note()));
+        } else {
+          writer.deleteDocuments(new Term(ID, change.id()));
+        }
+      }
+    });
+    logger.info("Applied " + changes.size() + " note changes to Lucene");
+    return Set.of();
+  }
+
+  @Override
+  public NoteSearchResult search(String q, int size, NoteSearchCursor after) throws Exception {
+    var query = query(q);
+    searchers.prune(new SearcherLifetimeManager.PruneByAge(searcherKeepAlive.toSeconds()));
+    var version = after == null ? -1 : searcherVersion(after);
+    var searcher = version < 0 ? null : searchers.acquire(version);
+    if (searcher == null) {
+      // A first page, or a cursor whose searcher was pruned: continue in the current one.
+      var current = searcherManager.acquire();
+      try {
+        version = searchers.record(current);
+      } finally {
+        searcherManager.release(current);
+      }
+      searcher = searchers.acquire(version);
+    }
+    try {
+      return search(searcher, version, query, size, after);
+    } finally {
+      searchers.release(searcher);
+    }
+  }
+
+  private static long searcherVersion(NoteSearchCursor cursor) {
+    if (cursor.pitId() == null || !cursor.pitId().startsWith(CURSOR_PREFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(cursor.pitId().substring(CURSOR_PREFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private NoteSearchResult search(
+      IndexSearcher searcher, long version, Query query, int size, NoteSearchCursor after)
+      throws IOException {
+    var maxDoc = searcher.getIndexReader().maxDoc();
+    // Sorting on the unique ID breaks every tie, so the doc only has to rule out the cursor hit.
+    var top = after == null
+        ? searcher.search(query, size + 1, SORT, true)
+        : searcher.searchAfter(
+            new FieldDoc(Math.max(0, maxDoc - 1), Float.NaN,
+                new Object[] {(float) after.score(), new BytesRef(after.id())}),
+            query, size + 1, SORT, true);
+
+    var hits = top.scoreDocs;
+    var hasMore = hits.length > size;
+    var count = Math.min(size, hits.length);
+    var storedFields = searcher.storedFields();
+    var documents = new ArrayList<NoteDocument>(count);
+    for (var i = 0; i < count; i++) {
+      var document = storedFields.document(hits[i].doc);
+      documents.add(new NoteDocument(document.get(ID), document.get(TITLE), document.get(CONTENT)));
+    }
+    if (!hasMore) {
+      return new NoteSearchResult(documents, null, false);
+    }
+    var last = (FieldDoc) hits[count - 1];
+    var next = new NoteSearchCursor(CURSOR_PREFIX + version, (Float) last.fields[0],
+        ((BytesRef) last.fields[1]).utf8ToString());
+    return new NoteSearchResult(documents, next, false);
+  }
+
+  /** Matches notes whose title or content contains any term of {@code q}, like a multi_match. */
+  private Query query(String q) throws IOException {
+    var builder = new BooleanQuery.Builder();
+    var terms = 0;
+    try (var stream = analyzer.tokenStream(CONTENT, q == null ? "" : q)) {
+      var term = stream.addAttribute(CharTermAttribute.class);
+      stream.reset();
+      while (stream.incrementToken() && terms < MAX_QUERY_TERMS) {
+        builder.add(new TermQuery(new Term(TITLE, term.toString())), BooleanClause.Occur.SHOULD);
+        builder.add(new TermQuery(new Term(CONTENT, term.toString())), BooleanClause.Occur.SHOULD);
+        terms++;
+      }
+      stream.end();
+    }
+    return terms == 0 ? new MatchNoDocsQuery() : builder.build();
+  }
+
+  /**
+   * Returns titles in alphabetical order. Duplicates are dropped after the lookup, so fewer than
+   * {@code size} titles can come back when many notes share a title.
+   */
+  @Override
+  public List<String> suggest(String prefix, int size) throws Exception {
+    var normalized = prefix.toLowerCase(Locale.ROOT);
+    if (normalized.length() > MAX_PREFIX_LENGTH) {
+      return List.of();
+    }
+    var searcher = searcherManager.acquire();
+    try {
+      var top = searcher.search(new PrefixQuery(new Term(TITLE_PREFIX, normalized)), size * 4,
+          SUGGEST_SORT);
+      var storedFields = searcher.storedFields();
+      var titles = new LinkedHashSet<String>();
+      for (var hit : top.scoreDocs) {
+        titles.add(storedFields.document(hit.doc).get(TITLE));
+        if (titles.size() == size) {
+          break;
+        }
+      }
+      return List.copyOf(titles);
+    } finally {
+      searcherManager.release(searcher);
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteDocument;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.redis.datasource.value.SetArgs;
+import io.quarkus.redis.datasource.value.ValueCommands;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/** Read-through cache for notes by ID, with an in-process tier in front of a shared Redis tier. */
+@ApplicationScoped
+public class NoteCache {
+
+  static final String KEY_PREFIX = "note:";
+  static final String INVALIDATION_CHANNEL = "notes:cache-invalidations";
+  private static final NoteDocument TOMBSTONE = new NoteDocument("tombstone", null, null);
+
+  private final boolean enabled;
+  private final Cache<String, Object> local;
+  private final ValueCommands<String, NoteDocument> remote;
+  private final PubSubCommands<String> pubSub;
+  private final Duration remoteTtl;
+  private final Duration tombstoneTtl;
+  private final Counter localHits;
+  private final Counter localMisses;
+  private final Counter remoteHits;
+  private final Counter remoteMisses;
+  private final Logger logger;
+
+  private PubSubCommands.RedisSubscriber subscriber;
+
+  public NoteCache(
+      RedisDataSource dataSource,
+      MeterRegistry registry,
+      @ConfigProperty(name = "notes.cache.enabled") boolean enabled,
+      @ConfigProperty(name = "notes.cache.local-max-size") long localMaxSize,
+      @ConfigProperty(name = "notes.cache.local-ttl") Duration localTtl,
+      @ConfigProperty(name = "notes.cache.remote-ttl") Duration remoteTtl,
+      @ConfigProperty(name = "notes.cache.tombstone-ttl") Duration tombstoneTtl,
+      Logger logger) {
+    this.enabled = enabled;
+    this.local = Caffeine.newBuilder()
+        .maximumSize(localMaxSize)
+        .expireAfterWrite(localTtl)
+        .build();
+    this.remote = dataSource.value(String.class, NoteDocument.class);
+    this.pubSub = dataSource.pubsub(String.class);
+    this.remoteTtl = remoteTtl;
+    this.tombstoneTtl = tombstoneTtl;
+    this.localHits = requests(registry, "l1", "hit");
+    this.localMisses = requests(registry, "l1", "miss");
+    this.remoteHits = requests(registry, "l2", "hit");
+    this.remoteMisses = requests(registry, "l2", "miss");
+    this.logger = logger;
+  }
+
+  private static Counter requests(MeterRegistry registry, String tier, String result) {
+    return Counter.builder("notes.cache.requests")
+        .description("Note cache lookups by tier and result")
+        .tag("tier", tier)
+        .tag("result", result)
+        .register(registry);
+  }
+
+  /**
+   * A load in progress in L1; replaced by the note once it is read, unless evicted meanwhile.
+   * Compared by identity, so concurrent loads of a note do not complete each other.
+   */
+  private static final class Loading {}
+
+  void onStart(@Observes StartupEvent event) {
+    if (enabled) {
+      subscriber = pubSub.subscribe(INVALIDATION_CHANNEL, local::invalidate);
+    }
+  }
+
+  void onStop(@Observes ShutdownEvent event) {
+    if (subscriber != null) {
+      subscriber.unsubscribe();
+    }
+  }
+
+  /** Returns the note from L1, then L2, and only then from {@code loader}, filling both tiers. */
+  public Note get(String id, Function<String, Note> loader) {
+    if (!enabled) {
+      return loader.apply(id);
+    }
+    if (local.getIfPresent(id) instanceof Note note) {
+      localHits.increment();
+      return note;
+    }
+    localMisses.increment();
+    var loading = startLoad(id);
+
+    try {
+      var document = remote.get(KEY_PREFIX + id);
+      if (document != null && !isTombstone(document)) {
+        remoteHits.increment();
+        var note = toNote(document);
+        fillLocal(id, loading, note);
+        return note;
+      }
+      remoteMisses.increment();
+    } catch (RuntimeException e) {
+      logger.warn("Failed to read note " + id + " from Redis, falling back to Mongo", e);
+    }
+
+    var note = loader.apply(id);
+    if (note != null) {
+      fill(id, loading, note);
+    } else {
+      local.asMap().remove(id, loading);
+    }
+    return note;
+  }
+
+  /**
+   * Batch form of {@link #get}: IDs missing from L1 are read from L2 with one {@code MGET}, and
+   * those missing from both with one call to {@code loader}. Returns the notes found by ID; IDs
+   * that {@code loader} does not find are left out.
+   */
+  public Map<String, Note> getAll(
+      Collection<String> ids, Function<Collection<String>, Map<String, Note>> loader) {
+    if (!enabled) {
+      return loader.apply(ids);
+    }
+    var notes = new HashMap<String, Note>();
+    var missing = new ArrayList<String>();
+    var loadings = new HashMap<String, Loading>();
+    for (var id : ids) {
+      if (local.getIfPresent(id) instanceof Note note) {
+        localHits.increment();
+        notes.put(id, note);
+      } else {
+        localMisses.increment();
+        missing.add(id);
+        loadings.put(id, startLoad(id));
+      }
+    }
+    if (missing.isEmpty()) {
+      return notes;
+    }
+
+    try {
+      var keys = missing.stream().map(id -> KEY_PREFIX + id).toArray(String[]::new);
+      var documents = remote.mget(keys);
+      var stillMissing = new ArrayList<String>();
+      for (var id : missing) {
+        var document = documents.get(KEY_PREFIX + id);
+        if (document != null && !isTombstone(document)) {
+          remoteHits.increment();
+          var note = toNote(document);
+          fillLocal(id, loadings.get(id), note);
+          notes.put(id, note);
+        } else {
+          remoteMisses.increment();
+          stillMissing.add(id);
+        }
+      }
+      missing = stillMissing;
+    } catch (RuntimeException e) {
+      logger.warn("Failed to read " + missing.size() + " notes from Redis, falling back to Mongo",
+          e);
+    }
+
+    if (!missing.isEmpty()) {
+      var loaded = loader.apply(missing);
+      for (var id : missing) {
+        var note = loaded.get(id);
+        if (note != null) {
+          fill(id, loadings.get(id), note);
+        } else {
+          local.asMap().remove(id, loadings.get(id));
+        }
+      }
+      notes.putAll(loaded);
+    }
+    return notes;
+  }
+
+  private static Note toNote(NoteDocument document) {
+    return new Note(new ObjectId(document.id()), document.title(), document.content());
+  }
+
+  private static boolean isTombstone(NoteDocument document) {
+    return TOMBSTONE.id().equals(document.id());
+  }
+
+  /** Marks {@code id} as being loaded; pass the returned token to {@link #fill}. */
+  private Loading startLoad(String id) {
+    var loading = new Loading();
+    local.put(id, loading);
+    return loading;
+  }
+
+  /** Caches the note in L1 unless it was evicted since {@link #startLoad}. */
+  private void fillLocal(String id, Loading loading, Note note) {
+    local.asMap().replace(id, loading, note);
+  }
+
+  /**
+   * Puts a note loaded from Mongo into both tiers. L2 is only filled if the key is absent, so a
+   * tombstone left by a write during the load keeps the old note out.
+   */
+  private void fill(String id, Loading loading, Note note) {
+    fillLocal(id, loading, note);
+    try {
+      remote.set(KEY_PREFIX + id, NoteDocument.fromNote(note),
+          new SetArgs().nx().ex(remoteTtl));
+    } catch (RuntimeException e) {
+      logger.warn("Failed to cache note " + id + " in Redis", e);
+    }
+  }
+
+  void onNotesChanged(@Observes NotesChanged event) {
+    event.updated().forEach(note -> invalidate(note.id().toHexString()));
+    event.deletedIds().forEach(this::invalidate);
+  }
+
+  /**
+   * Drops the note from both tiers and tells the other replicas to drop their L1 copy.
+   *
+   * <p>A load from Mongo can read a note just before a write and finish after this eviction. To
+   * keep it from caching the old note, L2 gets a short-lived tombstone that loads cannot
+   * overwrite, and removing the L1 entry discards the load's {@link Loading} token, so the load
+   * does not fill L1 either.
+   */
+  public void invalidate(String id) {
+    if (!enabled) {
+      return;
+    }
+    local.invalidate(id);
+    try {
+      remote.set(KEY_PREFIX + id, TOMBSTONE, new SetArgs().ex(tombstoneTtl));
+      pubSub.publish(INVALIDATION_CHANNEL, id);
+    } catch (RuntimeException e) {
+      logger.error("Failed to invalidate note " + id + " in Redis", e);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.Note;
+
+/**
+ * A versioned change to apply to the search index - {@code note} is null when the note was
+ * deleted. Versions only increase, so an older change can never overwrite a newer one.
+ */
+record NoteChange(String id, Note note, long version) {}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.Note;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/** Keeps the search index in sync by following the change stream of the notes collection. */
+@ApplicationScoped
+public class NoteChangeStreamIndexer {
+
+  private static final String STATE_ID = "notes-change-stream";
+  private static final Duration IDLE_CHECKPOINT_INTERVAL = Duration.ofMinutes(1);
+
+  private final MongoClient mongoClient;
+  private final String databaseName;
+  private final NoteSearchBackend searchBackend;
+  private final NoteIndexingMode indexingMode;
+  private final int batchSize;
+  private final Duration maxAwaitTime;
+  private final Duration retryDelay;
+  private final int maxAttempts;
+  private final Duration lease;
+  private final Logger logger;
+  private final String owner = UUID.randomUUID().toString();
+
+  private volatile boolean running;
+  private Thread worker;
+
+  public NoteChangeStreamIndexer(
+      MongoClient mongoClient,
+      @ConfigProperty(name = "quarkus.mongodb.database") String databaseName,
+      NoteSearchBackend searchBackend,
+      @ConfigProperty(name = "notes.indexing.mode") NoteIndexingMode indexingMode,
+      @ConfigProperty(name = "notes.change-stream.batch-size") int batchSize,
+      @ConfigProperty(name = "notes.change-stream.max-await-time") Duration maxAwaitTime,
+      @ConfigProperty(name = "notes.change-stream.retry-delay") Duration retryDelay,
+      @ConfigProperty(name = "notes.change-stream.max-attempts") int maxAttempts,
+      @ConfigProperty(name = "notes.change-stream.lease") Duration lease,
+      Logger logger) {
+    this.mongoClient = mongoClient;
+    this.databaseName = databaseName;
+    this.searchBackend = searchBackend;
+    this.indexingMode = indexingMode;
+    this.batchSize = batchSize;
+    this.maxAwaitTime = maxAwaitTime;
+    this.retryDelay = retryDelay;
+    this.maxAttempts = maxAttempts;
+    this.lease = lease;
+    this.logger = logger;
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    if (indexingMode != NoteIndexingMode.CHANGE_STREAM) {
+      return;
+    }
+    if (!isLocal()) {
+      recordStartTime();
+    }
+    running = true;
+    worker = Thread.ofVirtual().name("note-change-stream-indexer").start(this::run);
+  }
+
+  void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+    if (worker == null) {
+      return;
+    }
+    running = false;
+    // The cursor wakes up at least once per max await time, at which point the loop exits.
+    worker.join(maxAwaitTime.multipliedBy(2));
+    if (isLocal()) {
+      return;
+    }
+    // Let another replica take over without waiting for the lease to run out.
+    getState().updateOne(
+        Filters.and(Filters.eq("_id", STATE_ID), Filters.eq("owner", owner)),
+        Updates.set("leaseUntil", Instant.now()));
+  }
+
+  private MongoCollection<Note> getNotes() {
+    return mongoClient.getDatabase(databaseName).getCollection("notes", Note.class);
+  }
+
+  private MongoCollection<BsonDocument> getState() {
+    return mongoClient.getDatabase(databaseName)
+        .getCollection("note_indexer_state", BsonDocument.class);
+  }
+
+  /** Whether every replica follows the stream itself, into its own index. */
+  private boolean isLocal() {
+    return searchBackend.localIndex() != null;
+  }
+
+  BsonDocument loadResumeToken() {
+    var localIndex = searchBackend.localIndex();
+    if (localIndex != null) {
+      return localIndex.resumeToken();
+    }
+    var state = getState().find(Filters.eq("_id", STATE_ID)).first();
+    return state != null ? state.getDocument("resumeToken", null) : null;
+  }
+
+  /**
+   * Records the cluster time at which this mode was first enabled, before this replica accepts
+   * writes, unless a time was recorded already. The first run of the stream starts there, so no
+   * write made in this mode is missed while no resume token has been saved yet. Writes from before
+   * are covered by the outbox tasks they left, which {@link NoteIndexer} keeps draining.
+   */
+  void recordStartTime() {
+    try {
+      getState().updateOne(
+          Filters.eq("_id", STATE_ID),
+          List.of(new Document("$set", new Document("startAt",
+              new Document("$ifNull", List.of("$startAt", "$$CLUSTER_TIME"))))),
+          new UpdateOptions().upsert(true));
+    } catch (MongoWriteException e) {
+      // Another replica created the state document first, with its own start time.
+      if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+        throw e;
+      }
+    }
+  }
+
+  private BsonTimestamp loadStartTime() {
+    var state = getState().find(Filters.eq("_id", STATE_ID)).first();
+    return state != null && state.isTimestamp("startAt") ? state.getTimestamp("startAt") : null;
+  }
+
+  /**
+   * Takes the lease to follow the stream, or renews it if this replica holds it, and returns
+   * whether this replica holds it now.
+   */
+  boolean acquireLease() {
+    var now = Instant.now();
+    try {
+      return getState().findOneAndUpdate(
+          Filters.and(
+              Filters.eq("_id", STATE_ID),
+              Filters.or(Filters.eq("owner", owner), Filters.not(Filters.gt("leaseUntil", now)))),
+          Updates.combine(
+              Updates.set("owner", owner),
+              Updates.set("leaseUntil", now.plus(lease))),
+          new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER)) != null;
+    } catch (MongoCommandException e) {
+      // The upsert collided with the state of a replica that holds the lease.
+      if (ErrorCategory.fromErrorCode(e.getErrorCode()) == ErrorCategory.DUPLICATE_KEY) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  /** Saves the resume token and renews the lease; returns false if the lease was lost. */
+  private boolean saveResumeToken(BsonDocument resumeToken) {
+    var localIndex = searchBackend.localIndex();
+    if (localIndex != null) {
+      localIndex.saveResumeToken(resumeToken);
+      return true;
+    }
+    var result = getState().updateOne(
+        Filters.and(Filters.eq("_id", STATE_ID), Filters.eq("owner", owner)),
+        Updates.combine(
+            Updates.set("resumeToken", resumeToken),
+            Updates.set("leaseUntil", Instant.now().plus(lease))));
+    return result.getMatchedCount() > 0;
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        if (isLocal()) {
+          follow();
+        } else if (acquireLease()) {
+          logger.info("Holding the change stream lease, following the notes collection");
+          follow();
+        }
+      } catch (Exception e) {
+        if (!running) {
+          return;
+        }
+        logger.error("Change stream indexing failed, resuming from the last saved token in "
+            + retryDelay, e);
+      }
+      try {
+        Thread.sleep(retryDelay);
+      } catch (InterruptedException interrupted) {
+        return;
+      }
+    }
+  }
+
+  private void follow() throws Exception {
+    var stream = getNotes()
+        .watch()
+        .fullDocument(FullDocument.UPDATE_LOOKUP)
+        .batchSize(batchSize)
+        .maxAwaitTime(maxAwaitTime.toMillis(), TimeUnit.MILLISECONDS);
+    var resumeToken = loadResumeToken();
+    var startTime = resumeToken == null && !isLocal() ? loadStartTime() : null;
+    if (resumeToken != null) {
+      // startAfter, unlike resumeAfter, also resumes after an invalidate event.
+      stream = stream.startAfter(resumeToken);
+    } else if (startTime != null) {
+      logger.info("No saved change stream position, indexing changes since the mode was enabled");
+      stream = stream.startAtOperationTime(startTime);
+    } else {
+      logger.info("No saved change stream position, indexing changes from now on");
+    }
+
+    var lastCheckpoint = Instant.now();
+    var lastRenewal = Instant.now();
+    try (var cursor = stream.cursor()) {
+      while (running) {
+        // tryNext returns buffered events without blocking and waits at most the max await time
+        // for a new cursor batch, so a batch never waits long for more events.
+        var batch = new ArrayList<ChangeStreamDocument<Note>>();
+        ChangeStreamDocument<Note> event;
+        while (batch.size() < batchSize && (event = cursor.tryNext()) != null) {
+          batch.add(event);
+        }
+        var held = true;
+        if (!batch.isEmpty()) {
+          apply(batch);
+          held = saveResumeToken(batch.getLast().getResumeToken());
+          lastCheckpoint = Instant.now();
+          lastRenewal = lastCheckpoint;
+        } else if (Instant.now().isAfter(lastCheckpoint.plus(IDLE_CHECKPOINT_INTERVAL))
+            && cursor.getResumeToken() != null) {
+          // Keep the saved position recent while idle so it does not fall off the oplog.
+          held = saveResumeToken(cursor.getResumeToken());
+          lastCheckpoint = Instant.now();
+          lastRenewal = lastCheckpoint;
+        } else if (!isLocal()
+            && Instant.now().isAfter(lastRenewal.plus(lease.dividedBy(3)))) {
+          held = acquireLease();
+          lastRenewal = Instant.now();
+        }
+        if (!held) {
+          logger.warn("Lost the change stream lease to another replica, stopped following");
+          return;
+        }
+      }
+    }
+  }
+
+  private void apply(List<ChangeStreamDocument<Note>> events) throws Exception {
+    // Only the latest change per note matters; keep first-seen order for stable bulk requests.
+    var changes = new LinkedHashMap<String, NoteChange>();
+    for (var event : events) {
+      var operationType = event.getOperationType();
+      if (operationType != OperationType.INSERT
+          && operationType != OperationType.UPDATE
+          && operationType != OperationType.REPLACE
+          && operationType != OperationType.DELETE) {
+        logger.warn("Ignoring " + operationType + " event on the notes collection");
+        continue;
+      }
+      var id = event.getDocumentKey().getObjectId("_id").getValue().toHexString();
+      // The external version, so replaying events after a restart or a takeover is harmless.
+      var version = event.getClusterTime().getValue();
+      // An update whose note was deleted before the lookup has no full document.
+      var note = operationType == OperationType.DELETE ? null : event.getFullDocument();
+      changes.put(id, new NoteChange(id, note, version));
+    }
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    // A failure of the whole request is thrown and the batch is read again from the saved token.
+    // Changes that fail on their own are retried a few times, then skipped so they cannot stop
+    // the stream; a reindex restores them.
+    List<NoteChange> pending = new ArrayList<>(changes.values());
+    for (var attempt = 1; ; attempt++) {
+      var failures = searchBackend.apply(pending);
+      if (failures.isEmpty()) {
+        return;
+      }
+      pending = pending.stream().filter(change -> failures.contains(change.id())).toList();
+      if (attempt >= maxAttempts) {
+        logger.error("Skipping " + pending.size() + " note changes that failed to index "
+            + maxAttempts + " times: " + failures);
+        return;
+      }
+      logger.warn(pending.size() + " of " + changes.size() + " note changes failed to index,"
+          + " retrying in " + retryDelay);
+      Thread.sleep(retryDelay);
+    }
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch._types.mapping.DynamicMapping;
+import org.opensearch.client.opensearch._types.mapping.TypeMapping;
+import org.opensearch.client.opensearch.indices.update_aliases.Action;
+
+/** Index, alias and template management for the notes search index. */
+@ApplicationScoped
+public class NoteIndexAdmin {
+
+  static final String ALIAS = "notes";
+  static final String INDEX_PREFIX = "notes-";
+  static final String TEMPLATE = "notes";
+  static final String INITIAL_INDEX = INDEX_PREFIX + "initial";
+  static final String TITLE_SUGGEST_FIELD = "title.suggest";
+
+  private static final DateTimeFormatter INDEX_SUFFIX =
+      DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+  private static final String REFRESH_DISABLED = "-1";
+  private static final String RESOURCE_ALREADY_EXISTS = "resource_already_exists_exception";
+
+  private final OpenSearchClient client;
+  private final NoteSearchBackendType backendType;
+  private final int shards;
+  private final int replicas;
+  private final String refreshInterval;
+  private final boolean storeSource;
+  private final Event<NoteIndexUnmanaged> indexUnmanaged;
+  private final Duration bootstrapRetryDelay;
+  private final Logger logger;
+
+  private volatile boolean bootstrapped;
+  private volatile boolean stopping;
+
+  public NoteIndexAdmin(
+      OpenSearchClient client,
+      @ConfigProperty(name = "notes.search.backend") NoteSearchBackendType backendType,
+      @ConfigProperty(name = "notes.search.index.shards") int shards,
+      @ConfigProperty(name = "notes.search.index.replicas") int replicas,
+      @ConfigProperty(name = "notes.search.index.refresh-interval") String refreshInterval,
+      @ConfigProperty(name = "notes.search.store-source") boolean storeSource,
+      @ConfigProperty(name = "notes.search.index.bootstrap-retry-delay")
+          Duration bootstrapRetryDelay,
+      Event<NoteIndexUnmanaged> indexUnmanaged,
+      Logger logger) {
+    this.client = client;
+    this.backendType = backendType;
+    this.shards = shards;
+    this.replicas = replicas;
+    this.refreshInterval = refreshInterval;
+    this.storeSource = storeSource;
+    this.bootstrapRetryDelay = bootstrapRetryDelay;
+    this.indexUnmanaged = indexUnmanaged;
+    this.logger = logger;
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    if (backendType != NoteSearchBackendType.OPENSEARCH) {
+      bootstrapped = true;
+      return;
+    }
+    if (!tryBootstrap()) {
+      Thread.ofVirtual().name("note-index-bootstrap").start(this::retryBootstrap);
+    }
+  }
+
+  void onStop(@Observes ShutdownEvent event) {
+    stopping = true;
+  }
+
+  /** Returns whether the template and the index behind the alias are in place. */
+  public boolean isBootstrapped() {
+    return bootstrapped;
+  }
+
+  /** Throws unless {@link #isBootstrapped}, so writes never reach an unmanaged index. */
+  void requireBootstrapped() {
+    if (!bootstrapped) {
+      throw new IllegalStateException("The notes search index is not bootstrapped yet");
+    }
+  }
+
+  private boolean tryBootstrap() {
+    try {
+      bootstrap();
+      bootstrapped = true;
+      return true;
+    } catch (Exception e) {
+      logger.error("Failed to bootstrap the notes search index, retrying in "
+          + bootstrapRetryDelay, e);
+      return false;
+    }
+  }
+
+  private void retryBootstrap() {
+    while (!stopping) {
+      try {
+        Thread.sleep(bootstrapRetryDelay);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (tryBootstrap()) {
+        logger.info("Bootstrapped the notes search index");
+        return;
+      }
+    }
+  }
+
+  /**
+   * Installs the index template and, on a cluster with no notes index yet, creates the first one
+   * with the alias already attached so the first write cannot create an index with a dynamic
+   * mapping. A {@value #ALIAS} index created by dynamic mapping lacks the fields searches sort
+   * and suggest on, so it is reported with {@link NoteIndexUnmanaged}, which starts a reindex that
+   * replaces it. Searches fall back to Mongo until then.
+   */
+  private void bootstrap() throws Exception {
+    putTemplate();
+    if (!resolveAlias(ALIAS).isEmpty()) {
+      // New fields reach the live index too; documents written before pick them up on reindex.
+      client.indices().putMapping(request -> request
+          .index(ALIAS)
+          .properties(mapping(storeSource).properties()));
+      return;
+    }
+    if (isConcreteIndex(ALIAS)) {
+      logger.warn("Search index " + ALIAS + " has a dynamic mapping, moving it to a managed index");
+      indexUnmanaged.fire(new NoteIndexUnmanaged(ALIAS));
+      return;
+    }
+    logger.info("Creating search index " + INITIAL_INDEX);
+    try {
+      client.indices().create(request -> request
+          .index(INITIAL_INDEX)
+          .aliases(ALIAS, alias -> alias));
+    } catch (OpenSearchException e) {
+      // Another replica bootstrapped the same index first.
+      if (!RESOURCE_ALREADY_EXISTS.equals(e.error().type())) {
+        throw e;
+      }
+    }
+  }
+
+  private void putTemplate() throws Exception {
+    client.indices().putIndexTemplate(request -> request
+        .name(TEMPLATE)
+        .indexPatterns(INDEX_PREFIX + "*")
+        .template(template -> template
+            .settings(settings -> settings
+                .numberOfShards(shards)
+                .numberOfReplicas(replicas)
+                .refreshInterval(time -> time.time(refreshInterval)))
+            .mappings(mapping(storeSource))));
+  }
+
+  /**
+   * The notes mapping. Unknown fields are rejected instead of being mapped dynamically, and the
+   * text fields have no {@code keyword} subfields since nothing sorts or aggregates on them. The
+   * title's {@value #TITLE_SUGGEST_FIELD} subfield feeds the completion suggester used for
+   * typeahead. Without {@code storeSource} the indexed notes are not kept in {@code _source}, and
+   * search hits only carry IDs; that takes effect for indexes created afterwards, by a reindex.
+   */
+  static TypeMapping mapping(boolean storeSource) {
+    return TypeMapping.of(mapping -> mapping
+        .dynamic(DynamicMapping.Strict)
+        .source(source -> source.enabled(storeSource))
+        .properties("id", property -> property.keyword(keyword -> keyword))
+        .properties("title", property -> property.text(text -> text
+            .fields("suggest", suggest -> suggest.completion(completion -> completion))))
+        .properties("content", property -> property.text(text -> text)));
+  }
+
+  /** Returns a new versioned index name, such as {@code notes-20250101120000}. */
+  public String newIndexName() {
+    return INDEX_PREFIX + INDEX_SUFFIX.format(Instant.now());
+  }
+
+  /** Creates an index with bulk-load settings; call {@link #endBulkLoad} once it is loaded. */
+  public void createForBulkLoad(String index) throws Exception {
+    logger.info("Creating search index " + index);
+    client.indices().create(request -> request
+        .index(index)
+        .settings(settings -> settings
+            .numberOfReplicas(0)
+            .refreshInterval(time -> time.time(REFRESH_DISABLED))));
+  }
+
+  /**
+   * Switches an existing index, or the indices behind an alias, to bulk-load settings: no replicas
+   * and no periodic refresh. Call {@link #endBulkLoad} once the heavy ingest is done.
+   */
+  public void beginBulkLoad(String index) throws Exception {
+    logger.info("Switching search index " + index + " to bulk-load settings");
+    client.indices().putSettings(request -> request
+        .index(index)
+        .settings(settings -> settings
+            .numberOfReplicas(0)
+            .refreshInterval(time -> time.time(REFRESH_DISABLED))));
+  }
+
+  /** Restores the configured replica count and refresh interval and makes all writes visible. */
+  public void endBulkLoad(String index) throws Exception {
+    logger.info("Restoring search index " + index + " settings");
+    client.indices().putSettings(request -> request
+        .index(index)
+        .settings(settings -> settings
+            .numberOfReplicas(replicas)
+            .refreshInterval(time -> time.time(refreshInterval))));
+    client.indices().refresh(request -> request.index(index));
+  }
+
+  /** Returns the indices {@code alias} points at, or an empty list if there is no such alias. */
+  public List<String> resolveAlias(String alias) throws Exception {
+    if (!client.indices().existsAlias(request -> request.name(alias)).value()) {
+      return List.of();
+    }
+    return new ArrayList<>(client.indices().getAlias(request -> request.name(alias)).result().keySet());
+  }
+
+  /** Whether {@code name} is a concrete index rather than an alias, as created by dynamic indexing. */
+  public boolean isConcreteIndex(String name) throws Exception {
+    return client.indices().exists(request -> request.index(name)).value()
+        && !client.indices().existsAlias(request -> request.name(name)).value();
+  }
+
+  public void addAlias(String alias, String index) throws Exception {
+    client.indices().updateAliases(request -> request
+        .actions(action -> action.add(add -> add.index(index).alias(alias))));
+  }
+
+  public void removeAlias(String alias, String index) throws Exception {
+    client.indices().updateAliases(request -> request
+        .actions(action -> action.remove(remove -> remove.index(index).alias(alias))));
+  }
+
+  /**
+   * Moves {@code alias} from {@code oldIndices} to {@code newIndex} in one atomic request. A
+   * concrete index with the alias name is deleted in the same request, since it would block the
+   * alias from being created.
+   */
+  public void swapAlias(String alias, String newIndex, Collection<String> oldIndices)
+      throws Exception {
+    var actions = new ArrayList<Action>();
+    for (var oldIndex : oldIndices) {
+      actions.add(Action.of(action -> action.remove(remove -> remove.index(oldIndex).alias(alias))));
+    }
+    if (isConcreteIndex(alias)) {
+      actions.add(Action.of(action -> action.removeIndex(remove -> remove.index(alias))));
+    }
+    actions.add(Action.of(action -> action.add(add -> add.index(newIndex).alias(alias))));
+    logger.info("Pointing alias " + alias + " at " + newIndex + " (was " + oldIndices + ")");
+    client.indices().updateAliases(request -> request.actions(actions));
+  }
+
+  public void deleteIndex(String index) throws Exception {
+    logger.info("Deleting search index " + index);
+    client.indices().delete(request -> request.index(index));
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.NoteIndexTask;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Pending search index syncs, written in the same Mongo transaction as the note they refer to so
+ * the index can never silently miss a committed write.
+ */
+@Startup
+@ApplicationScoped
+public class NoteIndexOutbox {
+
+  private final MongoClient mongoClient;
+  private final String databaseName;
+
+  public NoteIndexOutbox(
+      MongoClient mongoClient,
+      @ConfigProperty(name = "quarkus.mongodb.database") String databaseName) {
+    this.mongoClient = mongoClient;
+    this.databaseName = databaseName;
+  }
+
+  @PostConstruct
+  void createIndexes() {
+    getCollection().createIndex(Indexes.ascending("nextAttemptAt"));
+  }
+
+  MongoCollection<NoteIndexTask> getCollection() {
+    return mongoClient.getDatabase(databaseName).getCollection("note_index_tasks", NoteIndexTask.class);
+  }
+
+  /**
+   * Records that {@code noteIds} need to be synced. A note that already has a pending task gets
+   * a newer version and becomes due immediately instead of getting a second task. Versions are
+   * server timestamps, so they keep increasing after a task is completed and a new one created.
+   */
+  public void enqueue(ClientSession session, Collection<ObjectId> noteIds) {
+    if (noteIds.isEmpty()) {
+      return;
+    }
+    var now = Instant.now();
+    var upserts = noteIds.stream()
+        .map(noteId -> new UpdateOneModel<NoteIndexTask>(
+            Filters.eq("_id", noteId),
+            Updates.combine(
+                Updates.currentTimestamp("version"),
+                Updates.set("attempts", 0),
+                Updates.set("nextAttemptAt", now)),
+            new UpdateOptions().upsert(true)))
+        .toList();
+    getCollection().bulkWrite(session, upserts);
+  }
+
+  /** Returns up to {@code limit} tasks that are due, oldest first. */
+  public List<NoteIndexTask> findDue(int limit) {
+    return getCollection()
+        .find(Filters.lte("nextAttemptAt", Instant.now()))
+        .sort(Sorts.ascending("nextAttemptAt"))
+        .limit(limit)
+        .into(new ArrayList<>(limit));
+  }
+
+  /** Removes tasks that were synced, unless the note was written again in the meantime. */
+  public void complete(List<NoteIndexTask> tasks) {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    getCollection().bulkWrite(tasks.stream()
+        .map(task -> new DeleteOneModel<NoteIndexTask>(Filters.and(
+            Filters.eq("_id", task.noteId()),
+            Filters.eq("version", task.version()))))
+        .toList());
+  }
+
+  /**
+   * Schedules failed tasks for another attempt after the delay {@code backoff} picks for each. A
+   * task whose note was written again in the meantime is already due, so it is left alone.
+   */
+  public void retry(List<NoteIndexTask> tasks, Function<NoteIndexTask, Duration> backoff) {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    var now = Instant.now();
+    getCollection().bulkWrite(tasks.stream()
+        .map(task -> new UpdateOneModel<NoteIndexTask>(
+            Filters.and(
+                Filters.eq("_id", task.noteId()),
+                Filters.eq("version", task.version())),
+            Updates.combine(
+                Updates.inc("attempts", 1),
+                Updates.set("nextAttemptAt", now.plus(backoff.apply(task))))))
+        .toList());
+  }
+
+  /**
+   * Stops retrying tasks that keep failing: they lose their due time, so no drain picks them up
+   * until the note is written again. As in {@link #retry}, a task whose note was written again in
+   * the meantime is left alone.
+   */
+  public void park(List<NoteIndexTask> tasks) {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    getCollection().bulkWrite(tasks.stream()
+        .map(task -> new UpdateOneModel<NoteIndexTask>(
+            Filters.and(
+                Filters.eq("_id", task.noteId()),
+                Filters.eq("version", task.version())),
+            Updates.combine(
+                Updates.inc("attempts", 1),
+                Updates.unset("nextAttemptAt"))))
+        .toList());
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+/** Reports the replica as not ready until the notes search index is bootstrapped. */
+@Readiness
+@ApplicationScoped
+public class NoteIndexReadinessCheck implements HealthCheck {
+
+  private final NoteIndexAdmin indexAdmin;
+
+  public NoteIndexReadinessCheck(NoteIndexAdmin indexAdmin) {
+    this.indexAdmin = indexAdmin;
+  }
+
+  @Override
+  public HealthCheckResponse call() {
+    return HealthCheckResponse.named("notes-search-index")
+        .status(indexAdmin.isBootstrapped())
+        .build();
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/** Switches the live notes index to and from bulk-load settings around a heavy ingest. */
+@Path("notes/_index/bulk-load")
+@RunOnVirtualThread
+public class NoteIndexResource {
+
+  private final NoteIndexAdmin indexAdmin;
+  private final NoteSearchBackendType backendType;
+  private final Logger logger;
+
+  public NoteIndexResource(
+      NoteIndexAdmin indexAdmin,
+      @ConfigProperty(name = "notes.search.backend") NoteSearchBackendType backendType,
+      Logger logger) {
+    this.indexAdmin = indexAdmin;
+    this.backendType = backendType;
+    this.logger = logger;
+  }
+
+  @PUT
+  public Response begin() throws Exception {
+    requireOpenSearch();
+    logger.info("Entering bulk-load mode for the notes index");
+    indexAdmin.beginBulkLoad(NoteIndexAdmin.ALIAS);
+    return Response.noContent().build();
+  }
+
+  @DELETE
+  public Response end() throws Exception {
+    requireOpenSearch();
+    logger.info("Leaving bulk-load mode for the notes index");
+    indexAdmin.endBulkLoad(NoteIndexAdmin.ALIAS);
+    return Response.noContent().build();
+  }
+
+  /** Index administration only exists for the OpenSearch backend. */
+  private void requireOpenSearch() {
+    if (backendType != NoteSearchBackendType.OPENSEARCH) {
+      throw new BadRequestException("Not supported by the " + backendType + " search backend");
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteIndexTask;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/** Drains {@link NoteIndexOutbox} into the search index in the background. */
+@ApplicationScoped
+public class NoteIndexer {
+
+  private final NoteIndexOutbox outbox;
+  private final NoteRepository noteRepository;
+  private final NoteSearchBackend searchBackend;
+  private final int batchSize;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final int maxAttempts;
+  private final Counter parked;
+  private final Logger logger;
+
+  public NoteIndexer(
+      NoteIndexOutbox outbox,
+      NoteRepository noteRepository,
+      NoteSearchBackend searchBackend,
+      @ConfigProperty(name = "notes.indexer.batch-size") int batchSize,
+      @ConfigProperty(name = "notes.indexer.initial-backoff") Duration initialBackoff,
+      @ConfigProperty(name = "notes.indexer.max-backoff") Duration maxBackoff,
+      @ConfigProperty(name = "notes.indexer.max-attempts") int maxAttempts,
+      MeterRegistry registry,
+      Logger logger) {
+    this.outbox = outbox;
+    this.noteRepository = noteRepository;
+    this.searchBackend = searchBackend;
+    this.batchSize = batchSize;
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+    this.maxAttempts = maxAttempts;
+    this.parked = Counter.builder("notes.indexer.parked")
+        .description("Index tasks that failed too often and are no longer retried")
+        .register(registry);
+    this.logger = logger;
+  }
+
+  @Scheduled(
+      every = "${notes.indexer.interval}",
+      concurrentExecution = ConcurrentExecution.SKIP)
+  @RunOnVirtualThread
+  void run() {
+    drain();
+  }
+
+  /** Syncs due tasks batch by batch until none are left and returns how many were processed. */
+  public int drain() {
+    var processed = 0;
+    while (true) {
+      var tasks = outbox.findDue(batchSize);
+      if (tasks.isEmpty()) {
+        return processed;
+      }
+      process(tasks);
+      processed += tasks.size();
+      if (tasks.size() < batchSize) {
+        return processed;
+      }
+    }
+  }
+
+  /**
+   * Syncs each task from the current state of its note in Mongo, with the task version as the
+   * external version. Replaying a task is therefore always safe, and when replicas drain the same
+   * task, a snapshot read before a newer write cannot land after it.
+   */
+  private void process(List<NoteIndexTask> tasks) {
+    var tasksById = new HashMap<ObjectId, NoteIndexTask>();
+    tasks.forEach(task -> tasksById.put(task.noteId(), task));
+    var notesById = new HashMap<ObjectId, Note>();
+    noteRepository.findByIds(tasksById.keySet()).forEach(note -> notesById.put(note.id(), note));
+    var changes = tasks.stream()
+        .map(task -> new NoteChange(task.noteId().toHexString(), notesById.get(task.noteId()),
+            task.version().getValue()))
+        .toList();
+
+    var failedIds = new HashSet<String>();
+    try {
+      failedIds.addAll(searchBackend.apply(changes));
+    } catch (Exception e) {
+      logger.error("Failed to sync " + tasks.size() + " notes to the search index, will retry", e);
+      tasksById.keySet().forEach(id -> failedIds.add(id.toHexString()));
+    }
+
+    var completed = new ArrayList<NoteIndexTask>();
+    var failed = new ArrayList<NoteIndexTask>();
+    var exhausted = new ArrayList<NoteIndexTask>();
+    for (var task : tasks) {
+      if (!failedIds.contains(task.noteId().toHexString())) {
+        completed.add(task);
+      } else if (task.attempts() + 1 >= maxAttempts) {
+        exhausted.add(task);
+      } else {
+        failed.add(task);
+      }
+    }
+    outbox.complete(completed);
+    outbox.retry(failed, this::backoff);
+    if (!failed.isEmpty()) {
+      logger.warn("Scheduled " + failed.size() + " failed index tasks for retry");
+    }
+    // Parked so a poison note cannot be retried forever; its next write gives it a fresh task.
+    outbox.park(exhausted);
+    if (!exhausted.isEmpty()) {
+      parked.increment(exhausted.size());
+      logger.error("Stopped retrying the index tasks of " + exhausted.size() + " notes after "
+          + maxAttempts + " attempts: " + exhausted.stream().map(NoteIndexTask::noteId).toList());
+    }
+  }
+
+  /** Exponential backoff from the initial delay, doubling per attempt up to the maximum. */
+  private Duration backoff(NoteIndexTask task) {
+    var shift = Math.min(task.attempts(), 30);
+    var delay = initialBackoff.multipliedBy(1L << shift);
+    return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+  }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+/** How note writes reach the search index, selected with {@code notes.indexing.mode}. */
+public enum NoteIndexingMode {
+  /** Writes record a task in {@link NoteIndexOutbox} that {@link NoteIndexer} applies. */
+  OUTBOX,
+  /** {@link NoteChangeStreamIndexer} follows the change stream of the notes collection. */
+  CHANGE_STREAM
+}
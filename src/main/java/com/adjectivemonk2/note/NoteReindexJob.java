@@ -0,0 +1,419 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteReindexStatus;
+import com.adjectivemonk2.note.model.NoteReindexStatus.State;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Updates;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Rebuilds the notes search index into a new versioned index and swaps the {@value
+ * NoteIndexAdmin#ALIAS} alias to it.
+ */
+@ApplicationScoped
+public class NoteReindexJob {
+
+  private static final Duration PROGRESS_LOG_INTERVAL = Duration.ofSeconds(5);
+  private static final String JOB_ID = NoteReindexRoute.JOB_ID;
+  // Mongo's default transactionLifetimeLimitSeconds: no transaction runs longer than this.
+  private static final int MAX_TRANSACTION_SECONDS = 60;
+
+  private final MongoClient mongoClient;
+  private final String databaseName;
+  private final NoteRepository noteRepository;
+  private final NoteSearchRepository noteSearchRepository;
+  private final NoteIndexAdmin indexAdmin;
+  private final NoteSearchCache searchCache;
+  private final NoteReindexRoute reindexRoute;
+  private final int partitions;
+  private final int batchSize;
+  private final Duration lease;
+  private final Logger logger;
+  private final String owner = UUID.randomUUID().toString();
+
+  private final AtomicLong indexed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong lastProgressLog = new AtomicLong();
+  private volatile NoteReindexStatus finished = NoteReindexStatus.idle();
+  private volatile String targetIndex;
+  private volatile String staleTarget;
+  private volatile long total;
+  private volatile Instant startedAt;
+  private volatile boolean running;
+  private volatile boolean leaseLost;
+
+  public NoteReindexJob(
+      MongoClient mongoClient,
+      @ConfigProperty(name = "quarkus.mongodb.database") String databaseName,
+      NoteRepository noteRepository,
+      NoteSearchRepository noteSearchRepository,
+      NoteIndexAdmin indexAdmin,
+      NoteSearchCache searchCache,
+      NoteReindexRoute reindexRoute,
+      @ConfigProperty(name = "notes.reindex.partitions") int partitions,
+      @ConfigProperty(name = "notes.reindex.batch-size") int batchSize,
+      @ConfigProperty(name = "notes.reindex.lease") Duration lease,
+      Logger logger) {
+    this.mongoClient = mongoClient;
+    this.databaseName = databaseName;
+    this.noteRepository = noteRepository;
+    this.noteSearchRepository = noteSearchRepository;
+    this.indexAdmin = indexAdmin;
+    this.searchCache = searchCache;
+    this.reindexRoute = reindexRoute;
+    this.partitions = partitions;
+    this.batchSize = batchSize;
+    this.lease = lease;
+    this.logger = logger;
+  }
+
+  private MongoCollection<BsonDocument> getJobs() {
+    return mongoClient.getDatabase(databaseName)
+        .getCollection("note_indexer_state", BsonDocument.class);
+  }
+
+  /**
+   * Starts a reindex in the background unless one is running on any replica, and returns its
+   * status.
+   */
+  public synchronized NoteReindexStatus start() {
+    if (running) {
+      return status();
+    }
+    var target = indexAdmin.newIndexName();
+    var now = Instant.now();
+    var estimate = noteRepository.estimatedCount();
+    if (!acquireLease(target, now, estimate)) {
+      return status();
+    }
+    running = true;
+    leaseLost = false;
+    targetIndex = target;
+    total = estimate;
+    startedAt = now;
+    indexed.set(0);
+    failed.set(0);
+    lastProgressLog.set(System.nanoTime());
+    Thread.ofVirtual().name("note-reindex").start(this::run);
+    return status();
+  }
+
+  void onIndexUnmanaged(@Observes NoteIndexUnmanaged event) {
+    // Every replica asks; the lease lets only one of them run the migration.
+    var status = start();
+    logger.info("Migrating search index " + event.index() + " with reindex " + status);
+  }
+
+  public NoteReindexStatus status() {
+    if (running) {
+      return new NoteReindexStatus(State.RUNNING, targetIndex, total, indexed.get(), failed.get(),
+          docsPerSecond(Instant.now()), startedAt, null, null);
+    }
+    var job = getJobs().find(Filters.and(
+        Filters.eq("_id", JOB_ID), Filters.gt("leaseUntil", Instant.now()))).first();
+    if (job == null || owner.equals(job.getString("owner").getValue())) {
+      return finished;
+    }
+    // Running on another replica, as of its last heartbeat
+    var started = Instant.ofEpochMilli(job.getDateTime("startedAt").getValue());
+    var done = job.getInt64("indexed").getValue();
+    var elapsedMillis = Math.max(1, Duration.between(started, Instant.now()).toMillis());
+    return new NoteReindexStatus(State.RUNNING, job.getString("target").getValue(),
+        job.getInt64("total").getValue(), done, job.getInt64("failed").getValue(),
+        done * 1000.0 / elapsedMillis, started, null, null);
+  }
+
+  /**
+   * Claims the job document unless another replica holds an unexpired lease on it. A replica
+   * whose lease ran out has died or lost the job, so the index it was still routing writes to is
+   * kept in {@code staleTarget} to be cleaned up.
+   */
+  private boolean acquireLease(String target, Instant now, long estimate) {
+    try {
+      var previous = getJobs().findOneAndUpdate(
+          Filters.and(Filters.eq("_id", JOB_ID), Filters.not(Filters.gt("leaseUntil", now))),
+          Updates.combine(
+              Updates.set("owner", owner),
+              Updates.set("target", target),
+              Updates.set("leaseUntil", now.plus(lease)),
+              Updates.set("startedAt", now),
+              Updates.set("total", estimate),
+              Updates.set("indexed", 0L),
+              Updates.set("failed", 0L),
+              Updates.unset("writeTarget")),
+          new FindOneAndUpdateOptions().upsert(true));
+      staleTarget = previous != null && previous.isString("writeTarget")
+          ? previous.getString("writeTarget").getValue()
+          : null;
+      return true;
+    } catch (MongoCommandException e) {
+      // The upsert collided with the document of a job that holds the lease.
+      if (ErrorCategory.fromErrorCode(e.getErrorCode()) == ErrorCategory.DUPLICATE_KEY) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  /** Renews the lease and records progress; returns false if the lease was lost. */
+  private boolean renewLease() {
+    return getJobs().updateOne(
+        Filters.and(Filters.eq("_id", JOB_ID), Filters.eq("owner", owner)),
+        Updates.combine(
+            Updates.set("leaseUntil", Instant.now().plus(lease)),
+            Updates.set("indexed", indexed.get()),
+            Updates.set("failed", failed.get()))).getMatchedCount() > 0;
+  }
+
+  private void releaseLease() {
+    getJobs().updateOne(
+        Filters.and(Filters.eq("_id", JOB_ID), Filters.eq("owner", owner)),
+        Updates.set("leaseUntil", Instant.now()));
+  }
+
+  /** Renews the lease every third of its duration until the job finishes or loses it. */
+  private void heartbeat() {
+    while (running) {
+      try {
+        Thread.sleep(lease.dividedBy(3));
+        if (running && !renewLease()) {
+          logger.error("Reindex lost its lease to another replica, stopping");
+          leaseLost = true;
+          return;
+        }
+      } catch (InterruptedException e) {
+        return;
+      } catch (RuntimeException e) {
+        logger.warn("Failed to renew the reindex lease", e);
+      }
+    }
+  }
+
+  private double docsPerSecond(Instant until) {
+    var elapsedMillis = Math.max(1, Duration.between(startedAt, until).toMillis());
+    return indexed.get() * 1000.0 / elapsedMillis;
+  }
+
+  private void run() {
+    var target = targetIndex;
+    var heartbeat = Thread.ofVirtual().name("note-reindex-heartbeat").start(this::heartbeat);
+    State state;
+    String error = null;
+    try {
+      reindex(target);
+      state = State.SUCCEEDED;
+    } catch (Exception e) {
+      logger.error("Reindex into " + target + " failed", e);
+      state = State.FAILED;
+      error = e.getMessage();
+      cleanUpFailed(target);
+    }
+    var finishedAt = Instant.now();
+    finished = new NoteReindexStatus(state, target, total, indexed.get(), failed.get(),
+        docsPerSecond(finishedAt), startedAt, finishedAt, error);
+    running = false;
+    heartbeat.interrupt();
+    try {
+      releaseLease();
+    } catch (RuntimeException e) {
+      logger.warn("Failed to release the reindex lease, it expires in " + lease, e);
+    }
+    logger.info("Reindex into " + target + " finished: " + finished);
+  }
+
+  private void reindex(String target) throws Exception {
+    // A target left behind by a job that died with its process. This job holds the lease, so no
+    // other job that is still running can own it.
+    if (staleTarget != null) {
+      logger.warn("Removing search index " + staleTarget + " left behind by an earlier reindex");
+      deleteQuietly(staleTarget);
+    }
+    var previous = indexAdmin.resolveAlias(NoteIndexAdmin.ALIAS);
+    indexAdmin.createForBulkLoad(target);
+
+    // Route live writes to the new index too before reading, so each write is either copied or
+    // written to the new index directly. Writers look the route up for every write.
+    reindexRoute.open(owner, target);
+
+    copy(target);
+    if (failed.get() > 0) {
+      throw new IllegalStateException(failed.get() + " notes failed to index into " + target);
+    }
+
+    if (leaseLost) {
+      throw new IllegalStateException("Lost the reindex lease to another replica");
+    }
+    // Refreshes the index, so every copied and routed write is searchable once the alias moves.
+    indexAdmin.endBulkLoad(target);
+    indexAdmin.swapAlias(NoteIndexAdmin.ALIAS, target, previous);
+    searchCache.invalidate();
+    reindexRoute.close(owner);
+    for (var index : previous) {
+      indexAdmin.deleteIndex(index);
+    }
+  }
+
+  private void copy(String target) throws Exception {
+    var ranges = partition();
+    logger.info("Copying about " + total + " notes into " + target + " in " + ranges.size()
+        + " partitions");
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      var futures = new ArrayList<Future<?>>();
+      for (var range : ranges) {
+        futures.add(executor.submit(() -> copyRange(target, range[0], range[1])));
+      }
+      for (var future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          futures.forEach(pending -> pending.cancel(true));
+          throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+      }
+    }
+  }
+
+  private void copyRange(String target, ObjectId from, ObjectId to) {
+    try (var session = mongoClient.startSession()) {
+      var version = copyVersion(session);
+      var batch = new ArrayList<Note>(batchSize);
+      noteRepository.forEachInRange(session, from, to, batchSize, note -> {
+        batch.add(note);
+        if (batch.size() == batchSize) {
+          load(target, batch, version);
+          batch.clear();
+        }
+      });
+      if (!batch.isEmpty()) {
+        load(target, batch, version);
+      }
+    }
+  }
+
+  /**
+   * Returns the index version for the notes read in {@code session} from now on. The session is
+   * causally consistent, so its reads see every write up to its current operation time; a write
+   * they miss commits later. The index version of a write is the cluster time of its commit, or,
+   * for an outbox task, a time within its transaction, so it is newer than the operation time
+   * less the longest a transaction can run. Live writes the copy missed therefore always win.
+   */
+  private long copyVersion(ClientSession session) {
+    getJobs().find(session, Filters.eq("_id", JOB_ID)).first();
+    var readFrom = session.getOperationTime();
+    return new BsonTimestamp(readFrom.getTime() - MAX_TRANSACTION_SECONDS, 0).getValue();
+  }
+
+  private void load(String target, List<Note> batch, long version) {
+    if (leaseLost) {
+      throw new IllegalStateException("Lost the reindex lease to another replica");
+    }
+    try {
+      var response = noteSearchRepository.load(target, batch, version);
+      var failures = response.items().stream()
+          .filter(item -> item.error() != null)
+          .filter(item -> item.status() != NoteSearchRepository.VERSION_CONFLICT)
+          .count();
+      failed.addAndGet(failures);
+      indexed.addAndGet(batch.size() - failures);
+    } catch (Exception e) {
+      throw new IllegalStateException("Bulk load into " + target + " failed", e);
+    }
+    logProgress();
+  }
+
+  private void logProgress() {
+    var now = System.nanoTime();
+    var last = lastProgressLog.get();
+    if (now - last >= PROGRESS_LOG_INTERVAL.toNanos() && lastProgressLog.compareAndSet(last, now)) {
+      logger.info(String.format("Reindex progress: %d/%d notes, %.0f notes/s",
+          indexed.get(), total, docsPerSecond(Instant.now())));
+    }
+  }
+
+  /**
+   * Splits the ID space into ranges of equal creation time. ObjectIds start with their creation
+   * timestamp, so each range is an index range scan on {@code _id}. The first and last ranges are
+   * open so notes outside the sampled bounds are not missed.
+   */
+  private List<ObjectId[]> partition() {
+    var ranges = new ArrayList<ObjectId[]>();
+    var lowest = noteRepository.findBoundaryId(false);
+    var highest = noteRepository.findBoundaryId(true);
+    if (lowest == null || partitions <= 1) {
+      ranges.add(new ObjectId[] {null, null});
+      return ranges;
+    }
+    long from = Integer.toUnsignedLong(lowest.getTimestamp());
+    long to = Integer.toUnsignedLong(highest.getTimestamp());
+    ObjectId lower = null;
+    long previousSeconds = -1;
+    for (var i = 1; i < partitions; i++) {
+      var seconds = from + (to - from) * i / partitions;
+      if (seconds <= from || seconds == previousSeconds) {
+        continue;
+      }
+      previousSeconds = seconds;
+      var boundary = new ObjectId(ByteBuffer.allocate(12).putInt((int) seconds).array());
+      ranges.add(new ObjectId[] {lower, boundary});
+      lower = boundary;
+    }
+    ranges.add(new ObjectId[] {lower, null});
+    return ranges;
+  }
+
+  private void cleanUpFailed(String target) {
+    try {
+      reindexRoute.close(owner);
+    } catch (RuntimeException e) {
+      logger.error("Failed to stop routing writes to search index " + target, e);
+    }
+    deleteQuietly(target);
+  }
+
+  private void deleteQuietly(String target) {
+    try {
+      indexAdmin.deleteIndex(target);
+    } catch (Exception e) {
+      logger.error("Failed to clean up search index " + target, e);
+    }
+  }
+}
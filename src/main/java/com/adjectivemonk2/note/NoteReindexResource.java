@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.NoteReindexStatus;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+@Path("notes/_reindex")
+@Produces(MediaType.APPLICATION_JSON)
+@RunOnVirtualThread
+public class NoteReindexResource {
+
+  private final NoteReindexJob reindexJob;
+  private final NoteSearchBackendType backendType;
+  private final Logger logger;
+
+  public NoteReindexResource(
+      NoteReindexJob reindexJob,
+      @ConfigProperty(name = "notes.search.backend") NoteSearchBackendType backendType,
+      Logger logger) {
+    this.reindexJob = reindexJob;
+    this.backendType = backendType;
+    this.logger = logger;
+  }
+
+  @POST
+  public Response start() {
+    requireOpenSearch();
+    logger.info("Starting a full reindex of notes");
+    return Response.accepted(reindexJob.start()).build();
+  }
+
+  @GET
+  public NoteReindexStatus status() {
+    return reindexJob.status();
+  }
+
+  /** The Lucene backend has no reindex; it rebuilds itself from Mongo when it needs to. */
+  private void requireOpenSearch() {
+    if (backendType != NoteSearchBackendType.OPENSEARCH) {
+      throw new BadRequestException("Not supported by the " + backendType + " search backend");
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.adjectivemonk2.note;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Instant;
+import org.bson.BsonDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/** The index a running reindex is building, which live index writes also go to. */
+@ApplicationScoped
+public class NoteReindexRoute {
+
+  static final String JOB_ID = "notes-reindex";
+
+  private final MongoClient mongoClient;
+  private final String databaseName;
+
+  public NoteReindexRoute(
+      MongoClient mongoClient,
+      @ConfigProperty(name = "quarkus.mongodb.database") String databaseName) {
+    this.mongoClient = mongoClient;
+    this.databaseName = databaseName;
+  }
+
+  MongoCollection<BsonDocument> getJobs() {
+    return mongoClient.getDatabase(databaseName)
+        .getCollection("note_indexer_state", BsonDocument.class);
+  }
+
+  /**
+   * Returns the index a running reindex is building, or null. It is read from the job document
+   * for every write, after the write's notes were read from Mongo. So once {@link #open} returns,
+   * every write either goes to the new index too or read its notes before the copy started.
+   */
+  public String target() {
+    var job = getJobs()
+        .find(Filters.and(Filters.eq("_id", JOB_ID), Filters.gt("leaseUntil", Instant.now())))
+        .projection(Projections.include("writeTarget"))
+        .first();
+    return job != null && job.isString("writeTarget")
+        ? job.getString("writeTarget").getValue()
+        : null;
+  }
+
+  /** Routes live writes to {@code target} as well, for the job that {@code owner} runs. */
+  void open(String owner, String target) {
+    getJobs().updateOne(
+        Filters.and(Filters.eq("_id", JOB_ID), Filters.eq("owner", owner)),
+        Updates.set("writeTarget", target));
+  }
+
+  /** Stops routing live writes to the index of the job that {@code owner} runs. */
+  void close(String owner) {
+    getJobs().updateOne(
+        Filters.and(Filters.eq("_id", JOB_ID), Filters.eq("owner", owner)),
+        Updates.unset("writeTarget"));
+  }
+}
@@ -18,18 +18,42 @@ package com.adjectivemonk2.note;
 
 import com.adjectivemonk2.note.model.Note;
 import com.adjectivemonk2.note.model.NoteData;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Field;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WriteModel;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+@Startup
 @ApplicationScoped
 public class NoteRepository {
 
+  static final String TEXT_INDEX = "notes_text";
+
   private final MongoClient mongoClient;
   private final String databaseName;
 
@@ -40,24 +64,176 @@ public class NoteRepository {
     this.databaseName = databaseName;
   }
 
+  /** The text index backs {@link #textSearch}, the fallback when OpenSearch is unavailable. */
+  @PostConstruct
+  void createIndexes() {
+    getCollection().createIndex(
+        Indexes.compoundIndex(Indexes.text("title"), Indexes.text("content")),
+        new IndexOptions().name(TEXT_INDEX));
+  }
+
   private MongoCollection<Note> getCollection() {
     return mongoClient.getDatabase(databaseName).getCollection("notes", Note.class);
   }
 
-  public List<Note> findAll() {
-    return getCollection().find().into(new ArrayList<>());
+  /**
+   * Returns up to {@code limit} notes with an ID greater than {@code after}, in ID order. The
+   * cursor batch size is capped at the page size so a page never pulls more than it returns.
+   */
+  public List<Note> findPage(ObjectId after, int limit) {
+    var filter = after != null ? Filters.gt("_id", after) : Filters.empty();
+    return getCollection()
+        .find(filter)
+        .sort(Sorts.ascending("_id"))
+        .limit(limit)
+        .batchSize(limit)
+        .into(new ArrayList<>(limit));
+  }
+
+  /**
+   * Feeds every note to {@code action} in ID order while iterating the cursor, so at most one
+   * batch of {@code batchSize} notes is held in memory at a time.
+   */
+  public void forEach(int batchSize, Consumer<Note> action) {
+    forEachInRange(null, null, batchSize, action);
+  }
+
+  /**
+   * Like {@link #forEach} but limited to IDs from {@code fromInclusive} up to {@code toExclusive};
+   * a null bound leaves that side of the range open.
+   */
+  public void forEachInRange(
+      ObjectId fromInclusive, ObjectId toExclusive, int batchSize, Consumer<Note> action) {
+    try (var cursor = getCollection()
+        .find(rangeFilter(fromInclusive, toExclusive))
+        .sort(Sorts.ascending("_id"))
+        .batchSize(batchSize)
+        .cursor()) {
+      while (cursor.hasNext()) {
+        action.accept(cursor.next());
+      }
+    }
+  }
+
+  /** Like {@link #forEachInRange} but reading within {@code session}. */
+  public void forEachInRange(ClientSession session, ObjectId fromInclusive,
+      ObjectId toExclusive, int batchSize, Consumer<Note> action) {
+    try (var cursor = getCollection()
+        .find(session, rangeFilter(fromInclusive, toExclusive))
+        .sort(Sorts.ascending("_id"))
+        .batchSize(batchSize)
+        .cursor()) {
+      while (cursor.hasNext()) {
+        action.accept(cursor.next());
+      }
+    }
+  }
+
+  private static Bson rangeFilter(ObjectId fromInclusive, ObjectId toExclusive) {
+    var filters = new ArrayList<Bson>();
+    if (fromInclusive != null) {
+      filters.add(Filters.gte("_id", fromInclusive));
+    }
+    if (toExclusive != null) {
+      filters.add(Filters.lt("_id", toExclusive));
+    }
+    return filters.isEmpty() ? Filters.empty() : Filters.and(filters);
+  }
+
+  /**
+   * Returns up to {@code limit} notes matching {@code q} in the text index, best match first and
+   * then in ID order. With {@code afterId}, only notes ranked after the match with that ID and
+   * {@code afterScore} are returned. The query is aborted by the server once it runs longer than
+   * {@code maxTime}.
+   */
+  public List<NoteTextMatch> textSearch(
+      String q, int limit, ObjectId afterId, double afterScore, Duration maxTime) {
+    var pipeline = new ArrayList<Bson>();
+    pipeline.add(Aggregates.match(Filters.text(q)));
+    pipeline.add(Aggregates.addFields(new Field<>("score", new Document("$meta", "textScore"))));
+    if (afterId != null) {
+      pipeline.add(Aggregates.match(Filters.or(
+          Filters.lt("score", afterScore),
+          Filters.and(Filters.eq("score", afterScore), Filters.gt("_id", afterId)))));
+    }
+    pipeline.add(Aggregates.sort(Sorts.orderBy(Sorts.descending("score"), Sorts.ascending("_id"))));
+    pipeline.add(Aggregates.limit(limit));
+    return getCollection()
+        .withDocumentClass(Document.class)
+        .aggregate(pipeline)
+        .maxTime(maxTime.toMillis(), TimeUnit.MILLISECONDS)
+        .map(document -> new NoteTextMatch(
+            new Note(document.getObjectId("_id"), document.getString("title"),
+                document.getString("content")),
+            document.getDouble("score")))
+        .into(new ArrayList<>(limit));
+  }
+
+  /** Returns the lowest or highest note ID, or null if there are no notes. */
+  public ObjectId findBoundaryId(boolean highest) {
+    var document = getCollection()
+        .withDocumentClass(Document.class)
+        .find()
+        .sort(highest ? Sorts.descending("_id") : Sorts.ascending("_id"))
+        .projection(Projections.include("_id"))
+        .first();
+    return document != null ? document.getObjectId("_id") : null;
+  }
+
+  public long estimatedCount() {
+    return getCollection().estimatedDocumentCount();
   }
 
   public Note findById(String id) {
     return getCollection().find(Filters.eq("_id", new ObjectId(id))).first();
   }
 
+  /** Returns the notes among {@code ids} that exist, in no particular order. */
+  public List<Note> findByIds(Collection<ObjectId> ids) {
+    return getCollection().find(Filters.in("_id", ids)).into(new ArrayList<>(ids.size()));
+  }
+
+  /** Returns the subset of {@code ids} that exist, reading only the ID index. */
+  public Set<ObjectId> findExistingIds(ClientSession session, Collection<ObjectId> ids) {
+    var existing = new HashSet<ObjectId>();
+    if (ids.isEmpty()) {
+      return existing;
+    }
+    getCollection()
+        .withDocumentClass(Document.class)
+        .find(session, Filters.in("_id", ids))
+        .projection(Projections.include("_id"))
+        .forEach(document -> existing.add(document.getObjectId("_id")));
+    return existing;
+  }
+
+  /** Runs {@code work} in a transaction, retrying it on transient transaction errors. */
+  public <T> T inTransaction(Function<ClientSession, T> work) {
+    try (var session = mongoClient.startSession()) {
+      return session.withTransaction(() -> work.apply(session));
+    }
+  }
+
+  /**
+   * Runs all writes as one unordered bulk write within {@code session}. A write error aborts the
+   * transaction, so none of the writes are applied.
+   */
+  public BulkWriteResult bulkWrite(ClientSession session, List<WriteModel<Note>> writes) {
+    return getCollection().bulkWrite(session, writes, new BulkWriteOptions().ordered(false));
+  }
+
   public Note create(NoteData data) {
     var note = Note.of(new ObjectId(), data);
     getCollection().insertOne(note);
     return note;
   }
 
+  public Note create(ClientSession session, NoteData data) {
+    var note = Note.of(new ObjectId(), data);
+    getCollection().insertOne(session, note);
+    return note;
+  }
+
   public Note update(String id, NoteData data) {
     var objectId = new ObjectId(id);
     var note = Note.of(objectId, data);
@@ -65,8 +241,20 @@ public class NoteRepository {
     return result.getModifiedCount() > 0 ? note : null;
   }
 
+  public Note update(ClientSession session, String id, NoteData data) {
+    var objectId = new ObjectId(id);
+    var note = Note.of(objectId, data);
+    var result = getCollection().replaceOne(session, Filters.eq("_id", objectId), note);
+    return result.getModifiedCount() > 0 ? note : null;
+  }
+
   public boolean delete(String id) {
     var result = getCollection().deleteOne(Filters.eq("_id", new ObjectId(id)));
     return result.getDeletedCount() > 0;
   }
+
+  public boolean delete(ClientSession session, String id) {
+    var result = getCollection().deleteOne(session, Filters.eq("_id", new ObjectId(id)));
+    return result.getDeletedCount() > 0;
+  }
 }
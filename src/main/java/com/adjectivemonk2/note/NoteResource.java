@@ -16,11 +16,19 @@
 
 package com.adjectivemonk2.note;
 
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteBulkOperation;
+import com.adjectivemonk2.note.model.NoteBulkResponse;
 import com.adjectivemonk2.note.model.NoteData;
+import com.adjectivemonk2.note.model.NotePage;
 import com.adjectivemonk2.note.model.NoteResponse;
+import com.adjectivemonk2.note.model.NoteSearchPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.POST;
@@ -30,7 +38,14 @@ import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Base64;
 import java.util.List;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 @Path("notes")
@@ -39,25 +54,97 @@ import org.jboss.logging.Logger;
 @RunOnVirtualThread
 public class NoteResource {
 
+  static final String APPLICATION_NDJSON = "application/x-ndjson";
+  static final int MAX_SUGGEST_PREFIX_LENGTH = 100;
+
   private final NoteService noteService;
-  private final NoteSearchRepository noteSearchRepository;
+  private final NoteSearchService noteSearchService;
+  private final NoteSearchCache noteSearchCache;
+  private final NoteSuggester noteSuggester;
+  private final NoteSimilarIndex noteSimilarIndex;
+  private final ObjectMapper objectMapper;
+  private final int maxLimit;
+  private final int maxSearchSize;
+  private final int maxSuggestSize;
+  private final int maxSimilarSize;
+  private final int exportBatchSize;
+  private final int maxBulkOperations;
   private final Logger logger;
 
   public NoteResource(
       NoteService noteService,
-      NoteSearchRepository noteSearchRepository,
+      NoteSearchService noteSearchService,
+      NoteSearchCache noteSearchCache,
+      NoteSuggester noteSuggester,
+      NoteSimilarIndex noteSimilarIndex,
+      ObjectMapper objectMapper,
+      @ConfigProperty(name = "notes.list.max-limit") int maxLimit,
+      @ConfigProperty(name = "notes.search.max-size") int maxSearchSize,
+      @ConfigProperty(name = "notes.suggest.max-size") int maxSuggestSize,
+      @ConfigProperty(name = "notes.similar.max-size") int maxSimilarSize,
+      @ConfigProperty(name = "notes.export.batch-size") int exportBatchSize,
+      @ConfigProperty(name = "notes.bulk.max-operations") int maxBulkOperations,
       Logger logger) {
     this.noteService = noteService;
-    this.noteSearchRepository = noteSearchRepository;
+    this.noteSearchService = noteSearchService;
+    this.noteSearchCache = noteSearchCache;
+    this.noteSuggester = noteSuggester;
+    this.noteSimilarIndex = noteSimilarIndex;
+    this.objectMapper = objectMapper;
+    this.maxLimit = maxLimit;
+    this.maxSearchSize = maxSearchSize;
+    this.maxSuggestSize = maxSuggestSize;
+    this.maxSimilarSize = maxSimilarSize;
+    this.exportBatchSize = exportBatchSize;
+    this.maxBulkOperations = maxBulkOperations;
     this.logger = logger;
   }
 
   @GET
-  public List<NoteResponse> list() {
-    logger.info("Fetching all notes");
-    return noteService.findAll().stream()
-        .map(NoteResponse::fromNote)
-        .toList();
+  public NotePage list(
+      @QueryParam("after") String after,
+      @QueryParam("limit") @DefaultValue("50") int limit) {
+    logger.info("Fetching notes after=" + after + " limit=" + limit);
+    if (after != null && !ObjectId.isValid(after)) {
+      throw new BadRequestException("Invalid cursor: " + after);
+    }
+    if (limit < 1 || limit > maxLimit) {
+      throw new BadRequestException("limit must be between 1 and " + maxLimit);
+    }
+    // Fetch one extra note to learn whether another page follows without a count query.
+    var notes = noteService.findPage(after, limit + 1);
+    var hasMore = notes.size() > limit;
+    var page = hasMore ? notes.subList(0, limit) : notes;
+    var next = hasMore ? page.getLast().id().toHexString() : null;
+    return new NotePage(page.stream().map(NoteResponse::fromNote).toList(), next);
+  }
+
+  /**
+   * Streams every note as newline-delimited JSON straight from the Mongo cursor. Writes block
+   * while the client is not reading, so a slow consumer slows the cursor down instead of making
+   * the server buffer the export.
+   */
+  @GET
+  @Path("export")
+  @Produces(APPLICATION_NDJSON)
+  public StreamingOutput export() {
+    logger.info("Exporting all notes as NDJSON");
+    return output -> {
+      try {
+        noteService.forEach(exportBatchSize, note -> writeLine(output, note));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    };
+  }
+
+  private void writeLine(OutputStream output, Note note) {
+    try {
+      output.write(objectMapper.writeValueAsBytes(NoteResponse.fromNote(note)));
+      output.write('\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   @GET
@@ -71,13 +158,74 @@ public class NoteResource {
     return NoteResponse.fromNote(note);
   }
 
+  @GET
+  @Path("{id}/similar")
+  public List<NoteResponse> similar(
+      @PathParam("id") String id,
+      @QueryParam("size") @DefaultValue("10") int size) throws IOException {
+    logger.info("Fetching notes similar to id: " + id);
+    if (!noteSimilarIndex.isEnabled()) {
+      throw new BadRequestException("Similar notes are disabled");
+    }
+    if (size < 1 || size > maxSimilarSize) {
+      throw new BadRequestException("size must be between 1 and " + maxSimilarSize);
+    }
+    var note = noteService.findById(id);
+    if (note == null) {
+      throw new NotFoundException("Note not found: " + id);
+    }
+    return noteSimilarIndex.similar(note, size).stream()
+        .map(NoteResponse::fromNote)
+        .toList();
+  }
+
   @GET
   @Path("search")
-  public List<NoteResponse> search(@QueryParam("q") String q) throws Exception {
-    logger.info("Searching notes with q=" + q);
-    return noteSearchRepository.search(q).stream()
+  public NoteSearchPage search(
+      @QueryParam("q") String q,
+      @QueryParam("size") @DefaultValue("10") int size,
+      @QueryParam("cursor") String cursor) throws Exception {
+    logger.info("Searching notes with q=" + q + " size=" + size);
+    if (size < 1 || size > maxSearchSize) {
+      throw new BadRequestException("size must be between 1 and " + maxSearchSize);
+    }
+    var after = cursor == null ? null : decodeCursor(cursor);
+    var result = noteSearchCache.get(q, size, after,
+        () -> noteSearchService.search(q, size, after));
+    var items = result.documents().stream()
         .map(NoteResponse::fromDocument)
         .toList();
+    var next = result.next() == null ? null : encodeCursor(result.next());
+    return new NoteSearchPage(items, next, result.degraded());
+  }
+
+  @GET
+  @Path("suggest")
+  public List<String> suggest(
+      @QueryParam("prefix") String prefix,
+      @QueryParam("size") @DefaultValue("5") int size) throws Exception {
+    if (prefix == null || prefix.isBlank() || prefix.length() > MAX_SUGGEST_PREFIX_LENGTH) {
+      throw new BadRequestException(
+          "prefix must be between 1 and " + MAX_SUGGEST_PREFIX_LENGTH + " characters");
+    }
+    if (size < 1 || size > maxSuggestSize) {
+      throw new BadRequestException("size must be between 1 and " + maxSuggestSize);
+    }
+    // Not logged: it is called on every keystroke.
+    return noteSuggester.suggest(prefix, size);
+  }
+
+  private String encodeCursor(NoteSearchCursor cursor) throws IOException {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(objectMapper.writeValueAsBytes(cursor));
+  }
+
+  private NoteSearchCursor decodeCursor(String cursor) {
+    try {
+      return objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), NoteSearchCursor.class);
+    } catch (IOException | IllegalArgumentException e) {
+      throw new BadRequestException("Invalid cursor: " + cursor);
+    }
   }
 
   @POST
@@ -87,6 +235,17 @@ public class NoteResource {
     return NoteResponse.fromNote(created);
   }
 
+  @POST
+  @Path("_bulk")
+  public NoteBulkResponse bulk(List<NoteBulkOperation> operations) {
+    if (operations == null || operations.isEmpty() || operations.size() > maxBulkOperations) {
+      throw new BadRequestException(
+          "A bulk request needs between 1 and " + maxBulkOperations + " operations");
+    }
+    logger.info("Running bulk request with " + operations.size() + " operations");
+    return NoteBulkResponse.of(noteService.bulk(operations));
+  }
+
   @PUT
   @Path("{id}")
   public NoteResponse update(@PathParam("id") String id, NoteData data) {
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A search index for notes. The implementation is picked with {@code notes.search.backend}; see
+ * {@link NoteSearchBackendType}.
+ */
+interface NoteSearchBackend {
+
+  /**
+   * Applies versioned {@code changes}. Returns the IDs that failed; a change older than what the
+   * index already holds is skipped, not failed.
+   */
+  Set<String> apply(List<NoteChange> changes) throws Exception;
+
+  /**
+   * Returns the index if it lives on this replica, or null. Every replica then follows the change
+   * stream itself, and the stream position is kept by the index rather than shared in Mongo.
+   */
+  default LocalNoteIndex localIndex() {
+    return null;
+  }
+
+  /** Returns a page of up to {@code size} hits for {@code q}, best match first. */
+  NoteSearchResult search(String q, int size, NoteSearchCursor after) throws Exception;
+
+  /** Returns up to {@code size} distinct note titles starting with {@code prefix}. */
+  List<String> suggest(String prefix, int size) throws Exception;
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/** Exposes the configured {@link NoteSearchBackend}; only that backend's bean is created. */
+@ApplicationScoped
+class NoteSearchBackendProducer {
+
+  @Produces
+  @ApplicationScoped
+  NoteSearchBackend searchBackend(
+      @ConfigProperty(name = "notes.search.backend") NoteSearchBackendType type,
+      Instance<NoteSearchRepository> openSearch,
+      Instance<LuceneNoteSearchBackend> lucene) {
+    return switch (type) {
+      case OPENSEARCH -> openSearch.get();
+      case LUCENE -> lucene.get();
+    };
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.value.ValueCommands;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * In-process cache of search result pages, invalidated on every replica by a notes generation
+ * counter in Redis.
+ */
+@ApplicationScoped
+public class NoteSearchCache {
+
+  static final String GENERATION_KEY = "notes:generation";
+
+  // Rough per-entry cost of the cache node and array headers on top of the key and value bytes
+  private static final int ENTRY_OVERHEAD = 64;
+
+  /** Runs the search on a cache miss. */
+  @FunctionalInterface
+  interface Loader {
+    NoteSearchResult load() throws Exception;
+  }
+
+  private final boolean enabled;
+  private final Cache<String, byte[]> pages;
+  private final SingleFlight<String, NoteSearchResult> searches = new SingleFlight<>();
+  private final ValueCommands<String, Long> generations;
+  private final ObjectMapper objectMapper;
+  private final Duration visibilityDelay;
+  // System.nanoTime() by which the pending delayed invalidation is due, 0 when none is pending
+  private final AtomicLong delayedInvalidation = new AtomicLong();
+  private final Timer hitLatency;
+  private final Timer missLatency;
+  private final Timer bypassLatency;
+  private final Logger logger;
+
+  public NoteSearchCache(
+      RedisDataSource dataSource,
+      ObjectMapper objectMapper,
+      MeterRegistry registry,
+      @ConfigProperty(name = "notes.search.cache.enabled") boolean enabled,
+      @ConfigProperty(name = "notes.search.cache.max-memory") MemorySize maxMemory,
+      @ConfigProperty(name = "notes.search.cache.ttl") Duration ttl,
+      @ConfigProperty(name = "notes.search.cache.visibility-delay") Duration visibilityDelay,
+      Logger logger) {
+    this.enabled = enabled;
+    this.pages = Caffeine.newBuilder()
+        .maximumWeight(maxMemory.asLongValue())
+        .<String, byte[]>weigher((key, page) -> 2 * key.length() + page.length + ENTRY_OVERHEAD)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    this.generations = dataSource.value(String.class, Long.class);
+    this.objectMapper = objectMapper;
+    this.visibilityDelay = visibilityDelay;
+    CaffeineCacheMetrics.monitor(registry, pages, "notes.search");
+    Gauge.builder("notes.search.cache.hit.ratio", pages, cache -> cache.stats().hitRate())
+        .description("Share of search page lookups served from the cache")
+        .register(registry);
+    this.hitLatency = latency(registry, "hit");
+    this.missLatency = latency(registry, "miss");
+    this.bypassLatency = latency(registry, "bypass");
+    this.logger = logger;
+  }
+
+  private static Timer latency(MeterRegistry registry, String cache) {
+    return Timer.builder("notes.search.latency")
+        .description("Search page latency by cache result")
+        .tag("cache", cache)
+        .publishPercentileHistogram()
+        .register(registry);
+  }
+
+  /**
+   * Returns the page from the cache, or from {@code loader} when it is missing or the generation
+   * cannot be read from Redis. Concurrent identical searches share a single {@code loader} call,
+   * so a trending query reaches OpenSearch once rather than once per request.
+   */
+  NoteSearchResult get(String q, int size, NoteSearchCursor after, Loader loader)
+      throws Exception {
+    var started = System.nanoTime();
+    // Uncached searches use generation -1 keys, which are still coalesced.
+    if (!enabled) {
+      return timed(bypassLatency, started, searches.execute(key(-1, q, size, after), loader::load));
+    }
+    Long generation;
+    try {
+      generation = generations.get(GENERATION_KEY);
+    } catch (RuntimeException e) {
+      // Without the generation a cached page might be stale.
+      logger.warn("Failed to read the notes generation from Redis, bypassing the search cache", e);
+      return timed(bypassLatency, started, searches.execute(key(-1, q, size, after), loader::load));
+    }
+    var key = key(generation == null ? 0 : generation, q, size, after);
+
+    var cached = pages.getIfPresent(key);
+    if (cached != null) {
+      return timed(hitLatency, started, objectMapper.readValue(cached, NoteSearchResult.class));
+    }
+    var result = searches.execute(key, () -> {
+      var loaded = loader.load();
+      // Degraded pages are only a stand-in until OpenSearch answers again.
+      if (!loaded.degraded()) {
+        pages.put(key, objectMapper.writeValueAsBytes(loaded));
+      }
+      return loaded;
+    });
+    return timed(missLatency, started, result);
+  }
+
+  private static NoteSearchResult timed(Timer timer, long started, NoteSearchResult result) {
+    timer.record(Duration.ofNanos(System.nanoTime() - started));
+    return result;
+  }
+
+  /**
+   * Queries that only differ in case or whitespace analyze to the same terms, so they share an
+   * entry. A cursor page is only shared by readers of the same point-in-time, since another
+   * snapshot can hold different hits after the same position.
+   */
+  static String key(long generation, String q, int size, NoteSearchCursor after) {
+    var normalized = q == null ? "" : q.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    var key = new StringBuilder()
+        .append(generation).append('\n')
+        .append(size).append('\n');
+    if (after != null) {
+      key.append(after.pitId()).append(':').append(after.score()).append(':').append(after.id());
+    }
+    return key.append('\n').append(normalized).toString();
+  }
+
+  void onNotesChanged(@Observes NotesChanged event) {
+    invalidate();
+  }
+
+  /** Makes every cached page unreachable on every replica. */
+  public void invalidate() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      generations.incr(GENERATION_KEY);
+    } catch (RuntimeException e) {
+      logger.error("Failed to bump the notes generation in Redis", e);
+    }
+  }
+
+  /**
+   * Invalidates now and once more after the index refreshes, so a page cached between the index
+   * write and the refresh does not survive it. Called once per indexed batch; the delayed
+   * invalidations of batches that arrive while one is pending are coalesced into it.
+   */
+  void invalidateAfterIndexing() {
+    invalidate();
+    if (!enabled) {
+      return;
+    }
+    var due = System.nanoTime() + visibilityDelay.toNanos();
+    if (delayedInvalidation.getAndSet(due) == 0) {
+      Thread.ofVirtual().name("note-search-cache-invalidation").start(this::invalidateWhenDue);
+    }
+  }
+
+  // Runs until no batch moved the due time while it waited, invalidating at least once per
+  // visibility delay so a steady stream of batches cannot postpone it forever. A batch arriving
+  // after the final compareAndSet sees 0 and starts the next waiter.
+  private void invalidateWhenDue() {
+    var due = delayedInvalidation.get();
+    while (true) {
+      try {
+        Thread.sleep(Duration.ofNanos(Math.max(0, due - System.nanoTime())));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        delayedInvalidation.set(0);
+        return;
+      }
+      invalidate();
+      if (delayedInvalidation.compareAndSet(due, 0)) {
+        return;
+      }
+      due = delayedInvalidation.get();
+    }
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+/**
+ * Position in a paged search: the point-in-time the pages are read from and the sort values of
+ * the last hit returned, which the next page continues after. A cursor without a point-in-time
+ * comes from the Mongo text index fallback, and its score is a Mongo text score.
+ */
+record NoteSearchCursor(String pitId, double score, String id) {
+
+  boolean fromTextIndex() {
+    return pitId == null;
+  }
+}
@@ -19,56 +19,264 @@ package com.adjectivemonk2.note;
 import com.adjectivemonk2.note.model.Note;
 import com.adjectivemonk2.note.model.NoteDocument;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch._types.SortOrder;
+import org.opensearch.client.opensearch._types.VersionType;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
-import org.opensearch.client.opensearch.core.DeleteResponse;
-import org.opensearch.client.opensearch.core.IndexResponse;
-import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
 
+/**
+ * Reads and writes the notes search index through the {@value NoteIndexAdmin#ALIAS} alias. While
+ * a reindex is running, every write is also applied to the index being built, which is found
+ * through {@link NoteReindexRoute}.
+ */
 @ApplicationScoped
-public class NoteSearchRepository {
+@Typed(NoteSearchRepository.class)
+public class NoteSearchRepository implements NoteSearchBackend {
+
+  private static final String INDEX_NAME = NoteIndexAdmin.ALIAS;
 
-  private static final String INDEX_NAME = "notes";
+  static final int VERSION_CONFLICT = 409;
+  private static final int NOT_FOUND = 404;
+  private static final String SUGGESTER = "titles";
 
   private final OpenSearchClient client;
+  private final NoteIndexAdmin indexAdmin;
+  private final NoteSearchCache searchCache;
+  private final NoteReindexRoute reindexRoute;
+  private final String pitKeepAlive;
+  private final boolean storeSource;
   private final Logger logger;
 
-  public NoteSearchRepository(OpenSearchClient client, Logger logger) {
+  public NoteSearchRepository(
+      OpenSearchClient client,
+      NoteIndexAdmin indexAdmin,
+      NoteSearchCache searchCache,
+      NoteReindexRoute reindexRoute,
+      @ConfigProperty(name = "notes.search.pit-keep-alive") String pitKeepAlive,
+      @ConfigProperty(name = "notes.search.store-source") boolean storeSource,
+      Logger logger) {
     this.client = client;
+    this.indexAdmin = indexAdmin;
+    this.searchCache = searchCache;
+    this.reindexRoute = reindexRoute;
+    this.pitKeepAlive = pitKeepAlive;
+    this.storeSource = storeSource;
     this.logger = logger;
   }
 
-  public IndexResponse index(Note note) throws Exception {
-    var id = note.id().toHexString();
-    logger.info("Indexing note in OpenSearch: " + id);
-    return client.index(builder ->
-        builder
-            .index(INDEX_NAME)
-            .id(id)
-            .document(new NoteDocument(id, note.title(), note.content())));
+  /** Returns the alias plus the index a running reindex is building, if any. */
+  private List<String> writeIndices() {
+    var target = reindexRoute.target();
+    return target != null ? List.of(INDEX_NAME, target) : List.of(INDEX_NAME);
+  }
+
+  @Override
+  public Set<String> apply(List<NoteChange> changes) throws Exception {
+    return failedIds(bulkChanges(changes));
+  }
+
+  private static Set<String> failedIds(BulkResponse response) {
+    var failed = new HashSet<String>();
+    response.items().stream()
+        .filter(item -> item.error() != null && item.status() != VERSION_CONFLICT)
+        .forEach(item -> failed.add(item.id()));
+    return failed;
   }
 
-  public DeleteResponse delete(String id) throws Exception {
-    logger.info("Deleting note from OpenSearch: " + id);
-    return client.delete(builder -> builder.index(INDEX_NAME).id(id));
+  /**
+   * Applies {@code changes} in a single {@code _bulk} request using external versioning, so a
+   * change that is older than what the index already holds is rejected with a version conflict
+   * instead of overwriting it. Conflicts are expected and not logged.
+   */
+  BulkResponse bulkChanges(List<NoteChange> changes) throws Exception {
+    indexAdmin.requireBootstrapped();
+    var indices = writeIndices();
+    var operations = new ArrayList<BulkOperation>(changes.size() * indices.size());
+    for (var indexName : indices) {
+      for (var change : changes) {
+        if (change.note() != null) {
+          var document = NoteDocument.fromNote(change.note());
+          operations.add(BulkOperation.of(op -> op.index(index -> index
+              .index(indexName)
+              .id(change.id())
+              .document(document)
+              .version(change.version())
+              .versionType(VersionType.External))));
+        } else {
+          operations.add(BulkOperation.of(op -> op.delete(delete -> delete
+              .index(indexName)
+              .id(change.id())
+              .version(change.version())
+              .versionType(VersionType.External))));
+        }
+      }
+    }
+    logger.info("Applying " + changes.size() + " note changes to " + indices);
+    try {
+      return execute(operations);
+    } finally {
+      searchCache.invalidateAfterIndexing();
+    }
   }
 
-  public List<NoteDocument> search(String q) throws Exception {
+  /**
+   * Copies {@code notes} into {@code index} during a reindex, with {@code version} as their
+   * external version. The version is older than any write the copy did not see, so a live write
+   * or delete that reached the index first, including the tombstone of a delete, wins over the
+   * copy. The resulting version conflicts are expected and not logged.
+   */
+  BulkResponse load(String index, List<Note> notes, long version) throws Exception {
+    var operations = new ArrayList<BulkOperation>(notes.size());
+    for (var note : notes) {
+      var document = NoteDocument.fromNote(note);
+      operations.add(BulkOperation.of(op -> op.index(write -> write
+          .index(index)
+          .id(document.id())
+          .document(document)
+          .version(version)
+          .versionType(VersionType.External))));
+    }
+    return execute(operations);
+  }
+
+  private BulkResponse execute(List<BulkOperation> operations) throws Exception {
+    var response = client.bulk(builder -> builder.operations(operations));
+    if (response.errors()) {
+      response.items().stream()
+          .filter(item -> item.error() != null && item.status() != VERSION_CONFLICT)
+          .forEach(item -> logger.error("Bulk " + item.operationType() + " failed for note "
+              + item.id() + " in " + item.index() + ": " + item.error().reason()));
+    }
+    return response;
+  }
+
+  /**
+   * Returns up to {@code size} hits for {@code q}, best match first. The first page is read from
+   * the live index, so a search that fits on one page is one request. When there are more hits, a
+   * point-in-time is opened for the pages after it and closed after the last one, and each page
+   * continues with {@code search_after} from the previous page's last hit, so a deep page costs as
+   * much as the first one. Abandoned point-in-times expire after {@code
+   * notes.search.pit-keep-alive}; a cursor whose point-in-time is gone continues from the same
+   * position in a new one.
+   *
+   * <p>Without {@code notes.search.store-source} the hits only carry note IDs, and no {@code
+   * _source} is fetched.
+   */
+  @Override
+  public NoteSearchResult search(String q, int size, NoteSearchCursor after) throws Exception {
     var qQuery = Query.of(query ->
         query.multiMatch(mm -> mm.query(q).fields("title", "content")));
+    if (after != null) {
+      try {
+        return search(qQuery, size, after.pitId(), after);
+      } catch (OpenSearchException e) {
+        if (e.status() != NOT_FOUND) {
+          throw e;
+        }
+        // Expired, or closed by another reader of a cached page that reached the last page.
+        logger.info("Point-in-time of the search cursor is gone, continuing on the live index");
+      }
+    }
+    return search(qQuery, size, null, after);
+  }
 
-    var response = client.search(
-        request -> request.index(INDEX_NAME).query(qQuery),
-        NoteDocument.class);
+  /** Reads a page from {@code pitId}, or from the live index if it is null. */
+  private NoteSearchResult search(Query qQuery, int size, String pitId, NoteSearchCursor after)
+      throws Exception {
+    var response = client.search(request -> {
+      if (pitId != null) {
+        request.pit(pit -> pit.id(pitId).keepAlive(pitKeepAlive));
+      } else {
+        request.index(INDEX_NAME);
+      }
+      request.query(qQuery)
+          .size(size + 1)
+          .source(source -> source.fetch(storeSource))
+          .sort(sort -> sort.score(score -> score.order(SortOrder.Desc)))
+          .sort(sort -> sort.field(field -> field.field("id").order(SortOrder.Asc)));
+      if (after != null) {
+        request.searchAfter(FieldValue.of(after.score()), FieldValue.of(after.id()));
+      }
+      return request;
+    }, NoteDocument.class);
 
     var hits = response.hits().hits();
-    logger.info("Found " + hits.size() + " notes for q=" + q);
-    return hits.stream()
-        .map(Hit::source)
+    var hasMore = hits.size() > size;
+    var page = hasMore ? hits.subList(0, size) : hits;
+    logger.info("Found " + page.size() + " notes" + (hasMore ? " with more" : ""));
+    var documents = page.stream()
+        .map(hit -> storeSource ? hit.source() : new NoteDocument(hit.id(), null, null))
         .filter(Objects::nonNull)
         .toList();
+    if (!hasMore) {
+      if (pitId != null) {
+        closePit(pitId);
+      }
+      return new NoteSearchResult(documents, null, false);
+    }
+    // The point-in-time id can change between requests; the latest one must be used. Opened
+    // after this page was read, so the next page can differ from it by the writes in between.
+    var nextPitId = pitId == null ? openPit()
+        : response.pitId() != null ? response.pitId() : pitId;
+    var sortValues = page.getLast().sort();
+    var next = new NoteSearchCursor(nextPitId, number(sortValues.get(0)),
+        sortValues.get(1).stringValue());
+    return new NoteSearchResult(documents, next, false);
+  }
+
+  /**
+   * Returns up to {@code size} distinct note titles starting with {@code prefix}, from the
+   * completion suggester. Suggestions are served from an in-memory structure without scoring
+   * documents, which keeps them fast enough for as-you-type lookups.
+   */
+  @Override
+  public List<String> suggest(String prefix, int size) throws Exception {
+    var response = client.search(request -> request
+        .index(INDEX_NAME)
+        .source(source -> source.fetch(false))
+        .suggest(suggest -> suggest
+            .suggesters(SUGGESTER, suggester -> suggester
+                .prefix(prefix)
+                .completion(completion -> completion
+                    .field(NoteIndexAdmin.TITLE_SUGGEST_FIELD)
+                    .size(size)
+                    .skipDuplicates(true)))),
+        NoteDocument.class);
+    return response.suggest().getOrDefault(SUGGESTER, List.of()).stream()
+        .flatMap(suggestion -> suggestion.completion().options().stream())
+        .map(option -> option.text())
+        .toList();
+  }
+
+  private String openPit() throws Exception {
+    return client.createPit(request -> request
+        .targetIndexes(INDEX_NAME)
+        .keepAlive(time -> time.time(pitKeepAlive)))
+        .pitId();
+  }
+
+  private void closePit(String pitId) {
+    try {
+      client.deletePit(request -> request.pitId(pitId));
+    } catch (Exception e) {
+      // It expires on its own after the keep-alive.
+      logger.warn("Failed to close point-in-time " + pitId, e);
+    }
+  }
+
+  private static double number(FieldValue value) {
+    return value.isLong() ? value.longValue() : value.doubleValue();
   }
 }
@@ -0,0 +1,26 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.NoteDocument;
+import java.util.List;
+
+/**
+ * One page of search hits and the cursor for the next page, or null if this is the last. A
+ * degraded page was answered by the Mongo text index because OpenSearch was unavailable.
+ */
+record NoteSearchResult(List<NoteDocument> documents, NoteSearchCursor next, boolean degraded) {}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.faulttolerance.api.TypedGuard;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.ServiceUnavailableException;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Runs searches within a deadline and behind a circuit breaker, falling back to the Mongo text
+ * index.
+ */
+@ApplicationScoped
+public class NoteSearchService {
+
+  private final NoteSearchBackend searchBackend;
+  private final NoteRepository noteRepository;
+  private final NoteCache noteCache;
+  private final boolean storeSource;
+  private final TypedGuard<NoteSearchResult> guard;
+  private final Duration deadline;
+  private final Duration breakerDelay;
+  private final Counter degraded;
+  private final Logger logger;
+
+  public NoteSearchService(
+      NoteSearchBackend searchBackend,
+      NoteRepository noteRepository,
+      NoteCache noteCache,
+      MeterRegistry registry,
+      @ConfigProperty(name = "notes.search.store-source") boolean storeSource,
+      @ConfigProperty(name = "notes.search.deadline") Duration deadline,
+      @ConfigProperty(name = "notes.search.circuit-breaker.request-volume-threshold")
+          int requestVolumeThreshold,
+      @ConfigProperty(name = "notes.search.circuit-breaker.failure-ratio") double failureRatio,
+      @ConfigProperty(name = "notes.search.circuit-breaker.delay") Duration breakerDelay,
+      Logger logger) {
+    this.searchBackend = searchBackend;
+    this.noteRepository = noteRepository;
+    this.noteCache = noteCache;
+    this.storeSource = storeSource;
+    this.deadline = deadline;
+    this.breakerDelay = breakerDelay;
+    this.guard = TypedGuard.create(NoteSearchResult.class)
+        .withDescription("note-search")
+        .withTimeout()
+            .duration(deadline.toMillis(), ChronoUnit.MILLIS)
+            .done()
+        .withCircuitBreaker()
+            .name("note-search")
+            .requestVolumeThreshold(requestVolumeThreshold)
+            .failureRatio(failureRatio)
+            .delay(breakerDelay.toMillis(), ChronoUnit.MILLIS)
+            .done()
+        .build();
+    this.degraded = Counter.builder("notes.search.degraded")
+        .description("Searches answered from the Mongo text index instead of the search backend")
+        .register(registry);
+    this.logger = logger;
+  }
+
+  NoteSearchResult search(String q, int size, NoteSearchCursor after) throws Exception {
+    if (after != null && after.fromTextIndex()) {
+      return textSearch(q, size, after);
+    }
+    NoteSearchResult result;
+    try {
+      result = guard.call(() -> searchBackend.search(q, size, after));
+    } catch (Exception e) {
+      if (after != null) {
+        throw new ServiceUnavailableException("Search is degraded, start the search again",
+            breakerDelay.toSeconds());
+      }
+      logger.warn("Search backend failed, answering from the Mongo text index: " + e);
+      return textSearch(q, size, null);
+    }
+    return storeSource ? result : hydrate(result);
+  }
+
+  /**
+   * Fills in ID-only hits from the note cache and Mongo with one batched lookup, keeping their
+   * order. Hits whose note is gone from Mongo are dropped, so such a page can be short.
+   */
+  private NoteSearchResult hydrate(NoteSearchResult result) {
+    var ids = result.documents().stream().map(NoteDocument::id).toList();
+    if (ids.isEmpty()) {
+      return result;
+    }
+    var notes = noteCache.getAll(ids, this::findByIds);
+    var documents = ids.stream()
+        .map(notes::get)
+        .filter(Objects::nonNull)
+        .map(NoteDocument::fromNote)
+        .toList();
+    return new NoteSearchResult(documents, result.next(), result.degraded());
+  }
+
+  private Map<String, Note> findByIds(Collection<String> ids) {
+    var notes = new HashMap<String, Note>();
+    for (var note : noteRepository.findByIds(ids.stream().map(ObjectId::new).toList())) {
+      notes.put(note.id().toHexString(), note);
+    }
+    return notes;
+  }
+
+  private NoteSearchResult textSearch(String q, int size, NoteSearchCursor after) {
+    degraded.increment();
+    var matches = after == null
+        ? noteRepository.textSearch(q, size + 1, null, 0, deadline)
+        : noteRepository.textSearch(q, size + 1, new ObjectId(after.id()), after.score(), deadline);
+    var hasMore = matches.size() > size;
+    var page = hasMore ? matches.subList(0, size) : matches;
+    var documents = page.stream()
+        .map(match -> NoteDocument.fromNote(match.note()))
+        .toList();
+    if (!hasMore) {
+      return new NoteSearchResult(documents, null, true);
+    }
+    var last = page.getLast();
+    var next = new NoteSearchCursor(null, last.score(), last.note().id().toHexString());
+    return new NoteSearchResult(documents, next, true);
+  }
+}
@@ -17,66 +17,311 @@
 package com.adjectivemonk2.note;
 
 import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteBulkItemResult;
+import com.adjectivemonk2.note.model.NoteBulkOperation;
+import com.adjectivemonk2.note.model.NoteBulkOperation.Action;
 import com.adjectivemonk2.note.model.NoteData;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.ws.rs.core.Response.Status;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+/**
+ * In {@link NoteIndexingMode#OUTBOX} mode, note writes go to Mongo together with an index task in
+ * {@link NoteIndexOutbox}, in one transaction, and {@link NoteIndexer} applies the tasks to
+ * OpenSearch off the request path. In {@link NoteIndexingMode#CHANGE_STREAM} mode writes only go
+ * to Mongo and {@link NoteChangeStreamIndexer} picks them up from the change stream.
+ *
+ * <p>Every committed write fires a {@link NotesChanged} event, which caches use to invalidate.
+ */
 @ApplicationScoped
 public class NoteService {
 
+  // Status of a bulk operation that was rolled back because another one in its transaction failed
+  private static final int FAILED_DEPENDENCY = 424;
+
   private final NoteRepository noteRepository;
-  private final NoteSearchRepository noteSearchRepository;
+  private final NoteIndexOutbox outbox;
+  private final NoteCache noteCache;
+  private final Event<NotesChanged> notesChanged;
+  private final boolean useOutbox;
   private final Logger logger;
 
   public NoteService(
       NoteRepository noteRepository,
-      NoteSearchRepository noteSearchRepository,
+      NoteIndexOutbox outbox,
+      NoteCache noteCache,
+      Event<NotesChanged> notesChanged,
+      @ConfigProperty(name = "notes.indexing.mode") NoteIndexingMode indexingMode,
       Logger logger) {
     this.noteRepository = noteRepository;
-    this.noteSearchRepository = noteSearchRepository;
+    this.outbox = outbox;
+    this.noteCache = noteCache;
+    this.notesChanged = notesChanged;
+    this.useOutbox = indexingMode == NoteIndexingMode.OUTBOX;
     this.logger = logger;
   }
 
-  public List<Note> findAll() {
-    return noteRepository.findAll();
+  public List<Note> findPage(String after, int limit) {
+    return noteRepository.findPage(after != null ? new ObjectId(after) : null, limit);
+  }
+
+  public void forEach(int batchSize, Consumer<Note> action) {
+    noteRepository.forEach(batchSize, action);
   }
 
   public Note findById(String id) {
-    return noteRepository.findById(id);
+    return noteCache.get(id, noteRepository::findById);
   }
 
   public Note create(NoteData data) {
-    var note = noteRepository.create(data);
-    try {
-      noteSearchRepository.index(note);
-    } catch (Exception e) {
-      logger.error("Failed to index note in OpenSearch: " + note.id().toHexString(), e);
+    Note note;
+    if (useOutbox) {
+      note = noteRepository.inTransaction(session -> {
+        var created = noteRepository.create(session, data);
+        outbox.enqueue(session, List.of(created.id()));
+        return created;
+      });
+    } else {
+      note = noteRepository.create(data);
     }
+    notesChanged.fire(NotesChanged.created(note));
     return note;
   }
 
   public Note update(String id, NoteData data) {
-    var note = noteRepository.update(id, data);
+    Note note;
+    if (useOutbox) {
+      note = noteRepository.inTransaction(session -> {
+        var updated = noteRepository.update(session, id, data);
+        if (updated != null) {
+          outbox.enqueue(session, List.of(updated.id()));
+        }
+        return updated;
+      });
+    } else {
+      note = noteRepository.update(id, data);
+    }
     if (note != null) {
-      try {
-        noteSearchRepository.index(note);
-      } catch (Exception e) {
-        logger.error("Failed to re-index note in OpenSearch: " + id, e);
-      }
+      notesChanged.fire(NotesChanged.updated(note));
     }
     return note;
   }
 
   public boolean delete(String id) {
-    var deleted = noteRepository.delete(id);
+    boolean deleted;
+    if (useOutbox) {
+      deleted = noteRepository.inTransaction(session -> {
+        var removed = noteRepository.delete(session, id);
+        if (removed) {
+          outbox.enqueue(session, List.of(new ObjectId(id)));
+        }
+        return removed;
+      });
+    } else {
+      deleted = noteRepository.delete(id);
+    }
     if (deleted) {
-      try {
-        noteSearchRepository.delete(id);
-      } catch (Exception e) {
-        logger.error("Failed to delete note from OpenSearch: " + id, e);
-      }
+      notesChanged.fire(NotesChanged.deleted(id));
     }
     return deleted;
   }
+
+  /**
+   * Runs a batch of create, update and delete operations as one unordered Mongo bulk write and
+   * returns a result per operation in request order. The existence check for updates and deletes
+   * and the writes share one transaction, together with the index tasks when the outbox is used,
+   * so a note deleted concurrently aborts and retries the transaction instead of being reported
+   * as written. A write error therefore rolls the whole batch back.
+   */
+  public List<NoteBulkItemResult> bulk(List<NoteBulkOperation> operations) {
+    var results = new NoteBulkItemResult[operations.size()];
+
+    // Unordered writes to the same note would apply in an undefined order, so reject them all.
+    var idCounts = new HashMap<String, Integer>();
+    for (var operation : operations) {
+      if (operation.action() != null && operation.action() != Action.CREATE) {
+        idCounts.merge(String.valueOf(operation.id()), 1, Integer::sum);
+      }
+    }
+    var referencedIds = new ArrayList<ObjectId>();
+    for (var i = 0; i < operations.size(); i++) {
+      var operation = operations.get(i);
+      var error = validate(operation);
+      if (error == null && operation.action() != Action.CREATE
+          && idCounts.get(operation.id()) > 1) {
+        error = "Note " + operation.id() + " appears in more than one operation";
+      }
+      if (error != null) {
+        results[i] = NoteBulkItemResult.failure(
+            operation.action(), operation.id(), Status.BAD_REQUEST.getStatusCode(), error);
+      } else if (operation.action() != Action.CREATE) {
+        referencedIds.add(new ObjectId(operation.id()));
+      }
+    }
+    // Created notes get their IDs outside the transaction, so a retry does not change them.
+    var createdNotes = new HashMap<Integer, Note>();
+    for (var i = 0; i < operations.size(); i++) {
+      if (results[i] == null && operations.get(i).action() == Action.CREATE) {
+        createdNotes.put(i, Note.of(new ObjectId(), operations.get(i).data()));
+      }
+    }
+
+    // The plan of the last attempt, which a write error refers to.
+    var lastPlan = new AtomicReference<BulkPlan>();
+    Map<Integer, WriteFailure> writeErrors;
+    try {
+      noteRepository.inTransaction(session -> {
+        var existingIds = noteRepository.findExistingIds(session, referencedIds);
+        var attempt = plan(operations, results, createdNotes, existingIds);
+        lastPlan.set(attempt);
+        if (attempt.writes().isEmpty()) {
+          return attempt;
+        }
+        var result = noteRepository.bulkWrite(session, attempt.writes());
+        if (result.getMatchedCount() != attempt.updates()
+            || result.getDeletedCount() != attempt.deletes()) {
+          throw new IllegalStateException("Bulk write matched " + result.getMatchedCount()
+              + " of " + attempt.updates() + " updated and deleted " + result.getDeletedCount()
+              + " of " + attempt.deletes() + " deleted notes");
+        }
+        if (useOutbox) {
+          outbox.enqueue(session, attempt.writtenIds());
+        }
+        return attempt;
+      });
+      writeErrors = Map.of();
+    } catch (MongoBulkWriteException e) {
+      logger.error("Bulk write to Mongo failed with " + e.getWriteErrors().size() + " errors", e);
+      writeErrors = new HashMap<>();
+      for (var error : e.getWriteErrors()) {
+        writeErrors.put(error.getIndex(),
+            new WriteFailure(Status.INTERNAL_SERVER_ERROR.getStatusCode(), error.getMessage()));
+      }
+    }
+    var plan = lastPlan.get();
+    plan.notFound().forEach(i -> results[i] = NoteBulkItemResult.failure(
+        operations.get(i).action(), operations.get(i).id(), Status.NOT_FOUND.getStatusCode(),
+        "Note not found: " + operations.get(i).id()));
+
+    var created = new ArrayList<Note>();
+    var updated = new ArrayList<Note>();
+    var deleted = new ArrayList<String>();
+    for (var w = 0; w < plan.origins().size(); w++) {
+      int i = plan.origins().get(w);
+      var operation = operations.get(i);
+      var note = plan.notes().get(i);
+      var id = note != null ? note.id().toHexString() : operation.id();
+      if (!writeErrors.isEmpty()) {
+        // A write error aborts the transaction, so the other writes were rolled back.
+        var writeError = writeErrors.getOrDefault(w, new WriteFailure(FAILED_DEPENDENCY,
+            "Not applied: the transaction was rolled back after another operation failed"));
+        results[i] = NoteBulkItemResult.failure(
+            operation.action(), id, writeError.status(), writeError.message());
+        continue;
+      }
+      switch (operation.action()) {
+        case CREATE -> created.add(note);
+        case UPDATE -> updated.add(note);
+        case DELETE -> deleted.add(id);
+      }
+      results[i] = NoteBulkItemResult.success(operation.action(), id,
+          operation.action() == Action.CREATE
+              ? Status.CREATED.getStatusCode()
+              : Status.OK.getStatusCode());
+    }
+    if (!created.isEmpty() || !updated.isEmpty() || !deleted.isEmpty()) {
+      notesChanged.fire(new NotesChanged(created, updated, deleted));
+    }
+    return Arrays.asList(results);
+  }
+
+  /**
+   * The writes of a bulk request: {@code origins} holds the operation index of each write, and
+   * {@code notFound} the updates and deletes of notes that do not exist.
+   */
+  private record BulkPlan(
+      List<WriteModel<Note>> writes,
+      List<ObjectId> writtenIds,
+      List<Integer> origins,
+      Map<Integer, Note> notes,
+      List<Integer> notFound,
+      long updates,
+      long deletes) {}
+
+  private record WriteFailure(int status, String message) {}
+
+  /** Turns the operations without a result yet into writes, given the notes that exist. */
+  private static BulkPlan plan(List<NoteBulkOperation> operations, NoteBulkItemResult[] results,
+      Map<Integer, Note> createdNotes, Set<ObjectId> existingIds) {
+    var writes = new ArrayList<WriteModel<Note>>();
+    var writtenIds = new ArrayList<ObjectId>();
+    var origins = new ArrayList<Integer>();
+    var notes = new HashMap<Integer, Note>(createdNotes);
+    var notFound = new ArrayList<Integer>();
+    long updates = 0;
+    long deletes = 0;
+    for (var i = 0; i < operations.size(); i++) {
+      var operation = operations.get(i);
+      if (results[i] != null) {
+        continue;
+      }
+      if (operation.action() == Action.CREATE) {
+        var note = createdNotes.get(i);
+        writes.add(new InsertOneModel<>(note));
+        writtenIds.add(note.id());
+      } else {
+        var objectId = new ObjectId(operation.id());
+        if (!existingIds.contains(objectId)) {
+          notFound.add(i);
+          continue;
+        }
+        if (operation.action() == Action.UPDATE) {
+          var note = Note.of(objectId, operation.data());
+          writes.add(new ReplaceOneModel<>(Filters.eq("_id", objectId), note));
+          notes.put(i, note);
+          updates++;
+        } else {
+          writes.add(new DeleteOneModel<>(Filters.eq("_id", objectId)));
+          deletes++;
+        }
+        writtenIds.add(objectId);
+      }
+      origins.add(i);
+    }
+    return new BulkPlan(writes, writtenIds, origins, notes, notFound, updates, deletes);
+  }
+
+  private static String validate(NoteBulkOperation operation) {
+    if (operation.action() == null) {
+      return "action is required";
+    }
+    if (operation.action() != Action.CREATE && !isValidId(operation.id())) {
+      return "A valid id is required for " + operation.action().name().toLowerCase();
+    }
+    if (operation.action() != Action.DELETE && operation.data() == null) {
+      return "data is required for " + operation.action().name().toLowerCase();
+    }
+    return null;
+  }
+
+  private static boolean isValidId(String id) {
+    return id != null && ObjectId.isValid(id);
+  }
 }
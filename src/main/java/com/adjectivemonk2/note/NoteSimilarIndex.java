@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.Note;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Approximate nearest-neighbour index over {@link NoteVectorizer} vectors, kept in an HNSW graph by
+ * an embedded Lucene index in {@code notes.similar.directory}.
+ */
+@ApplicationScoped
+public class NoteSimilarIndex {
+
+  private static final String ID = "id";
+  private static final String VECTOR = "vector";
+  private static final String RESUME_TOKEN = "resumeToken";
+  private static final String VECTORIZER_VERSION = "vectorizer";
+  private static final Duration IDLE_CHECKPOINT_INTERVAL = Duration.ofMinutes(1);
+  // The saved position is no longer in the oplog, so only a rebuild can catch up.
+  private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+  private final NoteRepository noteRepository;
+  private final MongoClient mongoClient;
+  private final String databaseName;
+  private final boolean enabled;
+  private final Path path;
+  private final int rebuildBatchSize;
+  private final Duration maxAwaitTime;
+  private final Duration retryDelay;
+  private final Logger logger;
+
+  private final ReentrantLock closeLock = new ReentrantLock();
+  private volatile boolean closing;
+  // The stream position of the indexed notes; null until a rebuild has completed.
+  private volatile BsonDocument resumeToken;
+  private Directory directory;
+  private IndexWriter writer;
+  private SearcherManager searcherManager;
+  private Thread worker;
+
+  public NoteSimilarIndex(
+      NoteRepository noteRepository,
+      MongoClient mongoClient,
+      @ConfigProperty(name = "quarkus.mongodb.database") String databaseName,
+      @ConfigProperty(name = "notes.similar.enabled") boolean enabled,
+      @ConfigProperty(name = "notes.similar.directory") Path path,
+      @ConfigProperty(name = "notes.similar.rebuild-batch-size") int rebuildBatchSize,
+      @ConfigProperty(name = "notes.change-stream.max-await-time") Duration maxAwaitTime,
+      @ConfigProperty(name = "notes.change-stream.retry-delay") Duration retryDelay,
+      Logger logger) {
+    this.noteRepository = noteRepository;
+    this.mongoClient = mongoClient;
+    this.databaseName = databaseName;
+    this.enabled = enabled;
+    this.path = path;
+    this.rebuildBatchSize = rebuildBatchSize;
+    this.maxAwaitTime = maxAwaitTime;
+    this.retryDelay = retryDelay;
+    this.logger = logger;
+  }
+
+  void onStart(@Observes StartupEvent event) throws IOException {
+    if (!enabled) {
+      return;
+    }
+    var needsRebuild = open();
+    worker = Thread.ofVirtual().name("note-similar-index").start(() -> run(needsRebuild));
+  }
+
+  void onStop(@Observes ShutdownEvent event) throws Exception {
+    close();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Opens the index and returns whether it has to be rebuilt from Mongo. */
+  boolean open() throws IOException {
+    Files.createDirectories(path);
+    directory = new MMapDirectory(path);
+    if (DirectoryReader.indexExists(directory)) {
+      var userData = SegmentInfos.readLatestCommit(directory).getUserData();
+      var token = userData.get(RESUME_TOKEN);
+      if (token != null
+          && String.valueOf(NoteVectorizer.VERSION).equals(userData.get(VECTORIZER_VERSION))) {
+        resumeToken = BsonDocument.parse(token);
+      }
+    }
+    writer = new IndexWriter(directory, new IndexWriterConfig());
+    writer.setLiveCommitData(commitData());
+    searcherManager = new SearcherManager(writer, null);
+    return resumeToken == null;
+  }
+
+  void close() throws Exception {
+    closing = true;
+    if (worker != null) {
+      // The cursor wakes up at least once per max await time, at which point the loop exits.
+      worker.join(maxAwaitTime.multipliedBy(2));
+    }
+    closeLock.lock();
+    try {
+      if (writer == null) {
+        return;
+      }
+      searcherManager.close();
+      writer.setLiveCommitData(commitData());
+      writer.close();
+      directory.close();
+      writer = null;
+    } finally {
+      closeLock.unlock();
+    }
+  }
+
+  private Iterable<Map.Entry<String, String>> commitData() {
+    var token = resumeToken;
+    var version = String.valueOf(NoteVectorizer.VERSION);
+    return token == null
+        ? Map.of(VECTORIZER_VERSION, version).entrySet()
+        : Map.of(VECTORIZER_VERSION, version, RESUME_TOKEN, token.toJson()).entrySet();
+  }
+
+  /** Commits the changes since the last commit, along with their stream position. */
+  @Scheduled(
+      every = "${notes.similar.commit-interval}",
+      concurrentExecution = ConcurrentExecution.SKIP)
+  void commit() throws IOException {
+    closeLock.lock();
+    try {
+      if (writer != null && writer.hasUncommittedChanges()) {
+        writer.commit();
+      }
+    } finally {
+      closeLock.unlock();
+    }
+  }
+
+  private MongoCollection<Note> getNotes() {
+    return mongoClient.getDatabase(databaseName).getCollection("notes", Note.class);
+  }
+
+  private void saveResumeToken(BsonDocument resumeToken) {
+    this.resumeToken = resumeToken;
+    writer.setLiveCommitData(commitData());
+  }
+
+  private void run(boolean needsRebuild) {
+    var rebuild = needsRebuild;
+    while (!closing) {
+      try {
+        if (rebuild) {
+          rebuild();
+          rebuild = false;
+        }
+        follow();
+      } catch (MongoCommandException e) {
+        if (closing) {
+          return;
+        }
+        if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+          logger.warn("The similar notes index fell behind the oplog, rebuilding it");
+          rebuild = true;
+          continue;
+        }
+        logger.error("Following changes for the similar notes index failed, retrying in "
+            + retryDelay, e);
+      } catch (IOException | RuntimeException e) {
+        if (closing) {
+          return;
+        }
+        logger.error("Updating the similar notes index failed, retrying in " + retryDelay, e);
+      }
+      try {
+        Thread.sleep(retryDelay);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Replaces the index with the notes in Mongo. The stream position is taken first, so changes
+   * made during the rebuild are applied after it; a note changed meanwhile is indexed twice.
+   */
+  void rebuild() throws IOException {
+    logger.info("Rebuilding the similar notes index from Mongo");
+    BsonDocument position;
+    try (var cursor = getNotes().watch().cursor()) {
+      position = cursor.getResumeToken();
+    }
+    // Any commit before the rebuild completes leaves the index marked as needing one.
+    saveResumeToken(null);
+    var indexed = new AtomicLong();
+    writer.deleteAll();
+    noteRepository.forEach(rebuildBatchSize, note -> {
+      if (closing) {
+        throw new CancellationException("Shutting down");
+      }
+      try {
+        update(note);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      indexed.incrementAndGet();
+    });
+    saveResumeToken(position);
+    commit();
+    searcherManager.maybeRefreshBlocking();
+    logger.info("Rebuilt the similar notes index with " + indexed.get() + " notes");
+  }
+
+  private void follow() throws IOException {
+    var stream = getNotes()
+        .watch()
+        .fullDocument(FullDocument.UPDATE_LOOKUP)
+        .maxAwaitTime(maxAwaitTime.toMillis(), TimeUnit.MILLISECONDS)
+        // startAfter, unlike resumeAfter, also resumes after an invalidate event.
+        .startAfter(resumeToken);
+    var lastCheckpoint = Instant.now();
+    try (var cursor = stream.cursor()) {
+      while (!closing) {
+        var batch = new ArrayList<ChangeStreamDocument<Note>>();
+        ChangeStreamDocument<Note> event;
+        while (batch.size() < rebuildBatchSize && (event = cursor.tryNext()) != null) {
+          batch.add(event);
+        }
+        if (!batch.isEmpty()) {
+          apply(batch);
+          saveResumeToken(batch.getLast().getResumeToken());
+          lastCheckpoint = Instant.now();
+        } else if (Instant.now().isAfter(lastCheckpoint.plus(IDLE_CHECKPOINT_INTERVAL))
+            && cursor.getResumeToken() != null) {
+          // Keep the saved position recent while idle so it does not fall off the oplog.
+          saveResumeToken(cursor.getResumeToken());
+          lastCheckpoint = Instant.now();
+        }
+      }
+    }
+  }
+
+  private void apply(List<ChangeStreamDocument<Note>> events) throws IOException {
+    for (var event : events) {
+      var operationType = event.getOperationType();
+      if (operationType != OperationType.INSERT
+          && operationType != OperationType.UPDATE
+          && operationType != OperationType.REPLACE
+          && operationType != OperationType.DELETE) {
+        continue;
+      }
+      var id = event.getDocumentKey().getObjectId("_id").getValue().toHexString();
+      // An update whose note was deleted before the lookup has no full document.
+      var note = operationType == OperationType.DELETE ? null : event.getFullDocument();
+      if (note != null) {
+        update(note);
+      } else {
+        writer.deleteDocuments(new Term(ID, id));
+      }
+    }
+    searcherManager.maybeRefreshBlocking();
+  }
+
+  private void update(Note note) throws IOException {
+    var id = note.id().toHexString();
+    var vector = NoteVectorizer.vectorize(note.title(), note.content());
+    if (vector == null) {
+      // Nothing to compare by, so it is never similar to anything.
+      writer.deleteDocuments(new Term(ID, id));
+      return;
+    }
+    var document = new Document();
+    document.add(new StringField(ID, id, Field.Store.YES));
+    document.add(new KnnFloatVectorField(VECTOR, vector, VectorSimilarityFunction.DOT_PRODUCT));
+    writer.updateDocument(new Term(ID, id), document);
+  }
+
+  /** Returns the IDs of the {@code size} notes nearest to {@code vector}, nearest first. */
+  List<String> nearest(float[] vector, int size) throws IOException {
+    var searcher = searcherManager.acquire();
+    try {
+      var top = searcher.search(new KnnFloatVectorQuery(VECTOR, vector, size), size);
+      var storedFields = searcher.storedFields();
+      var ids = new ArrayList<String>(top.scoreDocs.length);
+      for (var hit : top.scoreDocs) {
+        ids.add(storedFields.document(hit.doc).get(ID));
+      }
+      return ids;
+    } finally {
+      searcherManager.release(searcher);
+    }
+  }
+
+  /** Returns up to {@code size} notes most similar to {@code note}, most similar first. */
+  public List<Note> similar(Note note, int size) throws IOException {
+    var vector = NoteVectorizer.vectorize(note.title(), note.content());
+    if (vector == null) {
+      return List.of();
+    }
+    var self = note.id().toHexString();
+    // One extra neighbour, since the note itself is usually the nearest one.
+    var ids = nearest(vector, size + 1).stream()
+        .filter(id -> !id.equals(self))
+        .limit(size)
+        .toList();
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    var rank = new HashMap<ObjectId, Integer>();
+    for (var id : ids) {
+      rank.put(new ObjectId(id), rank.size());
+    }
+    var notes = new ArrayList<>(noteRepository.findByIds(rank.keySet()));
+    notes.sort(Comparator.comparing(found -> rank.get(found.id())));
+    return notes;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/** Typeahead suggestions for note titles, with popular prefixes served from an in-process cache. */
+@ApplicationScoped
+public class NoteSuggester {
+
+  private final NoteSearchBackend searchBackend;
+  private final boolean cacheEnabled;
+  private final Cache<String, List<String>> prefixes;
+  // Misses per prefix that is not cached yet, so one-off prefixes do not evict popular ones
+  private final Cache<String, Integer> misses;
+  private final int admitAfter;
+  private final Timer hitLatency;
+  private final Timer missLatency;
+
+  public NoteSuggester(
+      NoteSearchBackend searchBackend,
+      MeterRegistry registry,
+      @ConfigProperty(name = "notes.suggest.cache.enabled") boolean cacheEnabled,
+      @ConfigProperty(name = "notes.suggest.cache.max-size") long cacheMaxSize,
+      @ConfigProperty(name = "notes.suggest.cache.ttl") Duration cacheTtl,
+      @ConfigProperty(name = "notes.suggest.cache.admit-after") int admitAfter) {
+    this.searchBackend = searchBackend;
+    this.cacheEnabled = cacheEnabled;
+    this.prefixes = Caffeine.newBuilder()
+        .maximumSize(cacheMaxSize)
+        .expireAfterWrite(cacheTtl)
+        .recordStats()
+        .build();
+    this.misses = Caffeine.newBuilder()
+        .maximumSize(cacheMaxSize)
+        .expireAfterWrite(cacheTtl)
+        .build();
+    this.admitAfter = admitAfter;
+    CaffeineCacheMetrics.monitor(registry, prefixes, "notes.suggest");
+    this.hitLatency = latency(registry, "hit");
+    this.missLatency = latency(registry, "miss");
+  }
+
+  private static Timer latency(MeterRegistry registry, String cache) {
+    return Timer.builder("notes.suggest.latency")
+        .description("Title suggestion latency by cache result")
+        .tag("cache", cache)
+        .publishPercentileHistogram()
+        .register(registry);
+  }
+
+  /** Returns up to {@code size} titles starting with {@code prefix}, ignoring case. */
+  public List<String> suggest(String prefix, int size) throws Exception {
+    var started = System.nanoTime();
+    // The completion field is analyzed with the simple analyzer, which lowercases.
+    var normalized = prefix.stripLeading().toLowerCase(Locale.ROOT);
+    var key = size + ":" + normalized;
+    var cached = cacheEnabled ? prefixes.getIfPresent(key) : null;
+    if (cached != null) {
+      hitLatency.record(Duration.ofNanos(System.nanoTime() - started));
+      return cached;
+    }
+    var titles = searchBackend.suggest(normalized, size);
+    if (cacheEnabled && misses.asMap().merge(key, 1, Integer::sum) >= admitAfter) {
+      misses.invalidate(key);
+      prefixes.put(key, titles);
+    }
+    missLatency.record(Duration.ofNanos(System.nanoTime() - started));
+    return titles;
+  }
+
+  /**
+   * Drops the cached prefixes of created titles. The event does not carry the previous title of an
+   * updated or deleted note, so those drop every cached prefix. Writes on other replicas and
+   * suggestions read before the index refreshed still wait for {@code notes.suggest.cache.ttl}.
+   */
+  void onNotesChanged(@Observes NotesChanged event) {
+    if (!cacheEnabled) {
+      return;
+    }
+    if (!event.updated().isEmpty() || !event.deletedIds().isEmpty()) {
+      prefixes.invalidateAll();
+      return;
+    }
+    var titles = event.created().stream()
+        .map(note -> note.title().toLowerCase(Locale.ROOT))
+        .toList();
+    prefixes.asMap().keySet().removeIf(key -> {
+      var prefix = key.substring(key.indexOf(':') + 1);
+      return titles.stream().anyMatch(title -> title.startsWith(prefix));
+    });
+  }
+}
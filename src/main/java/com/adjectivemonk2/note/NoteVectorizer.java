@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/** Turns a note into a unit vector of {@value #DIMENSIONS} floats by feature hashing. */
+final class NoteVectorizer {
+
+  static final int DIMENSIONS = 256;
+  /** Changes whenever the vectors do, so indexes holding older vectors are rebuilt. */
+  static final int VERSION = 1;
+
+  private static final int MIN_TERM_LENGTH = 3;
+  private static final float TITLE_WEIGHT = 2;
+  private static final Set<String> STOP_WORDS = Set.of(
+      "about", "after", "all", "also", "and", "any", "are", "been", "but", "can", "for", "from",
+      "had", "has", "have", "her", "his", "how", "into", "its", "not", "one", "our", "out", "she",
+      "than", "that", "the", "their", "them", "then", "there", "these", "they", "this", "was",
+      "were", "what", "when", "which", "who", "will", "with", "would", "you", "your");
+
+  private NoteVectorizer() {}
+
+  /** Returns the vector of a note, or null when it has no terms to compare by. */
+  static float[] vectorize(String title, String content) {
+    var frequencies = new HashMap<String, Float>();
+    addTerms(title, TITLE_WEIGHT, frequencies);
+    addTerms(content, 1, frequencies);
+    if (frequencies.isEmpty()) {
+      return null;
+    }
+    var vector = new float[DIMENSIONS];
+    for (var entry : frequencies.entrySet()) {
+      var hash = hash(entry.getKey());
+      var weight = (float) (1 + Math.log(entry.getValue()));
+      // The sign bit keeps colliding terms from always adding up.
+      vector[(hash >>> 1) % DIMENSIONS] += (hash & 1) == 0 ? weight : -weight;
+    }
+    var norm = 0.0;
+    for (var value : vector) {
+      norm += value * value;
+    }
+    if (norm == 0) {
+      return null;
+    }
+    var scale = (float) (1 / Math.sqrt(norm));
+    for (var i = 0; i < vector.length; i++) {
+      vector[i] *= scale;
+    }
+    return vector;
+  }
+
+  static float dotProduct(float[] a, float[] b) {
+    var sum = 0f;
+    for (var i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  /** Adds the lowercased letter and digit runs of {@code text} that are worth comparing. */
+  private static void addTerms(String text, float weight, Map<String, Float> frequencies) {
+    if (text == null) {
+      return;
+    }
+    var term = new StringBuilder();
+    for (var i = 0; i <= text.length(); i++) {
+      var c = i < text.length() ? text.charAt(i) : ' ';
+      if (Character.isLetterOrDigit(c)) {
+        term.append(Character.toLowerCase(c));
+        continue;
+      }
+      if (term.length() >= MIN_TERM_LENGTH && !STOP_WORDS.contains(term.toString())) {
+        frequencies.merge(term.toString(), weight, Float::sum);
+      }
+      term.setLength(0);
+    }
+  }
+
+  /** FNV-1a followed by the MurmurHash3 finalizer, so similar terms land far apart. */
+  private static int hash(String term) {
+    var hash = 0x811c9dc5;
+    for (var i = 0; i < term.length(); i++) {
+      hash ^= term.charAt(i);
+      hash *= 0x01000193;
+    }
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
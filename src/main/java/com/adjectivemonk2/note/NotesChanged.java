@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import com.adjectivemonk2.note.model.Note;
+import java.util.List;
+
+/** CDI event fired by {@link NoteService} after a write to Mongo has been committed. */
+public record NotesChanged(List<Note> created, List<Note> updated, List<String> deletedIds) {
+
+  public static NotesChanged created(Note note) {
+    return new NotesChanged(List.of(note), List.of(), List.of());
+  }
+
+  public static NotesChanged updated(Note note) {
+    return new NotesChanged(List.of(), List.of(note), List.of());
+  }
+
+  public static NotesChanged deleted(String id) {
+    return new NotesChanged(List.of(), List.of(), List.of(id));
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/** Coalesces concurrent calls for the same key into one call whose result every caller shares. */
+final class SingleFlight<K, V> {
+
+  /** The work to coalesce. */
+  @FunctionalInterface
+  interface Call<V> {
+    V call() throws Exception;
+  }
+
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  V execute(K key, Call<V> call) throws Exception {
+    var flight = new CompletableFuture<V>();
+    var leader = inFlight.putIfAbsent(key, flight);
+    if (leader != null) {
+      return await(leader);
+    }
+    try {
+      var value = call.call();
+      flight.complete(value);
+      return value;
+    } catch (Exception | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      // Only this flight's own entry; a later flight for the key may already have replaced it.
+      inFlight.remove(key, flight);
+    }
+  }
+
+  private static <V> V await(CompletableFuture<V> flight) throws Exception {
+    try {
+      return flight.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /** Number of keys with a call in flight. */
+  int inFlight() {
+    return inFlight.size();
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note.model;
+
+import com.adjectivemonk2.note.model.NoteBulkOperation.Action;
+
+/** The outcome of one bulk operation, with an HTTP-style status and an error for failures. */
+public record NoteBulkItemResult(Action action, String id, int status, String error) {
+
+  public static NoteBulkItemResult success(Action action, String id, int status) {
+    return new NoteBulkItemResult(action, id, status, null);
+  }
+
+  public static NoteBulkItemResult failure(Action action, String id, int status, String error) {
+    return new NoteBulkItemResult(action, id, status, error);
+  }
+
+  public boolean failed() {
+    return error != null;
+  }
+}
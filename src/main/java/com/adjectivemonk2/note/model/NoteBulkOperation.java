@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One operation of a bulk request - {@code id} is required for update and delete, {@code data}
+ * for create and update.
+ */
+public record NoteBulkOperation(Action action, String id, NoteData data) {
+
+  public enum Action {
+    @JsonProperty("create") CREATE,
+    @JsonProperty("update") UPDATE,
+    @JsonProperty("delete") DELETE
+  }
+}
@@ -17,4 +17,9 @@
 package com.adjectivemonk2.note.model;
 
 /** An OpenSearch document representation of a note. */
-public record NoteDocument(String id, String title, String content) {}
+public record NoteDocument(String id, String title, String content) {
+
+  public static NoteDocument fromNote(Note note) {
+    return new NoteDocument(note.id().toHexString(), note.title(), note.content());
+  }
+}
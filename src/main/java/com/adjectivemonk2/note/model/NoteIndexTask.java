@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note.model;
+
+import java.time.Instant;
+import org.bson.BsonTimestamp;
+import org.bson.codecs.pojo.annotations.BsonId;
+import org.bson.types.ObjectId;
+
+/**
+ * A pending search index sync for a note. There is at most one task per note; every write stamps
+ * {@code version} with the server timestamp, so repeated writes coalesce into one task and a task
+ * is only completed if no write happened while it was being processed.
+ */
+public record NoteIndexTask(
+    @BsonId ObjectId noteId, BsonTimestamp version, int attempts, Instant nextAttemptAt) {}
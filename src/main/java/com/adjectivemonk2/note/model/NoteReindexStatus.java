@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note.model;
+
+import java.time.Instant;
+
+/** Progress of a full reindex; {@code total} is an estimate taken when the job starts. */
+public record NoteReindexStatus(
+    State state,
+    String targetIndex,
+    long total,
+    long indexed,
+    long failed,
+    double docsPerSecond,
+    Instant startedAt,
+    Instant finishedAt,
+    String error) {
+
+  public enum State {
+    IDLE,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+  }
+
+  public static NoteReindexStatus idle() {
+    return new NoteReindexStatus(State.IDLE, null, 0, 0, 0, 0, null, null, null);
+  }
+}
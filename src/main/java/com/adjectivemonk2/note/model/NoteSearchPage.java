@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note.model;
+
+import java.util.List;
+
+/**
+ * A page of search hits - {@code next} is the cursor for the following page, or null. A degraded
+ * page was answered by the Mongo text index while OpenSearch was unavailable.
+ */
+public record NoteSearchPage(List<NoteResponse> items, String next, boolean degraded) {}
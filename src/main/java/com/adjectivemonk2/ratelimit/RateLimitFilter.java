@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.ratelimit;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Response;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.jboss.resteasy.reactive.server.SimpleResourceInfo;
+
+/**
+ * Limits requests per client and route with {@link RateLimiter}, answering {@code 429} with a
+ * {@code Retry-After} header.
+ */
+@ApplicationScoped
+public class RateLimitFilter {
+
+  private final RateLimiter rateLimiter;
+  private final Config config;
+  private final boolean enabled;
+  private final String clientHeader;
+  private final Set<String> trustedProxies;
+  private final Map<String, RateLimit> limits = new ConcurrentHashMap<>();
+
+  public RateLimitFilter(
+      RateLimiter rateLimiter,
+      Config config,
+      @ConfigProperty(name = "rate-limit.enabled") boolean enabled,
+      @ConfigProperty(name = "rate-limit.client-header") String clientHeader,
+      @ConfigProperty(name = "rate-limit.trusted-proxies") Optional<List<String>> trustedProxies) {
+    this.rateLimiter = rateLimiter;
+    this.config = config;
+    this.enabled = enabled;
+    this.clientHeader = clientHeader;
+    this.trustedProxies = Set.copyOf(trustedProxies.orElse(List.of()));
+  }
+
+  @ServerRequestFilter
+  public Uni<Response> limit(
+      ContainerRequestContext context, SimpleResourceInfo resource, HttpServerRequest request) {
+    if (!enabled || resource.getResourceClass() == null) {
+      return Uni.createFrom().nullItem();
+    }
+    var route = resource.getResourceClass().getSimpleName() + "." + resource.getMethodName();
+    var client = client(
+        context.getSecurityContext().getUserPrincipal(),
+        request.remoteAddress() != null ? request.remoteAddress().host() : null,
+        context.getHeaderString(clientHeader),
+        trustedProxies);
+    return rateLimiter.acquire(route, client, limits.computeIfAbsent(route, this::limitOf))
+        .map(decision -> decision.allowed() ? null : tooManyRequests(decision));
+  }
+
+  /**
+   * Returns who a request counts against: the authenticated user, or else its address. Anyone can
+   * send any header, so {@code forwarded} is only read when the request comes from one of {@code
+   * trustedProxies}; the client is then the last address in it that is not a trusted proxy.
+   */
+  static String client(
+      Principal principal, String remoteAddress, String forwarded, Set<String> trustedProxies) {
+    if (principal != null) {
+      return "user:" + principal.getName();
+    }
+    var address = remoteAddress != null ? remoteAddress : "unknown";
+    if (forwarded != null && trustedProxies.contains(address)) {
+      var hops = forwarded.split(",");
+      for (var i = hops.length - 1; i >= 0 && trustedProxies.contains(address); i--) {
+        if (!hops[i].isBlank()) {
+          address = hops[i].strip();
+        }
+      }
+    }
+    return "ip:" + address;
+  }
+
+  private RateLimit limitOf(String route) {
+    var prefix = "rate-limit.routes.\"" + route + "\".";
+    var capacity = config.getOptionalValue(prefix + "capacity", Long.class)
+        .orElseGet(() -> config.getValue("rate-limit.default.capacity", Long.class));
+    var refill = config.getOptionalValue(prefix + "refill-per-second", Double.class)
+        .orElseGet(() -> config.getValue("rate-limit.default.refill-per-second", Double.class));
+    if (capacity < 1 || refill <= 0) {
+      throw new IllegalStateException("Rate limit of " + route + " needs a capacity of at least 1 "
+          + "and a positive refill-per-second");
+    }
+    return new RateLimit(capacity, refill);
+  }
+
+  private static Response tooManyRequests(RateLimiter.Decision decision) {
+    // Retry-After is whole seconds; rounding down would invite a retry that is still too early.
+    var seconds = Math.max(1, (decision.retryAfter().toMillis() + 999) / 1_000);
+    return Response.status(Response.Status.TOO_MANY_REQUESTS)
+        .header("Retry-After", seconds)
+        .entity("Too many requests, retry in " + seconds + " s")
+        .build();
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.ratelimit;
+
+import com.adjectivemonk2.increment.RedisScript;
+import com.adjectivemonk2.increment.RedisScripts;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Token buckets in Redis, one per route and client, of which each replica leases a few tokens at a
+ * time.
+ */
+@ApplicationScoped
+public class RateLimiter {
+
+  static final String KEY_PREFIX = "rate-limit:";
+
+  // Refills the bucket for the time since it was last used, then grants up to the tokens wanted.
+  // Returns the tokens granted and, when none were, the milliseconds until one is due.
+  static final RedisScript TAKE = RedisScript.of("rate-limit-take", """
+      local capacity = tonumber(ARGV[1])
+      local rate = tonumber(ARGV[2])
+      local wanted = tonumber(ARGV[3])
+      local time = redis.call('TIME')
+      local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+      local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'at')
+      local tokens = tonumber(bucket[1]) or capacity
+      local at = tonumber(bucket[2]) or now
+      tokens = math.min(capacity, tokens + math.max(0, now - at) * rate / 1000)
+      local granted = math.min(wanted, math.floor(tokens))
+      tokens = tokens - granted
+      redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'at', now)
+      redis.call('PEXPIRE', KEYS[1], math.ceil((capacity - tokens) / rate * 1000) + 1000)
+      local retry = 0
+      if granted == 0 then
+        retry = math.ceil((1 - tokens) / rate * 1000)
+      end
+      return {granted, retry}
+      """);
+
+  private final RedisScripts scripts;
+  private final int prefetch;
+  private final long leaseNanos;
+  private final Duration timeout;
+  private final Logger logger;
+  private final Cache<String, Allowance> allowances;
+  private final Counter failedOpen;
+  // Set from the first admitted request of an outage until Redis answers again.
+  private final AtomicBoolean failingOpen = new AtomicBoolean();
+
+  public RateLimiter(
+      RedisScripts scripts,
+      MeterRegistry registry,
+      @ConfigProperty(name = "rate-limit.prefetch") int prefetch,
+      @ConfigProperty(name = "rate-limit.lease") Duration lease,
+      @ConfigProperty(name = "rate-limit.timeout") Duration timeout,
+      @ConfigProperty(name = "rate-limit.tracked-buckets") long trackedBuckets,
+      Logger logger) {
+    this.scripts = scripts;
+    this.prefetch = prefetch;
+    this.leaseNanos = lease.toNanos();
+    this.timeout = timeout;
+    this.logger = logger;
+    this.allowances = Caffeine.newBuilder()
+        .maximumSize(trackedBuckets)
+        .expireAfterAccess(lease.multipliedBy(2))
+        .build();
+    this.failedOpen = Counter.builder("rate.limit.failed.open")
+        .description("Requests admitted because their rate limit could not be checked in Redis")
+        .register(registry);
+  }
+
+  /** Tokens of one bucket that this replica holds, or until when the bucket is known empty. */
+  private static final class Allowance {
+    long tokens;
+    long expiresAt;
+    long deniedUntil;
+  }
+
+  /** Whether a request may go ahead and, if not, how long until it may be retried. */
+  record Decision(boolean allowed, Duration retryAfter) {
+    static final Decision ALLOWED = new Decision(true, Duration.ZERO);
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    scripts.load(List.of(TAKE));
+  }
+
+  /** Takes a token from the bucket of {@code route} and {@code client}. */
+  public Uni<Decision> acquire(String route, String client, RateLimit limit) {
+    var key = KEY_PREFIX + route + ":" + client;
+    var allowance = allowances.get(key, k -> new Allowance());
+    var now = System.nanoTime();
+    synchronized (allowance) {
+      if (allowance.tokens > 0 && now < allowance.expiresAt) {
+        allowance.tokens--;
+        return Uni.createFrom().item(Decision.ALLOWED);
+      }
+      if (now < allowance.deniedUntil) {
+        return Uni.createFrom().item(denied(allowance.deniedUntil - now));
+      }
+    }
+    var wanted = Math.max(1, Math.min(prefetch, limit.capacity()));
+    return scripts.run(TAKE, List.of(key), List.of(
+            String.valueOf(limit.capacity()),
+            String.valueOf(limit.refillPerSecond()),
+            String.valueOf(wanted)))
+        .ifNoItem().after(timeout).fail()
+        .map(response -> {
+          if (failingOpen.compareAndSet(true, false)) {
+            logger.info("Rate limits are checked in Redis again");
+          }
+          var granted = response.get(0).toLong();
+          var fetchedAt = System.nanoTime();
+          synchronized (allowance) {
+            if (granted == 0) {
+              var retryNanos = Duration.ofMillis(response.get(1).toLong()).toNanos();
+              allowance.deniedUntil = fetchedAt + retryNanos;
+              return denied(retryNanos);
+            }
+            // One token is for this request; the rest join what concurrent fetches left.
+            var left = fetchedAt < allowance.expiresAt ? allowance.tokens : 0;
+            allowance.tokens = left + granted - 1;
+            allowance.expiresAt = fetchedAt + leaseNanos;
+            return Decision.ALLOWED;
+          }
+        })
+        .onFailure().recoverWithItem(e -> {
+          failedOpen.increment();
+          // Logged once per outage, not for every request it admits.
+          if (failingOpen.compareAndSet(false, true)) {
+            logger.warn("Rate limits could not be checked in Redis, admitting requests until they"
+                + " can: " + e);
+          } else {
+            logger.debugf("Rate limit of %s could not be checked, admitting the request", key);
+          }
+          return Decision.ALLOWED;
+        });
+  }
+
+  private static Decision denied(long retryNanos) {
+    return new Decision(false, Duration.ofNanos(retryNanos));
+  }
+}
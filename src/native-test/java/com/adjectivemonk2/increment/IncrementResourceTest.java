@@ -34,7 +34,7 @@ class IncrementResourceTest {
         .get("/increment")
         .then()
         .statusCode(200)
-        .body("size()", Matchers.is(0));
+        .body("keys.size()", Matchers.is(0));
 
     // create a first increment key with an initial value of 0
     RestAssured.given()
@@ -105,7 +105,7 @@ class IncrementResourceTest {
         .get("/increment")
         .then()
         .statusCode(200)
-        .body("size()", Matchers.is(2));
+        .body("keys.size()", Matchers.is(2));
 
     // delete first key
     RestAssured.given()
@@ -122,7 +122,7 @@ class IncrementResourceTest {
         .get("/increment")
         .then()
         .statusCode(200)
-        .body("size()", Matchers.is(1));
+        .body("keys.size()", Matchers.is(1));
 
     // delete second key
     RestAssured.given()
@@ -139,6 +139,6 @@ class IncrementResourceTest {
         .get("/increment")
         .then()
         .statusCode(200)
-        .body("size()", Matchers.is(0));
+        .body("keys.size()", Matchers.is(0));
   }
 }
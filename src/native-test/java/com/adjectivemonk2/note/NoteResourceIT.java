@@ -194,7 +194,7 @@ class NoteResourceIT {
                 .when().get("/notes/search")
                 .then()
                 .statusCode(200)
-                .body("size()", CoreMatchers.is(1))
-                .body("[0].title", CoreMatchers.is("Kotlin Guide")));
+                .body("items.size()", CoreMatchers.is(1))
+                .body("items[0].title", CoreMatchers.is("Kotlin Guide")));
   }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class CountMinSketchTest {
+
+  private final CountMinSketch sketch = new CountMinSketch(100, 4);
+
+  @Test
+  void itemsShouldHaveOneCounterPerRow() {
+    var counters = sketch.counters("visitor-1");
+
+    assertThat(counters).hasLength(4);
+    for (var row = 0; row < counters.length; row++) {
+      assertThat(counters[row]).isAtLeast(row * 100L);
+      assertThat(counters[row]).isLessThan((row + 1) * 100L);
+    }
+  }
+
+  @Test
+  void countersShouldBeStable() {
+    assertThat(sketch.counters("visitor-1")).isEqualTo(sketch.counters("visitor-1"));
+    assertThat(sketch.counters("visitor-1")).isNotEqualTo(sketch.counters("visitor-2"));
+  }
+
+  @Test
+  void countersShouldSpreadOverColumns() {
+    var used = new boolean[100];
+    for (var i = 0; i < 1_000; i++) {
+      used[(int) sketch.counters("item-" + i)[0]] = true;
+    }
+    for (var column : used) {
+      assertThat(column).isTrue();
+    }
+  }
+
+  @Test
+  void bytesShouldCoverEveryCounter() {
+    assertThat(sketch.bytes()).isEqualTo(1_600L);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.increment.model.Increment;
+import com.adjectivemonk2.increment.model.IncrementResult;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class IncrementAtomicTest {
+
+  private static final String PREFIX = "atomic-test:";
+  private static final int WRITERS = 64;
+  private static final int OPERATIONS = 100;
+
+  @Inject
+  IncrementResource incrementResource;
+
+  @Inject
+  RedisDataSource dataSource;
+
+  private final List<String> keys = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    keys.forEach(incrementResource::delete);
+  }
+
+  private String key(String name) {
+    var key = PREFIX + name;
+    keys.add(key);
+    return key;
+  }
+
+  /** Runs {@code operation} {@value #OPERATIONS} times on each of {@value #WRITERS} threads. */
+  private static void concurrently(Runnable operation) {
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var writer = 0; writer < WRITERS; writer++) {
+        executor.submit(() -> {
+          for (var i = 0; i < OPERATIONS; i++) {
+            operation.run();
+          }
+        });
+      }
+    }
+  }
+
+  private long calls(String command) {
+    for (var line : dataSource.execute("INFO", "commandstats").toString().split("\r?\n")) {
+      if (line.startsWith("cmdstat_" + command + ":calls=")) {
+        var calls = line.substring(("cmdstat_" + command + ":calls=").length());
+        return Long.parseLong(calls.substring(0, calls.indexOf(',')));
+      }
+    }
+    return 0;
+  }
+
+  @Test
+  void incrementBelowLimitShouldStopExactlyAtTheLimit() {
+    var key = key("limited");
+    var applied = new AtomicInteger();
+    concurrently(() -> {
+      if (incrementResource.incrementBelowLimit(key, 1, 5_000L).applied()) {
+        applied.incrementAndGet();
+      }
+    });
+
+    assertThat(applied.get()).isEqualTo(5_000);
+    assertThat(incrementResource.get(key).value()).isEqualTo(5_000L);
+    assertThat(incrementResource.incrementBelowLimit(key, 1, 5_000L))
+        .isEqualTo(new IncrementResult(key, false, 5_000));
+  }
+
+  @Test
+  void decrementNotBelowZeroShouldNeverGoNegative() {
+    var key = key("stock");
+    incrementResource.create(new Increment(key, 1_000));
+    var applied = new AtomicInteger();
+    concurrently(() -> {
+      if (incrementResource.decrementNotBelowZero(key, 1).applied()) {
+        applied.incrementAndGet();
+      }
+    });
+
+    assertThat(applied.get()).isEqualTo(1_000);
+    assertThat(incrementResource.get(key).value()).isEqualTo(0L);
+    assertThat(incrementResource.decrementNotBelowZero(key, 1))
+        .isEqualTo(new IncrementResult(key, false, 0));
+  }
+
+  @Test
+  void compareAndSetShouldLoseNoUpdates() {
+    var key = key("cas");
+    concurrently(() -> {
+      while (true) {
+        var current = incrementResource.get(key).value();
+        if (incrementResource.compareAndSet(key, current, current + 1).applied()) {
+          return;
+        }
+      }
+    });
+
+    assertThat(incrementResource.get(key).value()).isEqualTo((long) WRITERS * OPERATIONS);
+  }
+
+  @Test
+  void getAndResetShouldHandOutEveryIncrementOnce() {
+    var key = key("drained");
+    var drained = new AtomicLong();
+    concurrently(() -> {
+      incrementResource.update(key, 1);
+      if (ThreadLocalRandom.current().nextInt(10) == 0) {
+        drained.addAndGet(incrementResource.getAndReset(key).value());
+      }
+    });
+    drained.addAndGet(incrementResource.getAndReset(key).value());
+
+    assertThat(drained.get()).isEqualTo((long) WRITERS * OPERATIONS);
+    assertThat(incrementResource.get(key).value()).isEqualTo(0L);
+  }
+
+  @Test
+  void eachOperationShouldBeOneScriptCall() {
+    var key = key("round-trips");
+    var evalshaBefore = calls("evalsha");
+    var evalBefore = calls("eval");
+
+    incrementResource.incrementBelowLimit(key, 5, 10L);
+    incrementResource.decrementNotBelowZero(key, 2);
+    incrementResource.compareAndSet(key, 3, 7);
+    var reset = incrementResource.getAndReset(key);
+
+    assertThat(reset).isEqualTo(new IncrementResult(key, true, 7));
+    assertThat(calls("evalsha") - evalshaBefore).isEqualTo(4L);
+    // Loaded at startup, so no call fell back to sending the script.
+    assertThat(calls("eval") - evalBefore).isEqualTo(0L);
+  }
+}
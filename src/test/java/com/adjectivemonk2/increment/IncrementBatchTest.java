@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class IncrementBatchTest {
+
+  private static final String PREFIX = "batch-test:";
+
+  @Inject
+  IncrementResource incrementResource;
+
+  @Inject
+  RedisDataSource dataSource;
+
+  private final List<String> keys = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    keys.forEach(incrementResource::delete);
+  }
+
+  private String key(String name) {
+    var key = PREFIX + name;
+    keys.add(key);
+    return key;
+  }
+
+  private long calls(String command) {
+    for (var line : dataSource.execute("INFO", "commandstats").toString().split("\r?\n")) {
+      if (line.startsWith("cmdstat_" + command + ":calls=")) {
+        var calls = line.substring(("cmdstat_" + command + ":calls=").length());
+        return Long.parseLong(calls.substring(0, calls.indexOf(',')));
+      }
+    }
+    return 0;
+  }
+
+  @Test
+  void mgetShouldReturnValuesInRequestOrder() {
+    var a = key("a");
+    var b = key("{tag}b");
+    var c = key("{tag}c");
+    var missing = key("missing");
+    incrementResource.create(new Increment(a, 1));
+    incrementResource.create(new Increment(b, 2));
+    incrementResource.create(new Increment(c, 3));
+
+    var result = incrementResource.mget(List.of(c, missing, a, b, a));
+
+    assertThat(result)
+        .containsExactly(
+            new Increment(c, 3),
+            new Increment(missing, 0),
+            new Increment(a, 1),
+            new Increment(b, 2),
+            new Increment(a, 1))
+        .inOrder();
+  }
+
+  @Test
+  void mgetShouldReadKeysOfManySlotsInOneCommand() {
+    var many = new ArrayList<String>();
+    for (var i = 0; i < 50; i++) {
+      many.add(key("slot-" + i));
+    }
+    var slots = many.stream().map(RedisSlots::slot).distinct().count();
+    var before = calls("mget");
+
+    incrementResource.mget(many);
+
+    // The dev services Redis is standalone; a cluster sends one MGET per slot instead, pipelined
+    // per master.
+    assertThat(slots).isGreaterThan(1L);
+    assertThat(calls("mget") - before).isEqualTo(1L);
+  }
+
+  @Test
+  void mincrShouldReturnValueAfterEachIncrement() {
+    var a = key("a");
+    var b = key("{tag}b");
+    var c = key("{tag}c");
+    incrementResource.create(new Increment(a, 10));
+
+    var result = incrementResource.mincr(List.of(
+        new Increment(a, 1),
+        new Increment(b, 5),
+        new Increment(c, -2),
+        new Increment(a, 4)));
+
+    assertThat(result)
+        .containsExactly(
+            new Increment(a, 11),
+            new Increment(b, 5),
+            new Increment(c, -2),
+            new Increment(a, 15))
+        .inOrder();
+    assertThat(incrementResource.mget(List.of(a, b, c)))
+        .containsExactly(new Increment(a, 15), new Increment(b, 5), new Increment(c, -2))
+        .inOrder();
+  }
+
+  @Test
+  void mincrShouldSpreadManyKeysAcrossSlots() {
+    var increments = new ArrayList<Increment>();
+    for (var i = 0; i < 500; i++) {
+      increments.add(new Increment(key("many-" + i), i));
+    }
+
+    var result = incrementResource.mincr(increments);
+
+    assertThat(result).containsExactlyElementsIn(increments).inOrder();
+  }
+
+  @Test
+  void batchesShouldBeBounded() {
+    assertThrows(BadRequestException.class, () -> incrementResource.mget(List.of()));
+    assertThrows(
+        BadRequestException.class,
+        () -> incrementResource.mget(Collections.nCopies(1001, PREFIX + "too-many")));
+    assertThrows(
+        BadRequestException.class,
+        () -> incrementResource.mincr(Collections.singletonList(new Increment(null, 1))));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@TestProfile(IncrementNearCacheTest.NearCacheProfile.class)
+class IncrementNearCacheTest {
+
+  private static final String PREFIX = "near-cache-test:";
+
+  public static class NearCacheProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of(
+          "increment.near-cache.enabled", "true",
+          "increment.near-cache.prefixes", PREFIX);
+    }
+  }
+
+  @Inject
+  IncrementResource incrementResource;
+
+  @Inject
+  IncrementNearCache nearCache;
+
+  @Inject
+  RedisDataSource dataSource;
+
+  @Inject
+  MeterRegistry registry;
+
+  private final List<String> keys = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    keys.forEach(incrementResource::delete);
+  }
+
+  private String key(String name) {
+    var key = PREFIX + name;
+    keys.add(key);
+    return key;
+  }
+
+  private double hits() {
+    return registry.get("increment.near-cache.requests")
+        .tag("prefix", PREFIX)
+        .tag("result", "hit")
+        .counter()
+        .count();
+  }
+
+  @Test
+  void repeatedReadsShouldBeServedFromTheCache() {
+    var key = key("repeated");
+    incrementResource.create(new Increment(key, 3));
+    assertThat(incrementResource.get(key).value()).isEqualTo(3L);
+
+    var before = hits();
+    for (var i = 0; i < 10; i++) {
+      assertThat(incrementResource.get(key).value()).isEqualTo(3L);
+    }
+
+    assertThat(hits() - before).isEqualTo(10.0);
+  }
+
+  @Test
+  void writesByOtherClientsShouldInvalidateTheCache() {
+    var key = key("invalidated");
+    incrementResource.create(new Increment(key, 1));
+    assertThat(incrementResource.get(key).value()).isEqualTo(1L);
+    assertThat(nearCache.get(key)).isEqualTo(1L);
+
+    // Bypasses the repository, like another replica would.
+    dataSource.value(String.class, Long.class).incrby(key, 41);
+
+    Awaitility.await()
+        .atMost(Duration.ofSeconds(5))
+        .untilAsserted(() -> assertThat(nearCache.get(key)).isNull());
+    assertThat(incrementResource.get(key).value()).isEqualTo(42L);
+  }
+
+  @Test
+  void writesThroughThisReplicaShouldBeVisibleAtOnce() {
+    var key = key("own-writes");
+    incrementResource.create(new Increment(key, 1));
+    assertThat(incrementResource.get(key).value()).isEqualTo(1L);
+
+    incrementResource.update(key, 1);
+    assertThat(incrementResource.get(key).value()).isEqualTo(2L);
+
+    incrementResource.mincr(List.of(new Increment(key, 3)));
+    assertThat(incrementResource.mget(List.of(key))).containsExactly(new Increment(key, 5));
+  }
+
+  @Test
+  void keysOutsideThePrefixesShouldNotBeCached() {
+    var key = "near-cache-other:" + System.nanoTime();
+    keys.add(key);
+    incrementResource.create(new Increment(key, 1));
+    incrementResource.get(key);
+
+    assertThat(nearCache.caches(key)).isFalse();
+    assertThat(nearCache.get(key)).isNull();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures increment throughput on a single hot key spread over 1 to {@value #MAX_SHARDS}
+ * sub-keys. Run with {@code ./gradlew benchmark}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class IncrementShardsBenchmark {
+
+  private static final String KEY = "benchmark-shards:hot";
+  private static final int MAX_SHARDS = 16;
+
+  @Inject
+  RedisDataSource dataSource;
+
+  @Inject
+  Logger logger;
+
+  private final List<String> keys = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    keys.forEach(key -> dataSource.key(String.class).del(key));
+  }
+
+  @Test
+  void compareThroughputBySubKeyCount() throws Exception {
+    var increments = Integer.getInteger("benchmark.increments", 200_000);
+    var writers = Integer.getInteger("benchmark.writers", 64);
+    var commands = dataSource.value(String.class, Long.class);
+    for (var shard = 0; shard < MAX_SHARDS; shard++) {
+      keys.add(IncrementShards.shardKey(KEY, shard));
+    }
+
+    for (var shardCount = 1; shardCount <= MAX_SHARDS; shardCount *= 2) {
+      keys.forEach(key -> dataSource.key(String.class).del(key));
+      var count = shardCount;
+      var started = System.nanoTime();
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (var writer = 0; writer < writers; writer++) {
+          var share = increments / writers + (writer < increments % writers ? 1 : 0);
+          executor.submit(() -> {
+            var random = ThreadLocalRandom.current();
+            for (var i = 0; i < share; i++) {
+              commands.incrby(IncrementShards.shardKey(KEY, random.nextInt(count)), 1);
+            }
+          });
+        }
+      }
+      var nanos = System.nanoTime() - started;
+
+      long total = 0;
+      for (var key : keys) {
+        var value = commands.get(key);
+        total += value != null ? value : 0L;
+      }
+      assertThat(total).isEqualTo((long) increments);
+      logger.infof("%2d sub-keys: %d increments in %d ms, %.0f/s", shardCount, increments,
+          nanos / 1_000_000, increments * 1e9 / nanos);
+    }
+  }
+}
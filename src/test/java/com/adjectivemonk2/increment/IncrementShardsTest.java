@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@TestProfile(IncrementShardsTest.ShardsProfile.class)
+class IncrementShardsTest {
+
+  private static final String PREFIX = "shards-test:";
+  private static final String CONFIGURED = PREFIX + "configured";
+  private static final String COLD = PREFIX + "cold-configured";
+
+  public static class ShardsProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of(
+          "increment.shards.count", "4",
+          "increment.shards.hot-keys", CONFIGURED,
+          "increment.shards.cold-keys", COLD,
+          "increment.shards.auto-detect", "true",
+          "increment.shards.hot-threshold", "50",
+          "increment.shards.detect-window", "1h",
+          "increment.shards.refresh-interval", "1h",
+          // Its tracking reports registry writes made before the next refresh
+          "increment.near-cache.enabled", "true",
+          "increment.near-cache.prefixes", PREFIX);
+    }
+  }
+
+  @Inject
+  IncrementResource incrementResource;
+
+  @Inject
+  IncrementShards shards;
+
+  @Inject
+  RedisDataSource dataSource;
+
+  private final List<String> keys = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    keys.forEach(incrementResource::delete);
+    dataSource.set(String.class).srem(IncrementShards.REGISTRY_KEY, keys.toArray(String[]::new));
+  }
+
+  private String key(String name) {
+    var key = PREFIX + name;
+    keys.add(key);
+    return key;
+  }
+
+  private long redisValue(String key) {
+    var value = dataSource.value(String.class, Long.class).get(key);
+    return value != null ? value : 0L;
+  }
+
+  @Test
+  void subKeysShouldBeOnDifferentSlots() {
+    var slots = new HashSet<Integer>();
+    for (var shardKey : shards.shardKeys(CONFIGURED)) {
+      slots.add(RedisSlots.slot(shardKey));
+    }
+    assertThat(slots).hasSize(4);
+  }
+
+  @Test
+  void configuredHotKeyShouldSpreadIncrementsOverSubKeys() {
+    var key = CONFIGURED;
+    keys.add(key);
+    incrementResource.create(new Increment(key, 5));
+    for (var i = 0; i < 100; i++) {
+      incrementResource.update(key, 1);
+    }
+
+    assertThat(redisValue(key)).isEqualTo(5L);
+    var used = shards.shardKeys(key).stream().filter(shardKey -> redisValue(shardKey) > 0).count();
+    assertThat(used).isGreaterThan(1L);
+    assertThat(incrementResource.get(key).value()).isEqualTo(105L);
+    assertThat(incrementResource.mget(List.of(key)))
+        .containsExactly(new Increment(key, 105));
+  }
+
+  @Test
+  void keyShouldBecomeHotOnceItCrossesTheThreshold() {
+    var key = key("auto");
+    for (var i = 0; i < 49; i++) {
+      incrementResource.update(key, 1);
+    }
+    assertThat(shards.isHot(key)).isFalse();
+
+    incrementResource.update(key, 1);
+    assertThat(shards.isHot(key)).isTrue();
+    assertThat(dataSource.set(String.class).smembers(IncrementShards.REGISTRY_KEY)).contains(key);
+
+    for (var i = 0; i < 50; i++) {
+      incrementResource.update(key, 1);
+    }
+    assertThat(redisValue(key)).isEqualTo(50L);
+    assertThat(incrementResource.get(key).value()).isEqualTo(100L);
+  }
+
+  @Test
+  void coldKeysShouldNeverBecomeHot() {
+    var key = COLD;
+    keys.add(key);
+    for (var i = 0; i < 100; i++) {
+      incrementResource.update(key, 1);
+    }
+
+    assertThat(shards.isHot(key)).isFalse();
+    assertThat(redisValue(key)).isEqualTo(100L);
+  }
+
+  @Test
+  void readsShouldIncludeSubKeysOfKeysAnotherReplicaMadeHot() {
+    var key = key("remote");
+    var values = dataSource.value(String.class, Long.class);
+    values.set(key, 5L);
+    dataSource.set(String.class).sadd(IncrementShards.REGISTRY_KEY, key);
+    values.set(IncrementShards.shardKey(key, 0), 7L);
+
+    // Well before the hour-long refresh interval.
+    Awaitility.await()
+        .atMost(Duration.ofSeconds(5))
+        .untilAsserted(() -> assertThat(shards.isHot(key)).isTrue());
+    assertThat(incrementResource.get(key).value()).isEqualTo(12L);
+  }
+
+  @Test
+  void deleteShouldUnregisterADetectedKey() {
+    var key = key("deleted");
+    for (var i = 0; i < 50; i++) {
+      incrementResource.update(key, 1);
+    }
+    assertThat(shards.isHot(key)).isTrue();
+
+    incrementResource.delete(key);
+    assertThat(shards.isHot(key)).isFalse();
+    assertThat(dataSource.set(String.class).smembers(IncrementShards.REGISTRY_KEY))
+        .doesNotContain(key);
+
+    incrementResource.update(key, 1);
+    assertThat(redisValue(key)).isEqualTo(1L);
+  }
+
+  @Test
+  void mincrShouldReturnTotalsOfHotKeys() {
+    var hot = CONFIGURED;
+    keys.add(hot);
+    var cold = key("cold");
+
+    var result = incrementResource.mincr(List.of(
+        new Increment(hot, 2), new Increment(cold, 1), new Increment(hot, 3)));
+
+    assertThat(result)
+        .containsExactly(new Increment(hot, 5), new Increment(cold, 1), new Increment(hot, 5))
+        .inOrder();
+  }
+
+  @Test
+  void setAndDeleteShouldClearSubKeys() {
+    var key = CONFIGURED;
+    keys.add(key);
+    for (var i = 0; i < 20; i++) {
+      incrementResource.update(key, 1);
+    }
+
+    incrementResource.create(new Increment(key, 7));
+    assertThat(incrementResource.get(key).value()).isEqualTo(7L);
+
+    incrementResource.update(key, 1);
+    incrementResource.delete(key);
+    assertThat(incrementResource.get(key).value()).isEqualTo(0L);
+    for (var shardKey : shards.shardKeys(key)) {
+      assertThat(redisValue(shardKey)).isEqualTo(0L);
+    }
+  }
+}
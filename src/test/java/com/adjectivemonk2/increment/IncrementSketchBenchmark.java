@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the HyperLogLog and the Count-Min sketch with exact counting in Redis: a set of every
+ * visitor, and a counter key per item. Reports time, Redis memory and error. Run with {@code
+ * ./gradlew benchmark}; the event count can be changed with {@code -Dbenchmark.events=...}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class IncrementSketchBenchmark {
+
+  private static final String NAME = "benchmark-sketch";
+  private static final String EXACT_PREFIX = "benchmark-sketch-exact:";
+  private static final int BATCH_SIZE = 1_000;
+  private static final int TOP_K = 20;
+
+  @Inject
+  IncrementUniques uniques;
+
+  @Inject
+  IncrementSketches sketches;
+
+  @Inject
+  IncrementRepository repository;
+
+  @Inject
+  RedisDataSource dataSource;
+
+  @Inject
+  Logger logger;
+
+  private final List<String> exactKeys = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    uniques.delete(NAME);
+    sketches.delete(NAME);
+    for (var start = 0; start < exactKeys.size(); start += BATCH_SIZE) {
+      dataSource.key(String.class).del(exactKeys.subList(start,
+          Math.min(start + BATCH_SIZE, exactKeys.size())).toArray(String[]::new));
+    }
+  }
+
+  @Test
+  void compareHyperLogLogWithASet() {
+    var events = Integer.getInteger("benchmark.events", 1_000_000);
+    var random = new Random(42);
+    var visitors = new String[events];
+    for (var i = 0; i < events; i++) {
+      visitors[i] = "visitor-" + random.nextInt(events / 4);
+    }
+    var setKey = EXACT_PREFIX + "visitors";
+    exactKeys.add(setKey);
+    var set = dataSource.set(String.class);
+
+    var started = System.nanoTime();
+    for (var start = 0; start < events; start += BATCH_SIZE) {
+      set.sadd(setKey, Arrays.copyOfRange(visitors, start, Math.min(start + BATCH_SIZE, events)));
+    }
+    var exactNanos = System.nanoTime() - started;
+    var exact = set.scard(setKey);
+
+    started = System.nanoTime();
+    for (var start = 0; start < events; start += BATCH_SIZE) {
+      var batch = Arrays.asList(visitors).subList(start, Math.min(start + BATCH_SIZE, events));
+      uniques.add(NAME, batch);
+    }
+    var hllNanos = System.nanoTime() - started;
+    var estimate = uniques.count(List.of(NAME));
+
+    var error = Math.abs(estimate - exact) / (double) exact;
+    logger.infof("set: %d uniques in %d ms, %d bytes", exact, exactNanos / 1_000_000,
+        memoryUsage(setKey));
+    logger.infof("hyperloglog: %d uniques (error %.2f%%) in %d ms, %d bytes", estimate,
+        error * 100, hllNanos / 1_000_000, memoryUsage(IncrementUniques.key(NAME)));
+    // Three standard errors.
+    assertThat(error).isLessThan(0.0243);
+  }
+
+  @Test
+  void compareCountMinSketchWithAKeyPerItem() {
+    var events = Integer.getInteger("benchmark.events", 1_000_000);
+    var items = events / 10;
+    var stream = zipf(events, items, new Random(42));
+    var exact = new HashMap<String, Long>();
+    for (var item : stream) {
+      exact.merge(item, 1L, Long::sum);
+    }
+    exact.keySet().forEach(item -> exactKeys.add(EXACT_PREFIX + item));
+
+    var memoryBefore = usedMemory();
+    var started = System.nanoTime();
+    for (var start = 0; start < events; start += BATCH_SIZE) {
+      var batch = new ArrayList<Increment>(BATCH_SIZE);
+      for (var i = start; i < Math.min(start + BATCH_SIZE, events); i++) {
+        batch.add(new Increment(EXACT_PREFIX + stream[i], 1));
+      }
+      repository.incrementAll(batch);
+    }
+    var exactNanos = System.nanoTime() - started;
+    var exactMemory = usedMemory() - memoryBefore;
+
+    started = System.nanoTime();
+    for (var start = 0; start < events; start += BATCH_SIZE) {
+      var batch = new ArrayList<Increment>(BATCH_SIZE);
+      for (var i = start; i < Math.min(start + BATCH_SIZE, events); i++) {
+        batch.add(new Increment(stream[i], 1));
+      }
+      sketches.add(NAME, batch);
+    }
+    var sketchNanos = System.nanoTime() - started;
+
+    var expectedTop = exact.entrySet().stream()
+        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+        .limit(TOP_K)
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toSet());
+    var top = sketches.top(NAME, TOP_K);
+    var found = new HashSet<String>();
+    var relativeError = 0.0;
+    for (var item : top) {
+      if (expectedTop.contains(item.key())) {
+        found.add(item.key());
+      }
+      relativeError += (item.value() - exact.get(item.key())) / (double) exact.get(item.key());
+    }
+
+    logger.infof("key per item: %d keys in %d ms, about %d bytes", exact.size(),
+        exactNanos / 1_000_000, exactMemory);
+    logger.infof("count-min: top %d recall %.2f, mean overcount %.3f%% in %d ms, %d bytes",
+        TOP_K, found.size() / (double) TOP_K, relativeError / top.size() * 100,
+        sketchNanos / 1_000_000,
+        memoryUsage(IncrementSketches.key(NAME)) + memoryUsage(IncrementSketches.topKey(NAME)));
+    assertThat(found.size()).isAtLeast(TOP_K * 9 / 10);
+  }
+
+  /** Items drawn with probability proportional to 1 / rank. */
+  private static String[] zipf(int events, int items, Random random) {
+    var cumulative = new double[items];
+    var total = 0.0;
+    for (var i = 0; i < items; i++) {
+      total += 1.0 / (i + 1);
+      cumulative[i] = total;
+    }
+    var stream = new String[events];
+    for (var i = 0; i < events; i++) {
+      var index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+      stream[i] = "item-" + (index >= 0 ? index : -index - 1);
+    }
+    return stream;
+  }
+
+  private long memoryUsage(String key) {
+    var usage = dataSource.execute("MEMORY", "USAGE", key);
+    return usage != null ? usage.toLong() : 0;
+  }
+
+  private long usedMemory() {
+    for (var line : dataSource.execute("INFO", "memory").toString().split("\r?\n")) {
+      if (line.startsWith("used_memory:")) {
+        return Long.parseLong(line.substring("used_memory:".length()).trim());
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class IncrementSketchTest {
+
+  private static final String PREFIX = "sketch-test:";
+
+  @Inject
+  IncrementUniquesResource uniquesResource;
+
+  @Inject
+  IncrementSketchResource sketchResource;
+
+  private final List<String> uniques = new ArrayList<>();
+  private final List<String> sketches = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    uniques.forEach(uniquesResource::delete);
+    sketches.forEach(sketchResource::delete);
+  }
+
+  private String unique(String name) {
+    var key = "{" + PREFIX + "}" + name;
+    uniques.add(key);
+    return key;
+  }
+
+  private String sketch(String name) {
+    var key = PREFIX + name;
+    sketches.add(key);
+    return key;
+  }
+
+  private static List<String> visitors(int from, int to) {
+    var visitors = new ArrayList<String>();
+    for (var i = from; i < to; i++) {
+      visitors.add("visitor-" + i);
+    }
+    return visitors;
+  }
+
+  @Test
+  void uniquesShouldCountEachItemOnce() {
+    var name = unique("today");
+    for (var repeat = 0; repeat < 3; repeat++) {
+      for (var from = 0; from < 5_000; from += 1_000) {
+        uniquesResource.add(name, visitors(from, from + 1_000));
+      }
+    }
+
+    assertThat((double) uniquesResource.count(name).value()).isWithin(5_000 * 0.03).of(5_000);
+  }
+
+  @Test
+  void uniquesShouldCountUnionsAndMerge() {
+    var today = unique("today");
+    var yesterday = unique("yesterday");
+    var week = unique("week");
+    uniquesResource.add(today, visitors(0, 1_000));
+    uniquesResource.add(yesterday, visitors(500, 1_500));
+
+    assertThat((double) uniquesResource.countUnion(List.of(today, yesterday)).value())
+        .isWithin(1_500 * 0.03).of(1_500);
+    assertThat((double) uniquesResource.merge(week, List.of(today, yesterday)).value())
+        .isWithin(1_500 * 0.03).of(1_500);
+  }
+
+  @Test
+  void uniquesShouldRejectNamesOnDifferentSlots() {
+    assertThrows(
+        BadRequestException.class,
+        () -> uniquesResource.countUnion(List.of(PREFIX + "a", PREFIX + "b")));
+  }
+
+  @Test
+  void sketchShouldNeverUndercount() {
+    var name = sketch("counts");
+    var random = new Random(42);
+    var exact = new HashMap<String, Long>();
+    for (var batch = 0; batch < 10; batch++) {
+      var items = new ArrayList<Increment>();
+      for (var i = 0; i < 500; i++) {
+        var item = "page-" + random.nextInt(2_000);
+        items.add(new Increment(item, 1));
+        exact.merge(item, 1L, Long::sum);
+      }
+      sketchResource.add(name, items);
+    }
+
+    for (var entry : exact.entrySet()) {
+      var estimate = sketchResource.estimate(name, entry.getKey()).value();
+      assertThat(estimate).isAtLeast(entry.getValue());
+      // e / width * N, with N = 5000 events and width 2048
+      assertThat(estimate - entry.getValue()).isAtMost(7L);
+    }
+  }
+
+  @Test
+  void sketchShouldKeepTheHeaviestItems() {
+    var name = sketch("top");
+    var items = new ArrayList<Increment>();
+    for (var i = 0; i < 200; i++) {
+      items.add(new Increment("light-" + i, 1));
+    }
+    items.add(new Increment("heavy-a", 500));
+    items.add(new Increment("heavy-b", 300));
+    items.add(new Increment("heavy-a", 100));
+
+    var estimates = sketchResource.add(name, items);
+
+    assertThat(estimates).hasSize(202);
+    assertThat(sketchResource.top(name, 2))
+        .containsExactly(new Increment("heavy-a", 600), new Increment("heavy-b", 300))
+        .inOrder();
+  }
+
+  @Test
+  void sketchShouldRejectNonPositiveCounts() {
+    var name = sketch("invalid");
+    assertThrows(
+        BadRequestException.class,
+        () -> sketchResource.add(name, List.of(new Increment("item", 0))));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.increment.IncrementWindows.Resolution;
+import com.adjectivemonk2.increment.model.Increment;
+import com.adjectivemonk2.increment.model.WindowedIncrement;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@TestProfile(IncrementWindowsTest.WindowsProfile.class)
+class IncrementWindowsTest {
+
+  private static final String PREFIX = "windows-test:";
+
+  public static class WindowsProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of("increment.windows.enabled", "true");
+    }
+  }
+
+  @Inject
+  IncrementResource incrementResource;
+
+  @Inject
+  RedisDataSource dataSource;
+
+  private final List<String> keys = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    keys.forEach(incrementResource::delete);
+  }
+
+  private String key(String name) {
+    var key = PREFIX + name;
+    keys.add(key);
+    return key;
+  }
+
+  @Test
+  void bucketsOfAKeyShouldShareItsSlot() {
+    var now = IncrementWindows.now();
+    var slot = RedisSlots.slot(IncrementWindows.bucketKey(PREFIX + "a", Resolution.SECOND, now));
+    for (var resolution : Resolution.values()) {
+      var bucketKeys = IncrementWindows.bucketKeys(PREFIX + "a", resolution, now);
+      assertThat(bucketKeys).hasSize(resolution.buckets);
+      for (var bucketKey : bucketKeys) {
+        assertThat(RedisSlots.slot(bucketKey)).isEqualTo(slot);
+      }
+    }
+  }
+
+  @Test
+  void onlyKeysWithoutAHashTagShouldBeInTheSlotOfTheirBuckets() {
+    assertThat(IncrementWindows.inSlotOf(PREFIX + "a")).isTrue();
+    assertThat(IncrementWindows.inSlotOf(IncrementShards.shardKey(PREFIX + "a", 0))).isFalse();
+  }
+
+  @Test
+  void incrementsShouldCountInEveryWindow() {
+    var key = key("counted");
+    incrementResource.create(new Increment(key, 100));
+    incrementResource.update(key, 2);
+    incrementResource.update(key, 3);
+    incrementResource.mincr(List.of(new Increment(key, 5)));
+
+    assertThat(incrementResource.get(key).value()).isEqualTo(110L);
+    assertThat(incrementResource.windows(key)).isEqualTo(new WindowedIncrement(key, 10, 10, 10));
+  }
+
+  @Test
+  void bucketsShouldExpireAfterTheirWindow() {
+    var key = key("expiring");
+    incrementResource.update(key, 1);
+
+    var now = IncrementWindows.now();
+    var keyCommands = dataSource.key(String.class);
+    var ttl = keyCommands.ttl(IncrementWindows.bucketKey(key, Resolution.SECOND, now));
+    if (ttl < 0) {
+      // The second ended between the increment and now.
+      ttl = keyCommands.ttl(IncrementWindows.bucketKey(key, Resolution.SECOND, now - 1));
+    }
+    assertThat(ttl).isAtLeast(1L);
+    assertThat(ttl).isAtMost(61L);
+  }
+
+  @Test
+  void bucketsOutsideTheWindowShouldNotCount() {
+    var key = key("old");
+    var now = IncrementWindows.now();
+    var values = dataSource.value(String.class, Long.class);
+    values.set(IncrementWindows.bucketKey(key, Resolution.SECOND, now - 60), 7L);
+    values.set(IncrementWindows.bucketKey(key, Resolution.HOUR, now / 3_600 - 24), 9L);
+    values.set(IncrementWindows.bucketKey(key, Resolution.HOUR, now / 3_600 - 23), 11L);
+
+    var windows = incrementResource.windows(key);
+
+    assertThat(windows.lastMinute()).isEqualTo(0L);
+    assertThat(windows.lastDay()).isEqualTo(11L);
+  }
+
+  @Test
+  void deleteShouldDropTheBuckets() {
+    var key = key("deleted");
+    incrementResource.update(key, 4);
+    incrementResource.delete(key);
+
+    assertThat(incrementResource.windows(key)).isEqualTo(new WindowedIncrement(key, 0, 0, 0));
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@TestProfile(IncrementWriteBehindTest.WriteBehindProfile.class)
+class IncrementWriteBehindTest {
+
+  private static final String PREFIX = "write-behind-test:";
+  private static final String CONFIGURED = PREFIX + "configured-hot";
+
+  public static class WriteBehindProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      // Tests flush explicitly.
+      return Map.of(
+          "increment.write-behind.enabled", "true",
+          "increment.write-behind.interval", "1h",
+          "increment.shards.hot-keys", CONFIGURED,
+          "increment.shards.auto-detect", "true",
+          "increment.shards.hot-threshold", "1000",
+          "increment.shards.detect-window", "1h",
+          "increment.shards.refresh-interval", "1h");
+    }
+  }
+
+  @Inject
+  IncrementResource incrementResource;
+
+  @Inject
+  IncrementWriteBehind writeBehind;
+
+  @Inject
+  IncrementShards shards;
+
+  @Inject
+  RedisDataSource dataSource;
+
+  private final List<String> keys = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    keys.forEach(incrementResource::delete);
+  }
+
+  private String key(String name) {
+    var key = PREFIX + name;
+    keys.add(key);
+    return key;
+  }
+
+  private Long redisValue(String key) {
+    return dataSource.value(String.class, Long.class).get(key);
+  }
+
+  @Test
+  void readsShouldIncludeIncrementsNotFlushedYet() {
+    var key = key("pending");
+    incrementResource.create(new Increment(key, 10));
+    for (var i = 0; i < 5; i++) {
+      incrementResource.update(key, 2);
+    }
+
+    assertThat(redisValue(key)).isEqualTo(10L);
+    assertThat(incrementResource.get(key).value()).isEqualTo(20L);
+
+    writeBehind.flush();
+
+    assertThat(redisValue(key)).isEqualTo(20L);
+    assertThat(incrementResource.get(key).value()).isEqualTo(20L);
+  }
+
+  @Test
+  void concurrentIncrementsShouldAllReachRedis() throws Exception {
+    var hot = key("hot");
+    var cold = List.of(key("a"), key("b"), key("c"), key("{tag}d"), key("{tag}e"));
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var writer = 0; writer < 64; writer++) {
+        executor.submit(() -> {
+          for (var i = 0; i < 1_000; i++) {
+            incrementResource.update(hot, 1);
+            incrementResource.update(cold.get(i % cold.size()), 1);
+          }
+        });
+        if (writer % 16 == 0) {
+          writeBehind.flush();
+        }
+      }
+    }
+    writeBehind.flush();
+
+    // Read through the repository, since these keys get hot and spread over sub-keys.
+    assertThat(writeBehind.pending(hot)).isEqualTo(0L);
+    assertThat(incrementResource.get(hot).value()).isEqualTo(64_000L);
+    for (var key : cold) {
+      assertThat(writeBehind.pending(key)).isEqualTo(0L);
+      assertThat(incrementResource.get(key).value()).isEqualTo(64_000L / cold.size());
+    }
+  }
+
+  @Test
+  void flushShouldSpreadAHotKeyOverItsSubKeys() {
+    var key = CONFIGURED;
+    keys.add(key);
+    for (var i = 0; i < 100; i++) {
+      incrementResource.update(key, 1);
+      writeBehind.flush();
+    }
+
+    assertThat(redisValue(key)).isNull();
+    var subKeys = shards.shardKeys(key).stream().map(this::redisValue).filter(Objects::nonNull);
+    assertThat(subKeys.mapToLong(Long::longValue).sum()).isEqualTo(100L);
+    assertThat(incrementResource.get(key).value()).isEqualTo(100L);
+  }
+
+  @Test
+  void bufferedIncrementsShouldMakeAKeyHot() {
+    var key = key("detected");
+    for (var i = 0; i < 999; i++) {
+      incrementResource.update(key, 1);
+    }
+    assertThat(shards.isHot(key)).isFalse();
+
+    incrementResource.update(key, 1);
+    writeBehind.flush();
+
+    assertThat(shards.isHot(key)).isTrue();
+    assertThat(incrementResource.get(key).value()).isEqualTo(1_000L);
+  }
+
+  @Test
+  void aFailedKeyShouldBeRetriedWithoutRepeatingTheRestOfItsBatch() {
+    var counted = key("{batch}counted");
+    var broken = key("{batch}broken");
+    dataSource.value(String.class).set(broken, "not a number");
+    incrementResource.update(counted, 3);
+    incrementResource.update(broken, 4);
+
+    writeBehind.flush();
+    writeBehind.flush();
+
+    assertThat(redisValue(counted)).isEqualTo(3L);
+    assertThat(writeBehind.pending(counted)).isEqualTo(0L);
+    assertThat(writeBehind.pending(broken)).isEqualTo(4L);
+  }
+
+  @Test
+  void deleteShouldDropIncrementsNotFlushedYet() {
+    var key = key("deleted");
+    incrementResource.update(key, 5);
+    incrementResource.delete(key);
+    writeBehind.flush();
+
+    assertThat(redisValue(key)).isNull();
+    assertThat(incrementResource.get(key).value()).isEqualTo(0L);
+  }
+
+  @Test
+  void getAndResetShouldIncludeIncrementsNotFlushedYet() {
+    var key = key("reset");
+    incrementResource.create(new Increment(key, 10));
+    incrementResource.update(key, 5);
+
+    assertThat(incrementResource.getAndReset(key).value()).isEqualTo(15L);
+    writeBehind.flush();
+
+    assertThat(incrementResource.get(key).value()).isEqualTo(0L);
+  }
+
+  @Test
+  void setShouldWinOverAFlushRacingIt() throws Exception {
+    var key = key("raced");
+    for (var i = 0; i < 100; i++) {
+      incrementResource.update(key, 5);
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        executor.submit(() -> writeBehind.flush());
+        incrementResource.create(new Increment(key, 100));
+      }
+      writeBehind.flush();
+
+      assertThat(redisValue(key)).isEqualTo(100L);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.adjectivemonk2.increment.model.Increment;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class RedisKeyScannerTest {
+
+  private static final String PREFIX = "increment-test:";
+
+  @Inject
+  IncrementResource incrementResource;
+
+  private final List<String> createdKeys = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    createdKeys.forEach(incrementResource::delete);
+  }
+
+  private void create(String key, long value) {
+    incrementResource.create(new Increment(key, value));
+    createdKeys.add(key);
+  }
+
+  @Test
+  void keysShouldPageThroughEveryMatchingKeyOnce() {
+    for (var i = 0; i < 250; i++) {
+      create(PREFIX + i, i);
+    }
+
+    var keys = new ArrayList<String>();
+    var pages = 0;
+    String cursor = null;
+    do {
+      var page = incrementResource.keys(cursor, PREFIX + "*", 50);
+      keys.addAll(page.keys());
+      cursor = page.next();
+      pages++;
+    } while (cursor != null);
+
+    assertThat(new HashSet<>(keys)).containsExactlyElementsIn(createdKeys);
+    assertThat(pages).isGreaterThan(1);
+  }
+
+  @Test
+  void keysShouldOnlyReturnKeysMatchingThePattern() {
+    create(PREFIX + "apples", 1);
+    create(PREFIX + "pears", 2);
+
+    var keys = new ArrayList<String>();
+    String cursor = null;
+    do {
+      var page = incrementResource.keys(cursor, PREFIX + "a*", 1_000);
+      keys.addAll(page.keys());
+      cursor = page.next();
+    } while (cursor != null);
+
+    assertThat(keys).containsExactly(PREFIX + "apples");
+  }
+
+  @Test
+  void keysShouldRejectInvalidCursorsAndCounts() {
+    assertThrows(BadRequestException.class, () -> incrementResource.keys("not-a-cursor", "*", 10));
+    assertThrows(BadRequestException.class, () -> incrementResource.keys(null, "*", 0));
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.increment;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class RedisSlotsTest {
+
+  @Test
+  void slotShouldMatchRedisCluster() {
+    // Values from CLUSTER KEYSLOT
+    assertThat(RedisSlots.slot("foo")).isEqualTo(12182);
+    assertThat(RedisSlots.slot("bar")).isEqualTo(5061);
+    assertThat(RedisSlots.slot("123456789")).isEqualTo(12739);
+  }
+
+  @Test
+  void slotShouldOnlyHashTheHashTag() {
+    assertThat(RedisSlots.slot("{user1000}.following"))
+        .isEqualTo(RedisSlots.slot("{user1000}.followers"));
+    assertThat(RedisSlots.slot("{user1000}.following")).isEqualTo(RedisSlots.slot("user1000"));
+  }
+
+  @Test
+  void slotShouldHashTheWholeKeyWithoutANonEmptyHashTag() {
+    assertThat(RedisSlots.slot("{}.following")).isNotEqualTo(RedisSlots.slot(""));
+    assertThat(RedisSlots.slot("foo{bar")).isNotEqualTo(RedisSlots.slot("bar"));
+  }
+}
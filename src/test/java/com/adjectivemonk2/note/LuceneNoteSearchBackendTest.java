@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteData;
+import com.adjectivemonk2.note.model.NoteResponse;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Filters;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.MMapDirectory;
+import org.awaitility.Awaitility;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@TestProfile(LuceneNoteSearchBackendTest.LuceneProfile.class)
+class LuceneNoteSearchBackendTest {
+
+  public static class LuceneProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      try {
+        return Map.of(
+            "notes.search.backend", "lucene",
+            "notes.indexing.mode", "change-stream",
+            "notes.search.lucene.directory",
+            Files.createTempDirectory("notes-lucene").toString());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  @Inject
+  NoteResource noteResource;
+
+  @Inject
+  NoteReindexResource reindexResource;
+
+  @Inject
+  LuceneNoteSearchBackend searchBackend;
+
+  @Inject
+  MongoClient mongoClient;
+
+  @Inject
+  @ConfigProperty(name = "quarkus.mongodb.database")
+  String databaseName;
+
+  @Inject
+  @ConfigProperty(name = "notes.search.lucene.directory")
+  Path path;
+
+  @AfterEach
+  void cleanup() {
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class).deleteMany(Filters.empty());
+    searchBackend.rebuild();
+  }
+
+  private static List<String> titles(List<NoteResponse> items) {
+    return items.stream().map(NoteResponse::title).toList();
+  }
+
+  /** Waits until the change stream has indexed {@code count} notes matching {@code q}. */
+  private void awaitIndexed(String q, int count) {
+    Awaitility.await()
+        .atMost(10, TimeUnit.SECONDS)
+        .untilAsserted(() -> assertThat(noteResource.search(q, 10, null).items()).hasSize(count));
+  }
+
+  @Test
+  void searchShouldFindNotesAsSoonAsTheyAreIndexed() throws Exception {
+    noteResource.create(new NoteData("Kotlin Guide", "Learn the basics"));
+    noteResource.create(new NoteData("Java Guide", "Learn Java basics"));
+    awaitIndexed("java", 1);
+
+    var page = noteResource.search("kotlin", 10, null);
+
+    assertThat(page.degraded()).isFalse();
+    assertThat(titles(page.items())).containsExactly("Kotlin Guide");
+  }
+
+  @Test
+  void searchShouldNotFindDeletedNotes() throws Exception {
+    var note = noteResource.create(new NoteData("Kotlin Guide", "Learn the basics"));
+    awaitIndexed("kotlin", 1);
+    noteResource.delete(note.id());
+
+    awaitIndexed("kotlin", 0);
+  }
+
+  @Test
+  void searchShouldPageThroughAllResultsWithTheCursor() throws Exception {
+    for (var i = 0; i < 5; i++) {
+      noteResource.create(new NoteData("Kotlin " + i, "Kotlin notes"));
+    }
+    awaitIndexed("kotlin", 5);
+
+    var first = noteResource.search("kotlin", 2, null);
+    var second = noteResource.search("kotlin", 2, first.next());
+    var third = noteResource.search("kotlin", 2, second.next());
+
+    var ids = new HashSet<String>();
+    for (var page : List.of(first, second, third)) {
+      page.items().forEach(item -> ids.add(item.id()));
+    }
+    assertThat(ids).hasSize(5);
+    assertThat(third.items()).hasSize(1);
+    assertThat(third.next()).isNull();
+  }
+
+  @Test
+  void laterPagesShouldReadTheIndexAsOfTheFirstPage() throws Exception {
+    for (var i = 0; i < 3; i++) {
+      noteResource.create(new NoteData("Kotlin " + i, "Kotlin notes"));
+    }
+    awaitIndexed("kotlin", 3);
+
+    var first = noteResource.search("kotlin", 2, null);
+    noteResource.create(new NoteData("Kotlin 3", "Kotlin notes"));
+    awaitIndexed("kotlin", 4);
+    var second = noteResource.search("kotlin", 2, first.next());
+
+    assertThat(second.items()).hasSize(1);
+    assertThat(second.next()).isNull();
+  }
+
+  @Test
+  void suggestShouldReturnDistinctTitlesStartingWithThePrefix() throws Exception {
+    noteResource.create(new NoteData("Kotlin Guide", "Content"));
+    noteResource.create(new NoteData("Kotlin Guide", "Other content"));
+    noteResource.create(new NoteData("Kotlin Basics", "Content"));
+    noteResource.create(new NoteData("Java Guide", "Content"));
+    awaitIndexed("content", 4);
+
+    assertThat(noteResource.suggest("KOT", 10))
+        .containsExactly("Kotlin Basics", "Kotlin Guide")
+        .inOrder();
+  }
+
+  @Test
+  void rebuildShouldIndexNotesThatOnlyExistInMongo() throws Exception {
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class)
+        .insertOne(new Note(new ObjectId(), "Written around the outbox", "Lucene rebuild"));
+
+    searchBackend.rebuild();
+
+    assertThat(titles(noteResource.search("rebuild", 10, null).items()))
+        .containsExactly("Written around the outbox");
+  }
+
+  @Test
+  void commitShouldSaveTheStreamPositionWithTheIndex() throws Exception {
+    noteResource.create(new NoteData("Kotlin Guide", "Learn the basics"));
+    awaitIndexed("kotlin", 1);
+    Awaitility.await()
+        .atMost(10, TimeUnit.SECONDS)
+        .untilAsserted(() -> assertThat(searchBackend.resumeToken()).isNotNull());
+
+    searchBackend.commit();
+
+    try (var directory = new MMapDirectory(path)) {
+      assertThat(SegmentInfos.readLatestCommit(directory).getUserData())
+          .containsEntry("resumeToken", searchBackend.resumeToken().toJson());
+    }
+  }
+
+  @Test
+  void reindexShouldBeRejected() {
+    assertThrows(BadRequestException.class, () -> reindexResource.start());
+  }
+}
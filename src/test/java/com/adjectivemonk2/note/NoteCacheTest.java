@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteData;
+import com.adjectivemonk2.note.model.NoteDocument;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.awaitility.Awaitility;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class NoteCacheTest {
+
+  @Inject
+  NoteCache noteCache;
+
+  @Inject
+  NoteService noteService;
+
+  @Inject
+  RedisDataSource redisDataSource;
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private Function<String, Note> loaderFor(Note note) {
+    return id -> {
+      loads.incrementAndGet();
+      return note;
+    };
+  }
+
+  @Test
+  void getShouldLoadOnceAndServeRepeatedReadsFromTheCache() {
+    var note = new Note(new ObjectId(), "Cached", "Content");
+    var id = note.id().toHexString();
+
+    noteCache.get(id, loaderFor(note));
+    var cached = noteCache.get(id, loaderFor(note));
+
+    assertThat(cached).isEqualTo(note);
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  void getShouldFallBackToRedisWhenTheLocalTierMisses() {
+    var note = new Note(new ObjectId(), "Shared", "Content");
+    var id = note.id().toHexString();
+
+    // Simulate another replica that already cached the note in Redis.
+    redisDataSource.value(String.class, NoteDocument.class)
+        .set(NoteCache.KEY_PREFIX + id, NoteDocument.fromNote(note));
+    var cached = noteCache.get(id, loaderFor(note));
+
+    assertThat(cached).isEqualTo(note);
+    assertThat(loads.get()).isZero();
+  }
+
+  @Test
+  void getShouldNotCacheMissingNotes() {
+    var id = new ObjectId().toHexString();
+
+    noteCache.get(id, loaderFor(null));
+    noteCache.get(id, loaderFor(null));
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void aLoadThatRacesAnUpdateShouldNotCacheTheOldNote() {
+    var note = new Note(new ObjectId(), "Old", "Content");
+    var id = note.id().toHexString();
+
+    // The note is read from Mongo, then updated and evicted before the load fills the cache.
+    noteCache.get(id, loadedId -> {
+      loads.incrementAndGet();
+      noteCache.invalidate(loadedId);
+      return note;
+    });
+    var updated = new Note(note.id(), "New", "Content");
+    var cached = noteCache.get(id, loaderFor(updated));
+
+    assertThat(cached).isEqualTo(updated);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void updateShouldInvalidateTheCachedNote() {
+    var created = noteService.create(new NoteData("Original", "Content"));
+    var id = created.id().toHexString();
+    assertThat(noteService.findById(id).title()).isEqualTo("Original");
+
+    noteService.update(id, new NoteData("Updated", "Content"));
+
+    assertThat(noteService.findById(id).title()).isEqualTo("Updated");
+  }
+
+  @Test
+  void invalidationMessagesShouldEvictTheLocalTier() {
+    var note = new Note(new ObjectId(), "Remote", "Content");
+    var id = note.id().toHexString();
+    noteCache.get(id, loaderFor(note));
+
+    // Simulate another replica that updated the note: Redis is cleared and the ID is broadcast.
+    redisDataSource.key(String.class).del(NoteCache.KEY_PREFIX + id);
+    redisDataSource.pubsub(String.class).publish(NoteCache.INVALIDATION_CHANNEL, id);
+
+    Awaitility.await()
+        .atMost(5, TimeUnit.SECONDS)
+        .untilAsserted(() -> {
+          noteCache.get(id, loaderFor(note));
+          assertThat(loads.get()).isGreaterThan(1);
+        });
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteData;
+import com.adjectivemonk2.note.model.NoteDocument;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.awaitility.Awaitility;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+@QuarkusTest
+@TestProfile(NoteChangeStreamIndexerTest.ChangeStreamProfile.class)
+class NoteChangeStreamIndexerTest {
+
+  public static class ChangeStreamProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of("notes.indexing.mode", "change-stream");
+    }
+  }
+
+  @Inject
+  NoteChangeStreamIndexer indexer;
+
+  @Inject
+  NoteService noteService;
+
+  @Inject
+  NoteIndexOutbox noteIndexOutbox;
+
+  @Inject
+  MongoClient mongoClient;
+
+  @Inject
+  OpenSearchClient openSearchClient;
+
+  @Inject
+  @ConfigProperty(name = "quarkus.mongodb.database")
+  String databaseName;
+
+  @AfterEach
+  void cleanup() {
+    notes().deleteMany(Filters.empty());
+  }
+
+  private MongoCollection<Note> notes() {
+    return mongoClient.getDatabase(databaseName).getCollection("notes", Note.class);
+  }
+
+  private NoteDocument findIndexed(String id) throws Exception {
+    var response = openSearchClient.get(b -> b.index("notes").id(id), NoteDocument.class);
+    return response.found() ? response.source() : null;
+  }
+
+  @Test
+  void writesThatBypassTheServiceShouldBeIndexed() {
+    var note = new Note(new ObjectId(), "Migrated", "Written by a script");
+    notes().insertOne(note);
+    var id = note.id().toHexString();
+
+    Awaitility.await()
+        .atMost(10, TimeUnit.SECONDS)
+        .untilAsserted(() -> assertThat(findIndexed(id)).isNotNull());
+    assertThat(findIndexed(id).title()).isEqualTo("Migrated");
+
+    notes().replaceOne(Filters.eq("_id", note.id()), new Note(note.id(), "Edited", "Content"));
+    Awaitility.await()
+        .atMost(10, TimeUnit.SECONDS)
+        .untilAsserted(() -> assertThat(findIndexed(id).title()).isEqualTo("Edited"));
+
+    notes().deleteOne(Filters.eq("_id", note.id()));
+    Awaitility.await()
+        .atMost(10, TimeUnit.SECONDS)
+        .untilAsserted(() -> assertThat(findIndexed(id)).isNull());
+  }
+
+  @Test
+  void appliedBatchesShouldPersistTheResumeToken() {
+    notes().insertOne(new Note(new ObjectId(), "Checkpoint", "Content"));
+
+    Awaitility.await()
+        .atMost(10, TimeUnit.SECONDS)
+        .untilAsserted(() -> assertThat(indexer.loadResumeToken()).isNotNull());
+  }
+
+  @Test
+  void onlyOneReplicaShouldHoldTheLease() {
+    var state = mongoClient.getDatabase(databaseName).getCollection("note_indexer_state");
+    Awaitility.await()
+        .atMost(10, TimeUnit.SECONDS)
+        .untilAsserted(() -> assertThat(indexer.acquireLease()).isTrue());
+
+    state.updateOne(Filters.eq("_id", "notes-change-stream"), Updates.combine(
+        Updates.set("owner", "other-replica"),
+        Updates.set("leaseUntil", Instant.now().plusSeconds(60))));
+    assertThat(indexer.acquireLease()).isFalse();
+
+    state.updateOne(Filters.eq("_id", "notes-change-stream"),
+        Updates.set("leaseUntil", Instant.now().minusSeconds(1)));
+    assertThat(indexer.acquireLease()).isTrue();
+  }
+
+  @Test
+  void theStartTimeShouldBeRecordedOnlyOnce() {
+    var state = mongoClient.getDatabase(databaseName).getCollection("note_indexer_state");
+    var recorded = state.find(Filters.eq("_id", "notes-change-stream")).first().get("startAt");
+    assertThat(recorded).isNotNull();
+
+    indexer.recordStartTime();
+
+    var startAt = state.find(Filters.eq("_id", "notes-change-stream")).first().get("startAt");
+    assertThat(startAt).isEqualTo(recorded);
+  }
+
+  @Test
+  void serviceWritesShouldNotUseTheOutbox() {
+    noteService.create(new NoteData("Direct", "Content"));
+
+    assertThat(noteIndexOutbox.findDue(10)).isEmpty();
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.util.Map;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+
+@QuarkusTest
+class NoteIndexAdminTest {
+
+  @Inject
+  NoteIndexAdmin indexAdmin;
+
+  @Inject
+  OpenSearchClient openSearchClient;
+
+  @Inject
+  @ConfigProperty(name = "notes.search.index.refresh-interval")
+  String refreshInterval;
+
+  private String refreshIntervalOf(String index) throws Exception {
+    var settings = openSearchClient.indices().getSettings(request -> request.index(index)).result();
+    return settings.values().iterator().next().settings().index().refreshInterval().time();
+  }
+
+  @Test
+  void bootstrapShouldPointTheAliasAtAManagedIndex() throws Exception {
+    var indices = indexAdmin.resolveAlias(NoteIndexAdmin.ALIAS);
+
+    assertThat(indices).hasSize(1);
+    assertThat(indices.getFirst()).startsWith(NoteIndexAdmin.INDEX_PREFIX);
+    var mappings = openSearchClient.indices().getMapping(request -> request.index(indices)).result();
+    var properties = mappings.get(indices.getFirst()).mappings().properties();
+    assertThat(properties.keySet()).containsExactly("id", "title", "content");
+    assertThat(properties.get("id").isKeyword()).isTrue();
+    assertThat(properties.get("title").text().fields().keySet()).containsExactly("suggest");
+    assertThat(properties.get("title").text().fields().get("suggest").isCompletion()).isTrue();
+    assertThat(properties.get("content").text().fields()).isEmpty();
+  }
+
+  @Test
+  void bootstrapShouldMakeTheReplicaReady() {
+    assertThat(indexAdmin.isBootstrapped()).isTrue();
+    given().when().get("/q/health/ready").then().statusCode(200);
+  }
+
+  @Test
+  void indexShouldRejectUnmappedFields() {
+    assertThrows(OpenSearchException.class, () -> openSearchClient.index(request -> request
+        .index(NoteIndexAdmin.ALIAS)
+        .id("unmapped")
+        .document(Map.of("id", "unmapped", "tags", "a"))));
+  }
+
+  @Test
+  void bulkLoadShouldDisableRefreshUntilItEnds() throws Exception {
+    indexAdmin.beginBulkLoad(NoteIndexAdmin.ALIAS);
+    try {
+      assertThat(refreshIntervalOf(NoteIndexAdmin.ALIAS)).isEqualTo("-1");
+    } finally {
+      indexAdmin.endBulkLoad(NoteIndexAdmin.ALIAS);
+    }
+
+    assertThat(refreshIntervalOf(NoteIndexAdmin.ALIAS)).isEqualTo(refreshInterval);
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteData;
+import com.adjectivemonk2.note.model.NoteDocument;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Filters;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+@QuarkusTest
+class NoteIndexerTest {
+
+  @Inject
+  NoteService noteService;
+
+  @Inject
+  NoteIndexer noteIndexer;
+
+  @Inject
+  NoteIndexOutbox noteIndexOutbox;
+
+  @Inject
+  NoteRepository noteRepository;
+
+  @Inject
+  NoteSearchBackend searchBackend;
+
+  @Inject
+  MongoClient mongoClient;
+
+  @Inject
+  OpenSearchClient openSearchClient;
+
+  @Inject
+  @ConfigProperty(name = "quarkus.mongodb.database")
+  String databaseName;
+
+  @AfterEach
+  void cleanup() {
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class).deleteMany(Filters.empty());
+    noteIndexOutbox.getCollection().deleteMany(Filters.empty());
+  }
+
+  private NoteDocument findIndexed(String id) throws Exception {
+    var response = openSearchClient.get(b -> b.index("notes").id(id), NoteDocument.class);
+    return response.found() ? response.source() : null;
+  }
+
+  @Test
+  void writesShouldRecordOneCoalescedTaskPerNote() {
+    var note = noteService.create(new NoteData("Original", "Content"));
+    var created = noteIndexOutbox.findDue(10).getFirst().version();
+    noteService.update(note.id().toHexString(), new NoteData("Second", "Content"));
+    noteService.update(note.id().toHexString(), new NoteData("Third", "Content"));
+
+    var tasks = noteIndexOutbox.findDue(10);
+
+    assertThat(tasks).hasSize(1);
+    assertThat(tasks.getFirst().noteId()).isEqualTo(note.id());
+    assertThat(tasks.getFirst().version()).isGreaterThan(created);
+  }
+
+  @Test
+  void drainShouldIndexTheLatestVersionAndCompleteTheTask() throws Exception {
+    var note = noteService.create(new NoteData("Original", "Content"));
+    var id = note.id().toHexString();
+    noteService.update(id, new NoteData("Updated", "Content"));
+
+    noteIndexer.drain();
+
+    assertThat(findIndexed(id).title()).isEqualTo("Updated");
+    assertThat(noteIndexOutbox.findDue(10)).isEmpty();
+  }
+
+  @Test
+  void drainShouldRemoveDeletedNotesFromTheIndex() throws Exception {
+    var note = noteService.create(new NoteData("To Delete", "Content"));
+    var id = note.id().toHexString();
+    noteIndexer.drain();
+    assertThat(findIndexed(id)).isNotNull();
+
+    noteService.delete(id);
+    noteIndexer.drain();
+
+    assertThat(findIndexed(id)).isNull();
+  }
+
+  @Test
+  void completeShouldKeepTasksForNotesWrittenWhileTheyWereProcessed() {
+    var note = noteService.create(new NoteData("Original", "Content"));
+    var tasks = noteIndexOutbox.findDue(10);
+
+    noteService.update(note.id().toHexString(), new NoteData("Concurrent", "Content"));
+    noteIndexOutbox.complete(tasks);
+
+    var remaining = noteIndexOutbox.findDue(10);
+    assertThat(remaining).hasSize(1);
+    assertThat(remaining.getFirst().version()).isGreaterThan(tasks.getFirst().version());
+  }
+
+  @Test
+  void aSnapshotOfAnOlderTaskShouldNotOverwriteANewerOne() throws Exception {
+    var note = noteService.create(new NoteData("Original", "Content"));
+    var id = note.id().toHexString();
+    var stale = noteIndexOutbox.findDue(10).getFirst();
+    noteService.update(id, new NoteData("Updated", "Content"));
+    noteIndexer.drain();
+
+    // What a replica that read the first task and its snapshot would write after the drain
+    var failed = searchBackend.apply(
+        List.of(new NoteChange(id, note, stale.version().getValue())));
+
+    assertThat(failed).isEmpty();
+    assertThat(findIndexed(id).title()).isEqualTo("Updated");
+  }
+
+  @Test
+  void parkedTasksShouldOnlyBeRetriedOnceTheirNoteIsWrittenAgain() {
+    var note = noteService.create(new NoteData("Poison", "Content"));
+    noteIndexOutbox.park(noteIndexOutbox.findDue(10));
+    assertThat(noteIndexOutbox.findDue(10)).isEmpty();
+
+    noteService.update(note.id().toHexString(), new NoteData("Fixed", "Content"));
+
+    var tasks = noteIndexOutbox.findDue(10);
+    assertThat(tasks).hasSize(1);
+    assertThat(tasks.getFirst().attempts()).isEqualTo(0);
+  }
+
+  @Test
+  void writesShouldNotRecordTasksForMissingNotes() {
+    noteService.update("000000000000000000000000", new NoteData("Title", "Content"));
+    noteService.delete("000000000000000000000000");
+
+    assertThat(noteIndexOutbox.findDue(10)).isEqualTo(List.of());
+  }
+}
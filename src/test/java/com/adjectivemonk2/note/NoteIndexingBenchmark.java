@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.Note;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.types.ObjectId;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+/**
+ * Compares bulk indexing throughput into an index with OpenSearch's defaults and a dynamic
+ * mapping against the managed template with bulk-load settings. Run with {@code ./gradlew
+ * benchmark}; the document count can be changed with {@code -Dbenchmark.notes=...}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class NoteIndexingBenchmark {
+
+  private static final String DEFAULT_INDEX = "benchmark-notes-default";
+  private static final int BATCH_SIZE = 1_000;
+
+  @Inject
+  NoteSearchRepository noteSearchRepository;
+
+  @Inject
+  NoteIndexAdmin indexAdmin;
+
+  @Inject
+  OpenSearchClient openSearchClient;
+
+  @Inject
+  Logger logger;
+
+  private final List<String> createdIndices = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() throws Exception {
+    for (var index : createdIndices) {
+      indexAdmin.deleteIndex(index);
+    }
+  }
+
+  @Test
+  void compareDefaultAndManagedIndexSettings() throws Exception {
+    var notes = Integer.getInteger("benchmark.notes", 200_000);
+
+    // Outside the notes-* pattern, so the template does not apply.
+    openSearchClient.indices().create(request -> request.index(DEFAULT_INDEX));
+    createdIndices.add(DEFAULT_INDEX);
+    var defaults = load(DEFAULT_INDEX, notes);
+
+    var managedIndex = indexAdmin.newIndexName();
+    indexAdmin.createForBulkLoad(managedIndex);
+    createdIndices.add(managedIndex);
+    var managed = load(managedIndex, notes);
+    var endStarted = System.nanoTime();
+    indexAdmin.endBulkLoad(managedIndex);
+    managed += System.nanoTime() - endStarted;
+
+    openSearchClient.indices().refresh(request -> request.index(DEFAULT_INDEX));
+    report("default", DEFAULT_INDEX, notes, defaults);
+    report("managed", managedIndex, notes, managed);
+  }
+
+  /** Loads {@code count} generated notes into {@code index} and returns the elapsed nanos. */
+  private long load(String index, int count) throws Exception {
+    var started = System.nanoTime();
+    var batch = new ArrayList<Note>(BATCH_SIZE);
+    for (var i = 0; i < count; i++) {
+      batch.add(new Note(new ObjectId(), "Benchmark note " + i,
+          "Content of benchmark note " + i + " used to compare index settings"));
+      if (batch.size() == BATCH_SIZE || i == count - 1) {
+        var response = noteSearchRepository.load(index, batch, 1);
+        assertThat(response.errors()).isFalse();
+        batch.clear();
+      }
+    }
+    return System.nanoTime() - started;
+  }
+
+  private void report(String label, String index, int count, long nanos) throws Exception {
+    var stats = openSearchClient.indices().stats(request -> request.index(index));
+    var primaries = stats.indices().get(index).primaries();
+    assertThat(primaries.docs().count()).isEqualTo((long) count);
+    logger.infof("%s: %d notes in %d ms (%.0f docs/s), %d bytes on disk", label, count,
+        nanos / 1_000_000, count * 1e9 / nanos, primaries.store().sizeInBytes());
+  }
+}
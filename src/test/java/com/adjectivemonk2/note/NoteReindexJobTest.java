@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteDocument;
+import com.adjectivemonk2.note.model.NoteReindexStatus.State;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Filters;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.awaitility.Awaitility;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+@QuarkusTest
+class NoteReindexJobTest {
+
+  @Inject
+  NoteReindexJob reindexJob;
+
+  @Inject
+  NoteIndexAdmin indexAdmin;
+
+  @Inject
+  NoteReindexRoute reindexRoute;
+
+  @Inject
+  NoteSearchRepository noteSearchRepository;
+
+  @Inject
+  MongoClient mongoClient;
+
+  @Inject
+  OpenSearchClient openSearchClient;
+
+  @Inject
+  @ConfigProperty(name = "quarkus.mongodb.database")
+  String databaseName;
+
+  @AfterEach
+  void cleanup() {
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class).deleteMany(Filters.empty());
+  }
+
+  private void runReindex() {
+    reindexJob.start();
+    Awaitility.await()
+        .atMost(60, TimeUnit.SECONDS)
+        .until(() -> reindexJob.status().state() != State.RUNNING);
+  }
+
+  @Test
+  void reindexShouldCopyEveryNoteAndMoveTheAliasToTheNewIndex() throws Exception {
+    // Written straight to Mongo, so only the reindex can get them into the search index.
+    var notes = new ArrayList<Note>();
+    for (var i = 0; i < 2_500; i++) {
+      notes.add(new Note(new ObjectId(), "Note " + i, "Reindexed content"));
+    }
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class).insertMany(notes);
+
+    runReindex();
+
+    var status = reindexJob.status();
+    assertThat(status.state()).isEqualTo(State.SUCCEEDED);
+    assertThat(status.indexed()).isEqualTo(2_500L);
+    assertThat(indexAdmin.resolveAlias(NoteIndexAdmin.ALIAS)).containsExactly(status.targetIndex());
+    assertThat(reindexRoute.target()).isNull();
+    var count = openSearchClient.count(request -> request.index(NoteIndexAdmin.ALIAS)).count();
+    assertThat(count).isEqualTo(2_500L);
+  }
+
+  @Test
+  void aCopyShouldNotBringBackANoteDeletedBeforeItLands() throws Exception {
+    var index = indexAdmin.resolveAlias(NoteIndexAdmin.ALIAS).getFirst();
+    var note = new Note(new ObjectId(), "Deleted", "Content");
+    var id = note.id().toHexString();
+    var deletedAt = new BsonTimestamp((int) Instant.now().getEpochSecond(), 1).getValue();
+
+    // The live delete reaches the index before the copy that read the note before it.
+    noteSearchRepository.apply(List.of(new NoteChange(id, null, deletedAt)));
+    noteSearchRepository.load(index, List.of(note), deletedAt - 1);
+
+    var response = openSearchClient.get(get -> get.index(index).id(id), NoteDocument.class);
+    assertThat(response.found()).isFalse();
+  }
+
+  @Test
+  void startShouldNotRunWhileAnotherReplicaHoldsTheLease() throws Exception {
+    var jobs = mongoClient.getDatabase(databaseName).getCollection("note_indexer_state");
+    var aliased = indexAdmin.resolveAlias(NoteIndexAdmin.ALIAS);
+    jobs.insertOne(new Document("_id", "notes-reindex")
+        .append("owner", "other-replica")
+        .append("target", "notes-20250101120000")
+        .append("leaseUntil", Instant.now().plusSeconds(60))
+        .append("startedAt", Instant.now())
+        .append("total", 10L)
+        .append("indexed", 4L)
+        .append("failed", 0L));
+    try {
+      var status = reindexJob.start();
+
+      assertThat(status.state()).isEqualTo(State.RUNNING);
+      assertThat(status.targetIndex()).isEqualTo("notes-20250101120000");
+      assertThat(status.indexed()).isEqualTo(4L);
+      assertThat(reindexRoute.target()).isNull();
+      assertThat(indexAdmin.resolveAlias(NoteIndexAdmin.ALIAS)).isEqualTo(aliased);
+    } finally {
+      jobs.deleteOne(Filters.eq("_id", "notes-reindex"));
+    }
+  }
+
+  @Test
+  void reindexShouldDropThePreviousIndex() throws Exception {
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class)
+        .insertOne(new Note(new ObjectId(), "Note", "Content"));
+    runReindex();
+    var first = reindexJob.status().targetIndex();
+
+    // Index names have second resolution
+    Thread.sleep(1_100);
+    runReindex();
+
+    var second = reindexJob.status().targetIndex();
+    assertThat(second).isNotEqualTo(first);
+    assertThat(indexAdmin.resolveAlias(NoteIndexAdmin.ALIAS)).containsExactly(second);
+    assertThat(openSearchClient.indices().exists(request -> request.index(first)).value()).isFalse();
+  }
+}
@@ -57,17 +57,29 @@ class NoteRepositoryTest {
   }
 
   @Test
-  void findAllShouldReturnAllPersistedNotes() {
+  void findPageShouldReturnAllPersistedNotesInIdOrder() {
     noteRepository.create(new NoteData("Note 1", "Content 1"));
     noteRepository.create(new NoteData("Note 2", "Content 2"));
 
-    var notes = noteRepository.findAll();
+    var notes = noteRepository.findPage(null, 10);
 
     assertThat(notes).hasSize(2);
     var titles = notes.stream().map(Note::title).toList();
     assertThat(titles).containsExactly("Note 1", "Note 2");
   }
 
+  @Test
+  void findPageShouldReturnNotesAfterTheGivenIdUpToTheLimit() {
+    var first = noteRepository.create(new NoteData("Note 1", "Content 1"));
+    noteRepository.create(new NoteData("Note 2", "Content 2"));
+    noteRepository.create(new NoteData("Note 3", "Content 3"));
+
+    var notes = noteRepository.findPage(first.id(), 1);
+
+    var titles = notes.stream().map(Note::title).toList();
+    assertThat(titles).containsExactly("Note 2");
+  }
+
   @Test
   void findByIdShouldReturnNoteWhenItExists() {
     var created = noteRepository.create(new NoteData("Find Me", "Content"));
@@ -20,14 +20,31 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteBulkOperation;
+import com.adjectivemonk2.note.model.NoteBulkOperation.Action;
 import com.adjectivemonk2.note.model.NoteData;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.model.Filters;
+import io.quarkus.test.common.http.TestHTTPResource;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.awaitility.Awaitility;
+import org.bson.types.ObjectId;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.opensearch.client.opensearch.OpenSearchClient;
 
@@ -43,13 +60,27 @@ class NoteResourceTest {
   @Inject
   OpenSearchClient openSearchClient;
 
+  @Inject
+  NoteIndexer noteIndexer;
+
+  @Inject
+  NoteIndexOutbox noteIndexOutbox;
+
+  @Inject
+  NoteSimilarIndex noteSimilarIndex;
+
   @Inject
   @ConfigProperty(name = "quarkus.mongodb.database")
   String databaseName;
 
+  @TestHTTPResource("notes/export")
+  URI exportUri;
+
   @AfterEach
   void cleanup() throws Exception {
     mongoClient.getDatabase(databaseName).getCollection("notes", Note.class).deleteMany(Filters.empty());
+    noteIndexOutbox.getCollection().deleteMany(Filters.empty());
+    noteSimilarIndex.rebuild();
     var indexExists = openSearchClient.indices().exists(b -> b.index("notes")).value();
     if (indexExists) {
       openSearchClient.deleteByQuery(b -> b.index("notes").query(q -> q.matchAll(m -> m)));
@@ -58,13 +89,15 @@ class NoteResourceTest {
   }
 
   private void refreshOpenSearch() throws Exception {
+    noteIndexer.drain();
     openSearchClient.indices().refresh(b -> b.index("notes"));
   }
 
   @Test
-  void listShouldReturnEmptyListWhenNoNotesExist() {
-    var result = noteResource.list();
-    assertThat(result).isEmpty();
+  void listShouldReturnEmptyPageWhenNoNotesExist() {
+    var result = noteResource.list(null, 50);
+    assertThat(result.items()).isEmpty();
+    assertThat(result.next()).isNull();
   }
 
   @Test
@@ -72,11 +105,35 @@ class NoteResourceTest {
     noteResource.create(new NoteData("Note 1", "Content 1"));
     noteResource.create(new NoteData("Note 2", "Content 2"));
 
-    var result = noteResource.list();
+    var result = noteResource.list(null, 50);
 
-    assertThat(result).hasSize(2);
-    var titles = result.stream().map(r -> r.title()).toList();
+    var titles = result.items().stream().map(r -> r.title()).toList();
     assertThat(titles).containsExactly("Note 1", "Note 2");
+    assertThat(result.next()).isNull();
+  }
+
+  @Test
+  void listShouldPageThroughNotesUsingTheNextCursor() {
+    noteResource.create(new NoteData("Note 1", "Content 1"));
+    noteResource.create(new NoteData("Note 2", "Content 2"));
+    noteResource.create(new NoteData("Note 3", "Content 3"));
+
+    var first = noteResource.list(null, 2);
+    var second = noteResource.list(first.next(), 2);
+
+    assertThat(first.items().stream().map(r -> r.title()).toList())
+        .containsExactly("Note 1", "Note 2");
+    assertThat(first.next()).isEqualTo(first.items().getLast().id());
+    assertThat(second.items().stream().map(r -> r.title()).toList())
+        .containsExactly("Note 3");
+    assertThat(second.next()).isNull();
+  }
+
+  @Test
+  void listShouldRejectInvalidCursorAndLimit() {
+    assertThrows(BadRequestException.class, () -> noteResource.list("not-an-id", 50));
+    assertThrows(BadRequestException.class, () -> noteResource.list(null, 0));
+    assertThrows(BadRequestException.class, () -> noteResource.list(null, 100_000));
   }
 
   @Test
@@ -145,7 +202,7 @@ class NoteResourceTest {
     noteResource.create(new NoteData("Java Guide", "Learn Java basics"));
     refreshOpenSearch();
 
-    var results = noteResource.search("Kotlin");
+    var results = noteResource.search("Kotlin", 10, null).items();
 
     assertThat(results).hasSize(1);
     assertThat(results.getFirst().title()).isEqualTo("Kotlin Guide");
@@ -157,9 +214,211 @@ class NoteResourceTest {
     noteResource.create(new NoteData("Java Guide", "Learn Java basics"));
     refreshOpenSearch();
 
-    var results = noteResource.search("Kotlin");
+    var results = noteResource.search("Kotlin", 10, null).items();
 
     assertThat(results).hasSize(1);
     assertThat(results.getFirst().title()).isEqualTo("The Guide");
   }
+
+  @Test
+  void searchShouldPageThroughEveryHitUsingTheNextCursor() throws Exception {
+    for (var i = 0; i < 25; i++) {
+      noteResource.create(new NoteData("Kotlin " + i, "Kotlin notes"));
+    }
+    refreshOpenSearch();
+
+    var ids = new ArrayList<String>();
+    var sizes = new ArrayList<Integer>();
+    String cursor = null;
+    do {
+      var page = noteResource.search("Kotlin", 10, cursor);
+      page.items().forEach(item -> ids.add(item.id()));
+      sizes.add(page.items().size());
+      cursor = page.next();
+    } while (cursor != null);
+
+    assertThat(sizes).containsExactly(10, 10, 5).inOrder();
+    assertThat(ids).containsNoDuplicates();
+    assertThat(ids).hasSize(25);
+  }
+
+  @Test
+  void searchShouldNotSeeWritesMadeAfterTheFirstPage() throws Exception {
+    noteResource.create(new NoteData("Kotlin 1", "Kotlin notes"));
+    noteResource.create(new NoteData("Kotlin 2", "Kotlin notes"));
+    refreshOpenSearch();
+
+    var first = noteResource.search("Kotlin", 1, null);
+    noteResource.create(new NoteData("Kotlin 3", "Kotlin notes"));
+    refreshOpenSearch();
+    var second = noteResource.search("Kotlin", 1, first.next());
+
+    assertThat(second.items()).hasSize(1);
+    assertThat(second.next()).isNull();
+  }
+
+  @Test
+  void searchShouldRejectInvalidCursors() {
+    assertThrows(BadRequestException.class, () -> noteResource.search("Kotlin", 10, "not-a-cursor"));
+  }
+
+  @Test
+  void suggestShouldReturnTitlesStartingWithThePrefix() throws Exception {
+    noteResource.create(new NoteData("Kotlin Guide", "Learn the basics"));
+    noteResource.create(new NoteData("Kotlin Coroutines", "Learn the basics"));
+    noteResource.create(new NoteData("Java Guide", "Learn Kotlin basics"));
+    refreshOpenSearch();
+
+    var titles = noteResource.suggest("KOT", 10);
+
+    assertThat(titles).containsExactly("Kotlin Guide", "Kotlin Coroutines");
+  }
+
+  @Test
+  void suggestShouldShowCreatedTitlesForCachedPrefixes() throws Exception {
+    noteResource.create(new NoteData("Scala Guide", "Learn the basics"));
+    refreshOpenSearch();
+    noteResource.suggest("sca", 10);
+    noteResource.suggest("sca", 10);
+
+    noteResource.create(new NoteData("Scala Collections", "Learn the basics"));
+    refreshOpenSearch();
+    var titles = noteResource.suggest("sca", 10);
+
+    assertThat(titles).containsExactly("Scala Guide", "Scala Collections");
+  }
+
+  @Test
+  void suggestShouldRejectBlankPrefixes() {
+    assertThrows(BadRequestException.class, () -> noteResource.suggest(" ", 5));
+  }
+
+  @Test
+  void similarShouldRankNotesSharingTheMostTermsFirst() throws Exception {
+    var coroutines = noteResource.create(new NoteData("Kotlin Coroutines",
+        "Structured concurrency with kotlin coroutines, suspend functions and flows"));
+    noteResource.create(new NoteData("Kotlin Flows",
+        "Cold streams built on kotlin coroutines and suspend functions"));
+    noteResource.create(new NoteData("Kotlin Basics", "Variables and functions in kotlin"));
+    noteResource.create(new NoteData("Tomato Gardening", "Tomatoes need sunlight and water"));
+
+    Awaitility.await()
+        .atMost(10, TimeUnit.SECONDS)
+        .untilAsserted(() -> assertThat(
+            noteResource.similar(coroutines.id(), 2).stream().map(r -> r.title()).toList())
+            .containsExactly("Kotlin Flows", "Kotlin Basics")
+            .inOrder());
+  }
+
+  @Test
+  void similarShouldFindNotesWrittenAroundThisReplica() {
+    var guide = noteResource.create(new NoteData("Kotlin Guide", "Learn kotlin coroutines"));
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class)
+        .insertOne(new Note(new ObjectId(), "Kotlin Coroutines", "Learn kotlin coroutines"));
+
+    Awaitility.await()
+        .atMost(10, TimeUnit.SECONDS)
+        .untilAsserted(() -> assertThat(
+            noteResource.similar(guide.id(), 10).stream().map(r -> r.title()).toList())
+            .containsExactly("Kotlin Coroutines"));
+  }
+
+  @Test
+  void similarShouldNotReturnDeletedNotes() throws Exception {
+    var guide = noteResource.create(new NoteData("Kotlin Guide", "Learn kotlin coroutines"));
+    var deleted = noteResource.create(new NoteData("Kotlin Coroutines", "Learn kotlin coroutines"));
+    noteResource.delete(deleted.id());
+
+    assertThat(noteResource.similar(guide.id(), 10)).isEmpty();
+  }
+
+  @Test
+  void similarShouldReturn404ForUnknownNotes() {
+    assertThrows(NotFoundException.class,
+        () -> noteResource.similar("000000000000000000000000", 10));
+  }
+
+  @Test
+  void bulkShouldApplyEveryOperationAndReportEachResult() throws Exception {
+    var toUpdate = noteResource.create(new NoteData("Original", "Original Content"));
+    var toDelete = noteResource.create(new NoteData("To Delete", "Content"));
+    var missingId = "000000000000000000000000";
+
+    var response = noteResource.bulk(List.of(
+        new NoteBulkOperation(Action.CREATE, null, new NoteData("Kotlin Guide", "Learn Kotlin")),
+        new NoteBulkOperation(Action.UPDATE, toUpdate.id(), new NoteData("Updated", "Kotlin")),
+        new NoteBulkOperation(Action.DELETE, toDelete.id(), null),
+        new NoteBulkOperation(Action.DELETE, missingId, null),
+        new NoteBulkOperation(Action.UPDATE, "not-an-id", new NoteData("Title", "Content"))));
+
+    assertThat(response.errors()).isTrue();
+    var statuses = response.items().stream().map(item -> item.status()).toList();
+    assertThat(statuses).containsExactly(201, 200, 200, 404, 400).inOrder();
+    var createdId = response.items().getFirst().id();
+    assertThat(noteResource.get(createdId).title()).isEqualTo("Kotlin Guide");
+    assertThat(noteResource.get(toUpdate.id()).title()).isEqualTo("Updated");
+    assertThrows(NotFoundException.class, () -> noteResource.get(toDelete.id()));
+
+    refreshOpenSearch();
+    var titles = noteResource.search("Kotlin", 10, null).items().stream().map(r -> r.title()).toList();
+    assertThat(titles).containsExactly("Kotlin Guide", "Updated");
+  }
+
+  @Test
+  void bulkShouldRejectOperationsThatShareANote() {
+    var note = noteResource.create(new NoteData("Shared", "Content"));
+
+    var response = noteResource.bulk(List.of(
+        new NoteBulkOperation(Action.UPDATE, note.id(), new NoteData("Updated", "Content")),
+        new NoteBulkOperation(Action.DELETE, note.id(), null),
+        new NoteBulkOperation(Action.CREATE, null, new NoteData("Other", "Content"))));
+
+    var statuses = response.items().stream().map(item -> item.status()).toList();
+    assertThat(statuses).containsExactly(400, 400, 201).inOrder();
+    assertThat(noteResource.get(note.id()).title()).isEqualTo("Shared");
+  }
+
+  @Test
+  void bulkShouldRejectEmptyRequests() {
+    assertThrows(BadRequestException.class, () -> noteResource.bulk(List.of()));
+  }
+
+  @Test
+  @Tag("benchmark")
+  @Tag("bounded-heap")
+  void exportShouldStreamMoreNotesThanFitInTheHeap() throws Exception {
+    var noteCount = 100_000;
+    var content = "x".repeat(6_000);
+    var collection = mongoClient.getDatabase(databaseName).getCollection("notes", Note.class);
+    for (var offset = 0; offset < noteCount; offset += 1_000) {
+      var batch = new ArrayList<Note>(1_000);
+      for (var i = 0; i < 1_000; i++) {
+        batch.add(new Note(new ObjectId(), "Note " + (offset + i), content));
+      }
+      collection.insertMany(batch);
+    }
+
+    var lines = 0L;
+    var bytes = 0L;
+    try (var client = HttpClient.newHttpClient()) {
+      var response = client.send(
+          HttpRequest.newBuilder(exportUri).GET().build(),
+          HttpResponse.BodyHandlers.ofInputStream());
+      assertThat(response.statusCode()).isEqualTo(200);
+      assertThat(response.headers().firstValue("Content-Type").orElseThrow())
+          .startsWith(NoteResource.APPLICATION_NDJSON);
+      try (var reader = new BufferedReader(
+          new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          lines++;
+          bytes += line.length() + 1;
+        }
+      }
+    }
+
+    assertThat(lines).isEqualTo(noteCount);
+    // The export is larger than the whole test heap, so it can only have been streamed.
+    assertThat(bytes).isGreaterThan(Runtime.getRuntime().maxMemory());
+  }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.Note;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.bson.types.ObjectId;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+/**
+ * Compares the embedded Lucene backend with OpenSearch: the time to index notes in outbox-sized
+ * batches until they are searchable, and search latency at p50 and p99. Run with {@code ./gradlew
+ * benchmark}; the note count can be changed with {@code -Dbenchmark.notes=...}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class NoteSearchBackendBenchmark {
+
+  private static final String[] WORDS = {
+      "kotlin", "java", "quarkus", "mongo", "redis", "search", "index", "cache", "thread",
+      "stream", "cluster", "replica", "shard", "vector", "lucene", "gradle", "helm", "docker",
+      "kubernetes", "metrics"};
+  private static final int BATCH_SIZE = 500;
+  private static final int WARMUP_SEARCHES = 500;
+  private static final int SEARCHES = 2_000;
+
+  @Inject
+  NoteSearchRepository noteSearchRepository;
+
+  @Inject
+  NoteRepository noteRepository;
+
+  @Inject
+  NoteSearchCache searchCache;
+
+  @Inject
+  OpenSearchClient openSearchClient;
+
+  @Inject
+  Logger logger;
+
+  private LuceneNoteSearchBackend lucene;
+
+  @AfterEach
+  void cleanup() throws Exception {
+    if (lucene != null) {
+      lucene.close();
+    }
+    openSearchClient.deleteByQuery(request -> request
+        .index(NoteIndexAdmin.ALIAS)
+        .query(query -> query.matchAll(all -> all)));
+    openSearchClient.indices().refresh(request -> request.index(NoteIndexAdmin.ALIAS));
+  }
+
+  private static String text(Random random, int words) {
+    var text = new StringBuilder();
+    for (var i = 0; i < words; i++) {
+      text.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return text.toString();
+  }
+
+  @Test
+  void compareLuceneAndOpenSearch() throws Exception {
+    var count = Integer.getInteger("benchmark.notes", 20_000);
+    var random = new Random(42);
+    var notes = new ArrayList<Note>(count);
+    for (var i = 0; i < count; i++) {
+      notes.add(new Note(new ObjectId(), text(random, 3), text(random, 30)));
+    }
+    lucene = new LuceneNoteSearchBackend(noteRepository, searchCache,
+        NoteSearchBackendType.LUCENE, NoteIndexingMode.CHANGE_STREAM,
+        Files.createTempDirectory("notes-lucene-benchmark"), 1_000, Duration.ofSeconds(5),
+        Duration.ofMinutes(1), true, logger);
+    lucene.open();
+
+    var luceneWrites = index(lucene, notes);
+    var openSearchWrites = index(noteSearchRepository, notes);
+    var refreshStarted = System.nanoTime();
+    openSearchClient.indices().refresh(request -> request.index(NoteIndexAdmin.ALIAS));
+    openSearchWrites += System.nanoTime() - refreshStarted;
+
+    report("lucene", count, luceneWrites, search(lucene));
+    report("opensearch", count, openSearchWrites, search(noteSearchRepository));
+  }
+
+  /** Indexes {@code notes} in batches like the outbox indexer and returns the elapsed nanos. */
+  private static long index(NoteSearchBackend backend, List<Note> notes) throws Exception {
+    var started = System.nanoTime();
+    for (var offset = 0; offset < notes.size(); offset += BATCH_SIZE) {
+      var batch = notes.subList(offset, Math.min(offset + BATCH_SIZE, notes.size())).stream()
+          .map(note -> new NoteChange(note.id().toHexString(), note, 1))
+          .toList();
+      assertThat(backend.apply(batch)).isEmpty();
+    }
+    return System.nanoTime() - started;
+  }
+
+  /** Runs two-word first-page searches and returns their sorted latencies in nanos. */
+  private long[] search(NoteSearchBackend backend) throws Exception {
+    var random = new Random(7);
+    for (var i = 0; i < WARMUP_SEARCHES; i++) {
+      release(backend.search(text(random, 2), 10, null));
+    }
+    var latencies = new long[SEARCHES];
+    for (var i = 0; i < SEARCHES; i++) {
+      var q = text(random, 2);
+      var started = System.nanoTime();
+      var result = backend.search(q, 10, null);
+      latencies[i] = System.nanoTime() - started;
+      assertThat(result.documents()).isNotEmpty();
+      release(result);
+    }
+    Arrays.sort(latencies);
+    return latencies;
+  }
+
+  /** Closes OpenSearch points-in-time right away so the benchmark stays under the open limit. */
+  private void release(NoteSearchResult result) throws Exception {
+    var next = result.next();
+    if (next != null && !next.pitId().startsWith(LuceneNoteSearchBackend.CURSOR_PREFIX)) {
+      openSearchClient.deletePit(request -> request.pitId(next.pitId()));
+    }
+  }
+
+  private void report(String label, int count, long writeNanos, long[] latencies) {
+    var p50 = latencies[latencies.length / 2];
+    var p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+    logger.infof("%s: indexed %d notes in %d ms (%.0f docs/s); search p50 %.2f ms, p99 %.2f ms",
+        label, count, writeNanos / 1_000_000, count * 1e9 / writeNanos, p50 / 1e6, p99 / 1e6);
+  }
+}
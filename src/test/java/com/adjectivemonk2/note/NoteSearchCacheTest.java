@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.NoteData;
+import com.adjectivemonk2.note.model.NoteDocument;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Filters;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class NoteSearchCacheTest {
+
+  @Inject
+  NoteSearchCache searchCache;
+
+  @Inject
+  NoteService noteService;
+
+  @Inject
+  NoteIndexOutbox noteIndexOutbox;
+
+  @Inject
+  RedisDataSource redisDataSource;
+
+  @Inject
+  MongoClient mongoClient;
+
+  @Inject
+  @ConfigProperty(name = "quarkus.mongodb.database")
+  String databaseName;
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @AfterEach
+  void cleanup() {
+    mongoClient.getDatabase(databaseName).getCollection("notes").deleteMany(Filters.empty());
+    noteIndexOutbox.getCollection().deleteMany(Filters.empty());
+  }
+
+  private NoteSearchCache.Loader loader(String title) {
+    return () -> {
+      loads.incrementAndGet();
+      return new NoteSearchResult(List.of(new NoteDocument("id", title, "Content")), null, false);
+    };
+  }
+
+  @Test
+  void getShouldServeRepeatedSearchesFromTheCache() throws Exception {
+    var first = searchCache.get("cached query", 10, null, loader("Cached"));
+    var second = searchCache.get("  Cached   QUERY ", 10, null, loader("Cached"));
+
+    assertThat(second).isEqualTo(first);
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  void getShouldKeepPagesAndSizesApart() throws Exception {
+    searchCache.get("paged query", 10, null, loader("First"));
+    searchCache.get("paged query", 20, null, loader("Bigger"));
+    searchCache.get("paged query", 10, new NoteSearchCursor("pit", 1.5, "id"), loader("Second"));
+
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  void getShouldKeepPagesOfDifferentPointInTimesApart() throws Exception {
+    searchCache.get("snapshot query", 10, new NoteSearchCursor("pit-1", 1.5, "id"),
+        loader("Old snapshot"));
+    var page = searchCache.get("snapshot query", 10, new NoteSearchCursor("pit-2", 1.5, "id"),
+        loader("New snapshot"));
+
+    assertThat(page.documents().getFirst().title()).isEqualTo("New snapshot");
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void concurrentIdenticalSearchesShouldReachTheBackendOnce() throws Exception {
+    var searches = 100;
+    var started = new CountDownLatch(searches);
+    var results = new ArrayList<Future<NoteSearchResult>>();
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var i = 0; i < searches; i++) {
+        results.add(executor.submit(() -> {
+          started.countDown();
+          return searchCache.get("trending query", 10, null, () -> {
+            started.await();
+            // Give the last searches time to join the one in flight.
+            Thread.sleep(200);
+            return loader("Trending").load();
+          });
+        }));
+      }
+    }
+
+    for (var result : results) {
+      assertThat(result.get().documents().getFirst().title()).isEqualTo("Trending");
+    }
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  void writesShouldBumpTheGenerationAndInvalidateCachedPages() throws Exception {
+    var generations = redisDataSource.value(String.class, Long.class);
+    var before = generations.get(NoteSearchCache.GENERATION_KEY);
+    searchCache.get("invalidated query", 10, null, loader("Old"));
+
+    noteService.create(new NoteData("New", "Content"));
+    var result = searchCache.get("invalidated query", 10, null, loader("New"));
+
+    assertThat(generations.get(NoteSearchCache.GENERATION_KEY)).isGreaterThan(before == null ? 0 : before);
+    assertThat(result.documents().getFirst().title()).isEqualTo("New");
+    assertThat(loads.get()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteData;
+import com.adjectivemonk2.note.model.NoteResponse;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Filters;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import java.util.Map;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+/** Searches with ID-only hits that are filled in from the note cache and Mongo. */
+@QuarkusTest
+@TestProfile(NoteSearchHydrationTest.IdOnlyProfile.class)
+class NoteSearchHydrationTest {
+
+  public static class IdOnlyProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of("notes.search.store-source", "false");
+    }
+  }
+
+  @Inject
+  NoteResource noteResource;
+
+  @Inject
+  NoteSearchRepository noteSearchRepository;
+
+  @Inject
+  NoteIndexer noteIndexer;
+
+  @Inject
+  NoteIndexOutbox noteIndexOutbox;
+
+  @Inject
+  OpenSearchClient openSearchClient;
+
+  @Inject
+  MongoClient mongoClient;
+
+  @Inject
+  @ConfigProperty(name = "quarkus.mongodb.database")
+  String databaseName;
+
+  @AfterEach
+  void cleanup() throws Exception {
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class).deleteMany(Filters.empty());
+    noteIndexOutbox.getCollection().deleteMany(Filters.empty());
+    openSearchClient.deleteByQuery(request -> request
+        .index(NoteIndexAdmin.ALIAS)
+        .query(query -> query.matchAll(all -> all)));
+    openSearchClient.indices().refresh(request -> request.index(NoteIndexAdmin.ALIAS));
+  }
+
+  private void refreshOpenSearch() throws Exception {
+    noteIndexer.drain();
+    openSearchClient.indices().refresh(request -> request.index(NoteIndexAdmin.ALIAS));
+  }
+
+  @Test
+  void backendHitsShouldOnlyCarryIds() throws Exception {
+    var note = noteResource.create(new NoteData("Kotlin Guide", "Learn the basics"));
+    refreshOpenSearch();
+
+    var result = noteSearchRepository.search("kotlin", 10, null);
+
+    assertThat(result.documents()).hasSize(1);
+    assertThat(result.documents().getFirst().id()).isEqualTo(note.id());
+    assertThat(result.documents().getFirst().title()).isNull();
+    assertThat(result.documents().getFirst().content()).isNull();
+  }
+
+  @Test
+  void searchShouldReturnTheLatestMongoVersionOfEachHitInScoreOrder() throws Exception {
+    var guide = noteResource.create(new NoteData("Kotlin Guide", "Kotlin basics"));
+    noteResource.create(new NoteData("Java Guide", "Mentions kotlin once"));
+    refreshOpenSearch();
+    // Not indexed yet, so the hit still matches on the old content.
+    noteResource.update(guide.id(), new NoteData("Kotlin Handbook", "Kotlin in depth"));
+
+    var page = noteResource.search("kotlin", 10, null);
+
+    assertThat(page.items().stream().map(NoteResponse::title).toList())
+        .containsExactly("Kotlin Handbook", "Java Guide")
+        .inOrder();
+    assertThat(page.items().getFirst().content()).isEqualTo("Kotlin in depth");
+  }
+
+  @Test
+  void searchShouldDropHitsWhoseNoteIsGone() throws Exception {
+    var gone = noteResource.create(new NoteData("Kotlin Guide", "Learn the basics"));
+    noteResource.create(new NoteData("Kotlin Basics", "Learn the basics"));
+    refreshOpenSearch();
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class)
+        .deleteOne(Filters.eq("_id", new ObjectId(gone.id())));
+
+    var page = noteResource.search("kotlin", 10, null);
+
+    assertThat(page.items().stream().map(NoteResponse::title).toList())
+        .containsExactly("Kotlin Basics");
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.adjectivemonk2.note.model.Note;
+import com.adjectivemonk2.note.model.NoteData;
+import com.adjectivemonk2.note.model.NoteResponse;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Filters;
+import io.quarkus.test.junit.QuarkusMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.enterprise.inject.Vetoed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ServiceUnavailableException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs against an OpenSearch stand-in that never answers within the search deadline. */
+@QuarkusTest
+@TestProfile(NoteSearchServiceTest.FallbackProfile.class)
+class NoteSearchServiceTest {
+
+  private static final int REQUEST_VOLUME_THRESHOLD = 4;
+
+  public static class FallbackProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of(
+          "notes.search.deadline", "200ms",
+          "notes.search.circuit-breaker.request-volume-threshold",
+          String.valueOf(REQUEST_VOLUME_THRESHOLD),
+          "notes.search.circuit-breaker.delay", "1h");
+    }
+  }
+
+  /** Counts searches and hangs on each one well past the deadline. */
+  @Vetoed
+  static class HangingSearchRepository extends NoteSearchRepository {
+
+    final AtomicInteger searches = new AtomicInteger();
+
+    HangingSearchRepository() {
+      super(null, null, null, Duration.ZERO, "1m", true, null);
+    }
+
+    @Override
+    public NoteSearchResult search(String q, int size, NoteSearchCursor after) throws Exception {
+      searches.incrementAndGet();
+      Thread.sleep(Duration.ofSeconds(30));
+      throw new IllegalStateException("Should have been interrupted by the deadline");
+    }
+  }
+
+  @Inject
+  NoteResource noteResource;
+
+  @Inject
+  NoteSearchService noteSearchService;
+
+  @Inject
+  NoteIndexOutbox noteIndexOutbox;
+
+  @Inject
+  MongoClient mongoClient;
+
+  @Inject
+  @ConfigProperty(name = "quarkus.mongodb.database")
+  String databaseName;
+
+  private final HangingSearchRepository searchRepository = new HangingSearchRepository();
+
+  @BeforeEach
+  void installHangingSearchRepository() {
+    QuarkusMock.installMockForType(searchRepository, NoteSearchRepository.class);
+  }
+
+  @AfterEach
+  void cleanup() {
+    mongoClient.getDatabase(databaseName).getCollection("notes", Note.class).deleteMany(Filters.empty());
+    noteIndexOutbox.getCollection().deleteMany(Filters.empty());
+  }
+
+  @Test
+  void searchShouldAnswerFromTheTextIndexWithinTheDeadline() throws Exception {
+    noteResource.create(new NoteData("Kotlin Guide", "Learn the basics"));
+    noteResource.create(new NoteData("Java Guide", "Learn Java basics"));
+
+    var started = System.nanoTime();
+    var page = noteResource.search("Kotlin", 10, null);
+    var elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+    assertThat(page.degraded()).isTrue();
+    assertThat(page.items().stream().map(NoteResponse::title).toList())
+        .containsExactly("Kotlin Guide");
+    assertThat(elapsed).isLessThan(Duration.ofSeconds(2));
+  }
+
+  @Test
+  void degradedCursorsShouldKeepPagingThroughTheTextIndex() throws Exception {
+    for (var i = 0; i < 5; i++) {
+      noteResource.create(new NoteData("Kotlin " + i, "Kotlin notes"));
+    }
+
+    var first = noteResource.search("Kotlin", 3, null);
+    var second = noteResource.search("Kotlin", 3, first.next());
+
+    assertThat(first.items()).hasSize(3);
+    assertThat(second.degraded()).isTrue();
+    assertThat(second.items()).hasSize(2);
+    assertThat(second.next()).isNull();
+    var ids = first.items().stream().map(NoteResponse::id).toList();
+    for (var item : second.items()) {
+      assertThat(ids).doesNotContain(item.id());
+    }
+  }
+
+  @Test
+  void circuitBreakerShouldStopWaitingOnOpenSearchAfterRepeatedFailures() throws Exception {
+    for (var i = 0; i < REQUEST_VOLUME_THRESHOLD * 3; i++) {
+      var page = noteSearchService.search("Kotlin " + i, 10, null);
+      assertThat(page.degraded()).isTrue();
+    }
+
+    assertThat(searchRepository.searches.get()).isAtMost(REQUEST_VOLUME_THRESHOLD);
+  }
+
+  @Test
+  void openSearchCursorsShouldFailWhileDegraded() {
+    var cursor = new NoteSearchCursor("pit", 1.0, "000000000000000000000000");
+
+    assertThrows(ServiceUnavailableException.class,
+        () -> noteSearchService.search("Kotlin", 10, cursor));
+  }
+}
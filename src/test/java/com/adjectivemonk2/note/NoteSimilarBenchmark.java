@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.Note;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Filters;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures recall@{@value #K} and latency of {@link NoteSimilarIndex} against a brute-force scan.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class NoteSimilarBenchmark {
+
+  private static final int K = 10;
+  private static final int TOPICS = 200;
+  private static final int WORDS_PER_TOPIC = 40;
+  private static final int BATCH_SIZE = 1_000;
+  private static final int QUERIES = 1_000;
+  private static final double MIN_RECALL = 0.9;
+
+  @Inject
+  NoteRepository noteRepository;
+
+  @Inject
+  MongoClient mongoClient;
+
+  @Inject
+  @ConfigProperty(name = "quarkus.mongodb.database")
+  String databaseName;
+
+  @Inject
+  Logger logger;
+
+  private NoteSimilarIndex index;
+
+  @AfterEach
+  void cleanup() throws Exception {
+    if (index != null) {
+      index.close();
+    }
+    mongoClient.getDatabase(databaseName).getCollection("notes").deleteMany(Filters.empty());
+  }
+
+  /** Mostly words of one topic, plus a few from anywhere. */
+  private static Note note(Random random) {
+    var topic = random.nextInt(TOPICS);
+    var content = new StringBuilder();
+    for (var i = 0; i < 30; i++) {
+      var wordTopic = random.nextInt(5) == 0 ? random.nextInt(TOPICS) : topic;
+      content.append("t").append(wordTopic).append("w").append(random.nextInt(WORDS_PER_TOPIC))
+          .append(' ');
+    }
+    var title = "t" + topic + "w" + random.nextInt(WORDS_PER_TOPIC);
+    return new Note(new ObjectId(), title, content.toString());
+  }
+
+  @Test
+  void compareApproximateAndExactNearestNeighbours() throws Exception {
+    var count = Integer.getInteger("benchmark.notes", 50_000);
+    var random = new Random(42);
+    var notes = new ArrayList<Note>(count);
+    var vectors = new float[count][];
+    for (var i = 0; i < count; i++) {
+      notes.add(note(random));
+      vectors[i] = NoteVectorizer.vectorize(notes.get(i).title(), notes.get(i).content());
+    }
+
+    var collection = mongoClient.getDatabase(databaseName).getCollection("notes", Note.class);
+    for (var offset = 0; offset < count; offset += BATCH_SIZE) {
+      collection.insertMany(notes.subList(offset, Math.min(offset + BATCH_SIZE, count)));
+    }
+
+    // Built the way a replica builds it on first start: a rebuild reading the notes from Mongo.
+    index = new NoteSimilarIndex(noteRepository, mongoClient, databaseName, true,
+        Files.createTempDirectory("notes-similar-benchmark"), BATCH_SIZE, Duration.ofSeconds(1),
+        Duration.ofSeconds(5), logger);
+    index.open();
+    var indexStarted = System.nanoTime();
+    index.rebuild();
+    var indexNanos = System.nanoTime() - indexStarted;
+
+    var approximateLatencies = new long[QUERIES];
+    var exactLatencies = new long[QUERIES];
+    var found = 0;
+    for (var q = 0; q < QUERIES; q++) {
+      var query = note(random);
+      var vector = NoteVectorizer.vectorize(query.title(), query.content());
+
+      var started = System.nanoTime();
+      var approximate = index.nearest(vector, K);
+      approximateLatencies[q] = System.nanoTime() - started;
+
+      started = System.nanoTime();
+      var exact = bruteForce(vector, vectors, K);
+      exactLatencies[q] = System.nanoTime() - started;
+
+      var expected = new HashSet<String>();
+      for (var i : exact) {
+        expected.add(notes.get(i).id().toHexString());
+      }
+      found += (int) approximate.stream().filter(expected::contains).count();
+    }
+
+    var recall = found / (double) (QUERIES * K);
+    logger.infof("%d notes indexed in %d ms; recall@%d %.3f", count, indexNanos / 1_000_000, K,
+        recall);
+    report("hnsw", approximateLatencies);
+    report("brute force", exactLatencies);
+    assertThat(recall).isAtLeast(MIN_RECALL);
+  }
+
+  /** Returns the indexes of the {@code k} vectors with the highest dot product, by full scan. */
+  private static List<Integer> bruteForce(float[] query, float[][] vectors, int k) {
+    var scores = new float[vectors.length];
+    var top = new PriorityQueue<Integer>(k + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+    for (var i = 0; i < vectors.length; i++) {
+      scores[i] = NoteVectorizer.dotProduct(query, vectors[i]);
+      top.add(i);
+      if (top.size() > k) {
+        top.poll();
+      }
+    }
+    return List.copyOf(top);
+  }
+
+  private void report(String label, long[] latencies) {
+    Arrays.sort(latencies);
+    var p50 = latencies[latencies.length / 2];
+    var p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+    logger.infof("%s: p50 %.3f ms, p99 %.3f ms", label, p50 / 1e6, p99 / 1e6);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.adjectivemonk2.note.model.Note;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.bson.types.ObjectId;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+/**
+ * Simulates many users typing note titles into a search box at once and checks that
+ * {@code GET /notes/suggest} keeps its p99 latency under 10 ms. Run with {@code ./gradlew
+ * benchmark}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class NoteSuggestLoadTest {
+
+  private static final String[] WORDS = {
+      "kotlin", "java", "quarkus", "mongo", "redis", "search", "index", "cache", "thread",
+      "stream", "cluster", "replica", "shard", "vector", "lucene", "gradle", "helm", "docker",
+      "kubernetes", "metrics"};
+  private static final int TITLES = 20_000;
+  private static final int USERS = 64;
+  private static final int TITLES_PER_USER = 25;
+  private static final long P99_TARGET_NANOS = 10_000_000;
+
+  @TestHTTPResource("notes/suggest")
+  URI suggestUri;
+
+  @Inject
+  NoteSearchRepository noteSearchRepository;
+
+  @Inject
+  OpenSearchClient openSearchClient;
+
+  @Inject
+  Logger logger;
+
+  @AfterEach
+  void cleanup() throws Exception {
+    openSearchClient.deleteByQuery(request -> request
+        .index(NoteIndexAdmin.ALIAS)
+        .query(query -> query.matchAll(all -> all)));
+    openSearchClient.indices().refresh(request -> request.index(NoteIndexAdmin.ALIAS));
+  }
+
+  private static String title(Random random) {
+    return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+        + random.nextInt(1_000);
+  }
+
+  @Test
+  void suggestShouldStayUnderTenMillisecondsAtP99WhileUsersType() throws Exception {
+    var random = new Random(42);
+    for (var offset = 0; offset < TITLES; offset += 1_000) {
+      var batch = new ArrayList<NoteChange>(1_000);
+      for (var i = 0; i < 1_000; i++) {
+        var note = new Note(new ObjectId(), title(random), "Content");
+        batch.add(new NoteChange(note.id().toHexString(), note, 1));
+      }
+      assertThat(noteSearchRepository.apply(batch)).isEmpty();
+    }
+    openSearchClient.indices().refresh(request -> request.index(NoteIndexAdmin.ALIAS));
+
+    try (var client = HttpClient.newHttpClient()) {
+      // Warm up the JIT, connections and popular prefixes without measuring.
+      typeConcurrently(client, new Random(1), new ConcurrentLinkedQueue<>());
+
+      var latencies = new ConcurrentLinkedQueue<Long>();
+      typeConcurrently(client, new Random(2), latencies);
+
+      var sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+      var p50 = sorted[sorted.length / 2];
+      var p99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+      logger.infof("%d suggest requests from %d users: p50 %.2f ms, p99 %.2f ms", sorted.length,
+          USERS, p50 / 1e6, p99 / 1e6);
+      assertThat(p99).isLessThan(P99_TARGET_NANOS);
+    }
+  }
+
+  /** Every user types whole titles one keystroke at a time, requesting suggestions on each. */
+  private void typeConcurrently(HttpClient client, Random seeds, ConcurrentLinkedQueue<Long> latencies)
+      throws Exception {
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      var users = new ArrayList<Future<?>>();
+      for (var user = 0; user < USERS; user++) {
+        var random = new Random(seeds.nextLong());
+        users.add(executor.submit(() -> {
+          for (var t = 0; t < TITLES_PER_USER; t++) {
+            var title = title(random);
+            for (var length = 1; length <= title.length(); length++) {
+              var prefix = URLEncoder.encode(title.substring(0, length), StandardCharsets.UTF_8);
+              var request = HttpRequest.newBuilder(URI.create(suggestUri + "?prefix=" + prefix))
+                  .GET()
+                  .build();
+              var started = System.nanoTime();
+              var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+              latencies.add(System.nanoTime() - started);
+              assertThat(response.statusCode()).isEqualTo(200);
+            }
+          }
+          return null;
+        }));
+      }
+      for (var user : users) {
+        user.get();
+      }
+    }
+  }
+}
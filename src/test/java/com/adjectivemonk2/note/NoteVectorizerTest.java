@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class NoteVectorizerTest {
+
+  @Test
+  void vectorsShouldHaveUnitLength() {
+    var vector = NoteVectorizer.vectorize("Kotlin Guide", "Learn kotlin coroutines and flows");
+
+    assertThat(vector).hasLength(NoteVectorizer.DIMENSIONS);
+    assertThat((double) NoteVectorizer.dotProduct(vector, vector)).isWithin(1e-5).of(1.0);
+  }
+
+  @Test
+  void vectorsShouldIgnoreCasePunctuationAndStopWords() {
+    var vector = NoteVectorizer.vectorize("Kotlin guide", "Learn kotlin coroutines");
+    var same = NoteVectorizer.vectorize("KOTLIN: Guide!", "learn the kotlin, coroutines");
+
+    assertThat((double) NoteVectorizer.dotProduct(vector, same)).isWithin(1e-5).of(1.0);
+  }
+
+  @Test
+  void notesSharingTermsShouldBeCloserThanUnrelatedNotes() {
+    var coroutines = NoteVectorizer.vectorize("Kotlin Coroutines", "Suspend functions and flows");
+    var flows = NoteVectorizer.vectorize("Kotlin Flows", "Cold streams of suspend functions");
+    var gardening = NoteVectorizer.vectorize("Tomato Gardening", "Tomatoes need sunlight");
+
+    assertThat(NoteVectorizer.dotProduct(coroutines, flows))
+        .isGreaterThan(NoteVectorizer.dotProduct(coroutines, gardening));
+  }
+
+  @Test
+  void notesWithoutTermsShouldHaveNoVector() {
+    assertThat(NoteVectorizer.vectorize("The", "a an of to")).isNull();
+    assertThat(NoteVectorizer.vectorize(null, null)).isNull();
+  }
+}
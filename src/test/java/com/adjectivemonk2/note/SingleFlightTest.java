@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.note;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+  private static final int CALLERS = 200;
+
+  private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  /**
+   * Starts {@link #CALLERS} concurrent calls for {@code key}. The call blocks until every caller
+   * has arrived, so all of them overlap with it.
+   */
+  private ArrayList<Future<String>> callConcurrently(String key, SingleFlight.Call<String> call)
+      throws Exception {
+    var arrived = new CountDownLatch(CALLERS);
+    var futures = new ArrayList<Future<String>>();
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var i = 0; i < CALLERS; i++) {
+        futures.add(executor.submit(() -> {
+          arrived.countDown();
+          return singleFlight.execute(key, () -> {
+            calls.incrementAndGet();
+            assertThat(arrived.await(10, TimeUnit.SECONDS)).isTrue();
+            // Let the last callers get from the latch into execute.
+            Thread.sleep(200);
+            return call.call();
+          });
+        }));
+      }
+    }
+    return futures;
+  }
+
+  @Test
+  void concurrentIdenticalCallsShouldShareOneCall() throws Exception {
+    var futures = callConcurrently("kotlin", () -> "result");
+
+    for (var future : futures) {
+      assertThat(future.get()).isEqualTo("result");
+    }
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(singleFlight.inFlight()).isEqualTo(0);
+  }
+
+  @Test
+  void failuresShouldReachEveryCallerAndReleaseTheKey() throws Exception {
+    var futures = callConcurrently("kotlin", () -> {
+      throw new IllegalStateException("backend down");
+    });
+
+    for (var future : futures) {
+      var e = assertThrows(ExecutionException.class, future::get);
+      assertThat(e).hasCauseThat().isInstanceOf(IllegalStateException.class);
+    }
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(singleFlight.inFlight()).isEqualTo(0);
+  }
+
+  @Test
+  void callsAfterCompletionShouldRunAgain() throws Exception {
+    singleFlight.execute("kotlin", () -> "first" + calls.incrementAndGet());
+    var second = singleFlight.execute("kotlin", () -> "second" + calls.incrementAndGet());
+
+    assertThat(second).isEqualTo("second2");
+    assertThat(singleFlight.inFlight()).isEqualTo(0);
+  }
+
+  @Test
+  void differentKeysShouldNotBeCoalesced() throws Exception {
+    var first = singleFlight.execute("kotlin", () -> "kotlin" + calls.incrementAndGet());
+    var second = singleFlight.execute("java", () -> "java" + calls.incrementAndGet());
+
+    assertThat(first).isEqualTo("kotlin1");
+    assertThat(second).isEqualTo("java2");
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adjectivemonk2.ratelimit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.restassured.RestAssured.given;
+
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@TestProfile(RateLimitFilterTest.RateLimitProfile.class)
+class RateLimitFilterTest {
+
+  private static final String ROUTE = "GreetingResource.hello";
+
+  public static class RateLimitProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of(
+          "rate-limit.enabled", "true",
+          "rate-limit.prefetch", "2",
+          "rate-limit.trusted-proxies", "127.0.0.1,0:0:0:0:0:0:0:1",
+          "rate-limit.routes.\"" + ROUTE + "\".capacity", "3",
+          "rate-limit.routes.\"" + ROUTE + "\".refill-per-second", "0.01");
+    }
+  }
+
+  @Inject
+  RateLimiter rateLimiter;
+
+  @Inject
+  RedisDataSource dataSource;
+
+  private final List<String> clients = new ArrayList<>();
+
+  @AfterEach
+  void cleanup() {
+    for (var client : clients) {
+      dataSource.key(String.class).del(RateLimiter.KEY_PREFIX + ROUTE + ":" + client,
+          RateLimiter.KEY_PREFIX + ROUTE + ":ip:" + client);
+    }
+  }
+
+  private String client(String name) {
+    var client = "rate-limit-test-" + name + "-" + System.nanoTime();
+    clients.add(client);
+    return client;
+  }
+
+  private int hello(String client) {
+    return given().header("X-Forwarded-For", client).get("/hello").statusCode();
+  }
+
+  @Test
+  void requestsOverTheLimitShouldGet429WithRetryAfter() {
+    var client = client("burst");
+    for (var i = 0; i < 3; i++) {
+      assertThat(hello(client)).isEqualTo(200);
+    }
+
+    var response = given().header("X-Forwarded-For", client).get("/hello");
+
+    assertThat(response.statusCode()).isEqualTo(429);
+    // A token every 100 s.
+    assertThat(Long.parseLong(response.header("Retry-After"))).isAtLeast(90L);
+  }
+
+  @Test
+  void clientsShouldHaveTheirOwnBuckets() {
+    var first = client("first");
+    var second = client("second");
+    for (var i = 0; i < 3; i++) {
+      hello(first);
+    }
+
+    assertThat(hello(first)).isEqualTo(429);
+    assertThat(hello(second)).isEqualTo(200);
+  }
+
+  @Test
+  void forwardedAddressesShouldOnlyBeTrustedFromProxies() {
+    var proxies = Set.of("10.0.0.1", "10.0.0.2");
+
+    assertThat(RateLimitFilter.client(null, "203.0.113.9", "198.51.100.1", proxies))
+        .isEqualTo("ip:203.0.113.9");
+    assertThat(RateLimitFilter.client(null, "10.0.0.1", "6.6.6.6, 198.51.100.1, 10.0.0.2", proxies))
+        .isEqualTo("ip:198.51.100.1");
+    assertThat(RateLimitFilter.client(() -> "alice", "10.0.0.1", "198.51.100.1", proxies))
+        .isEqualTo("user:alice");
+  }
+
+  @Test
+  void concurrentRequestsShouldNotExceedTheBucket() throws Exception {
+    var client = client("concurrent");
+    var limit = new RateLimit(100, 0.01);
+    var allowed = new AtomicInteger();
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var i = 0; i < 500; i++) {
+        executor.submit(() -> {
+          if (rateLimiter.acquire(ROUTE, client, limit).await().indefinitely().allowed()) {
+            allowed.incrementAndGet();
+          }
+        });
+      }
+    }
+
+    assertThat(allowed.get()).isAtMost(100);
+    assertThat(allowed.get()).isAtLeast(90);
+  }
+}